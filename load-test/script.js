@@ -7,11 +7,14 @@ const createdRate = new Rate('room_created_rate');
 const selectedRate = new Rate('card_selected_rate');
 const roomReadRate = new Rate('room_read_rate');
 const errorRate = new Rate('error_rate');
+const pushedCounter = new Counter('room_pushed');
+const batchRate = new Rate('batch_applied_rate');
 
 // Configuration
 const BASE_URL = 'ws://localhost:8080/ws/games';
 const USERS = 1000; // Number of concurrent users
 const DURATION = '120s'; // Test duration
+const BATCH = __ENV.BATCH === '1'; // k6 run -e BATCH=1: send CREATE_ROOM + SELECT_CARDs as one BATCH frame
 
 export const options = {
   scenarios: {
@@ -35,6 +38,13 @@ export const options = {
       exec: 'localCache',
       startTime: '250s', // Run sequentially
     },
+    hybrid_cache_test: {
+      executor: 'constant-vus',
+      vus: USERS,
+      duration: DURATION,
+      exec: 'hybridCache',
+      startTime: '375s', // Run sequentially
+    },
   },
 };
 
@@ -55,6 +65,19 @@ function runTest(strategy) {
 
   const res = ws.connect(url, params, function (socket) {
     socket.on('open', function open() {
+      if (BATCH) {
+        // Same commands in a single frame, applied with one batch call per strategy and acknowledged once
+        const commands = [{ command: 'CREATE_ROOM', roomId: roomId }];
+        for (let i = 0; i < 10; i++) {
+          commands.push({ command: 'SELECT_CARD', roomId: roomId, userId: userId, cardValue: 'Ace' });
+        }
+        socket.send(JSON.stringify({ command: 'BATCH', strategy: strategy, commands: commands }));
+
+        sleep(5);
+        socket.close();
+        return;
+      }
+
       // 1. Create Room
       socket.send(JSON.stringify({
         command: 'CREATE_ROOM',
@@ -87,10 +110,15 @@ function runTest(strategy) {
       try {
         const msg = JSON.parse(message);
 
-        if (msg.status === 'CREATED') {
+        if (msg.type) {
+          // Server push (CARD_SELECTED / ROOM_UPDATED) for a room this client is in
+          pushedCounter.add(1);
+        } else if (msg.status === 'CREATED') {
           createdRate.add(1);
         } else if (msg.status === 'SELECTED') {
           selectedRate.add(1);
+        } else if (msg.status === 'BATCH_APPLIED') {
+          batchRate.add(1);
         } else if (msg.roomId && !msg.status) {
           // Assuming GET_ROOM returns the room object which has roomId but no status field in root
           roomReadRate.add(1);
@@ -130,3 +158,7 @@ export function globalCache() {
 export function localCache() {
   runTest('local');
 }
+
+export function hybridCache() {
+  runTest('hybrid');
+}
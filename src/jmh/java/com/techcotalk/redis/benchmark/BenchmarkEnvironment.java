@@ -0,0 +1,106 @@
+package com.techcotalk.redis.benchmark;
+
+import com.techcotalk.redis.global.codec.GameBinaryRedisSerializer;
+import com.techcotalk.redis.global.config.ChangeLogProperties;
+import com.techcotalk.redis.global.config.PublishProperties;
+import com.techcotalk.redis.global.config.SubscriptionProperties;
+import com.techcotalk.redis.global.config.WriteBehindProperties;
+import com.techcotalk.redis.repository.GameJpaRepository;
+import com.techcotalk.redis.repository.GameRoomJdbcRepository;
+import com.techcotalk.redis.service.GameEventPublisher;
+import com.techcotalk.redis.service.LocalChangeLog;
+import com.techcotalk.redis.service.RoomSubscriptionRegistry;
+import com.techcotalk.redis.service.WriteBehindBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.UUID;
+
+// Wires the real services against in-process infrastructure: H2 in MySQL mode for the RDBMS
+// and InMemoryRedis for Redis and Pub/Sub. Built once per benchmark trial.
+class BenchmarkEnvironment implements AutoCloseable {
+
+    final InMemoryRedis redis = new InMemoryRedis();
+    final RedisTemplate<String, Object> redisTemplate;
+    // InMemoryRedis only speaks the blocking connection API, the benchmarks drive GameService (not AsyncGameService)
+    final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate = null;
+
+    final LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+    final GameJpaRepository gameJpaRepository;
+    final GameRoomJdbcRepository gameRoomJdbcRepository;
+    final JpaTransactionManager transactionManager;
+    final TransactionTemplate transactionTemplate;
+    final WriteBehindBuffer disabledWriteBehind;
+    final LocalChangeLog disabledChangeLog;
+    final RoomSubscriptionRegistry roomSubscriptions;
+    final GameEventPublisher eventPublisher;
+    // No WebSocket sessions in a benchmark, room change notifications go nowhere
+    final ApplicationEventPublisher applicationEventPublisher = event -> {
+    };
+
+    BenchmarkEnvironment(String codec) {
+        this.redisTemplate = redis.template(valueSerializer(codec));
+
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan("com.techcotalk.redis.domain.model");
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        // Same schema and naming as the application (Spring Boot's defaults)
+        entityManagerFactoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create",
+                "hibernate.physical_naming_strategy",
+                "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy",
+                "hibernate.implicit_naming_strategy",
+                "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy"));
+        entityManagerFactoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        this.gameJpaRepository = new JpaRepositoryFactory(entityManager).getRepository(GameJpaRepository.class);
+        this.gameRoomJdbcRepository = new GameRoomJdbcRepository(new JdbcTemplate(dataSource));
+
+        this.transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionManager.afterPropertiesSet();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.disabledWriteBehind = new WriteBehindBuffer(gameRoomJdbcRepository, transactionManager,
+                new WriteBehindProperties(), new SimpleMeterRegistry());
+        this.disabledChangeLog = new LocalChangeLog(redisTemplate, new ChangeLogProperties(), new SimpleMeterRegistry());
+        // Default configuration: one broadcast channel per strategy, every event goes out immediately
+        this.roomSubscriptions = new RoomSubscriptionRegistry(new SubscriptionProperties(), new SimpleMeterRegistry());
+        this.eventPublisher = new GameEventPublisher(redisTemplate, reactiveRedisTemplate, new PublishProperties(),
+                roomSubscriptions, new SimpleMeterRegistry());
+    }
+
+    static RedisSerializer<Object> valueSerializer(String codec) {
+        return switch (codec) {
+            case "json" -> new GenericJackson2JsonRedisSerializer();
+            case "binary" -> new GameBinaryRedisSerializer(512);
+            default -> throw new IllegalArgumentException("Unknown codec: " + codec);
+        };
+    }
+
+    @Override
+    public void close() {
+        entityManagerFactoryBean.destroy();
+    }
+}
@@ -0,0 +1,81 @@
+package com.techcotalk.redis.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techcotalk.redis.domain.dto.GameCommand;
+import com.techcotalk.redis.handler.GameCommandCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Per-message cost of reading a SELECT_CARD command and encoding its response in GameWebSocketHandler.
+// Compare gc.alloc.rate.norm (bytes allocated per operation, from the gc profiler) across the three paths:
+// - tree:      the original readTree + JsonNode lookups + string concatenation
+// - streaming: GameCommandCodec JSON path
+// - binary:    GameCommandCodec binary sub-protocol
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandCodecBenchmark {
+
+    private static final String SELECT_CARD_JSON = "{\"command\":\"SELECT_CARD\",\"strategy\":\"local\","
+            + "\"roomId\":\"room-abcde\",\"userId\":\"user-fghij\",\"cardValue\":\"Ace\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GameCommandCodec codec = new GameCommandCodec(objectMapper);
+    private byte[] selectCardBinary;
+
+    @Setup
+    public void setUp() {
+        ByteBuffer frame = ByteBuffer.allocate(64)
+                .put((byte) 2)
+                .put(string("local"))
+                .put(string("room-abcde"))
+                .put(string("user-fghij"))
+                .put(string("Ace"));
+        selectCardBinary = Arrays.copyOf(frame.array(), frame.position());
+    }
+
+    @Benchmark
+    public TextMessage tree() throws IOException {
+        JsonNode jsonNode = objectMapper.readTree(SELECT_CARD_JSON);
+        String command = jsonNode.get("command").asText();
+        String strategy = jsonNode.get("strategy").asText();
+        String roomId = jsonNode.get("roomId").asText();
+        String userId = jsonNode.get("userId").asText();
+        String cardValue = jsonNode.get("cardValue").asText();
+        if (command.isEmpty() || strategy.isEmpty() || userId.isEmpty() || cardValue.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return new TextMessage("{\"status\":\"SELECTED\", \"roomId\":\"" + roomId + "\"}");
+    }
+
+    @Benchmark
+    public WebSocketMessage<?> streaming() throws IOException {
+        GameCommand command = codec.readJson(SELECT_CARD_JSON);
+        return codec.selected(command.getRoomId(), false);
+    }
+
+    @Benchmark
+    public WebSocketMessage<?> binary() {
+        GameCommand command = codec.readBinary(ByteBuffer.wrap(selectCardBinary));
+        return codec.selected(command.getRoomId(), true);
+    }
+
+    private static byte[] string(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + bytes.length).putShort((short) bytes.length).put(bytes).array();
+    }
+}
@@ -0,0 +1,105 @@
+package com.techcotalk.redis.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.codec.GameBinaryRedisSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Encode/decode cost of one Pub/Sub event per codec. Run with the gc profiler (the default in build.gradle)
+// to also get bytes allocated per operation; the encoded size is printed once per trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameEventCodecBenchmark {
+
+    @Param({ "INVALIDATE", "DELTA", "PAYLOAD" })
+    public GameEvent.Type type;
+
+    @Param({ "json", "binary", "binary-deflate" })
+    public String codec;
+
+    @Param({ "8" })
+    public int users;
+
+    private RedisSerializer<Object> serializer;
+    private GameEvent event;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        serializer = switch (codec) {
+            case "json" -> new GenericJackson2JsonRedisSerializer();
+            case "binary" -> new GameBinaryRedisSerializer(0);
+            case "binary-deflate" -> new GameBinaryRedisSerializer(512);
+            default -> throw new IllegalArgumentException("Unknown codec: " + codec);
+        };
+
+        event = buildEvent(type, users);
+        encoded = serializer.serialize(event);
+        System.out.printf("%n[%s/%s] encoded size: %d bytes%n", codec, type, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(event);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(encoded);
+    }
+
+    private static GameEvent buildEvent(GameEvent.Type type, int users) {
+        GameRoom room = GameRoom.builder().roomId("room-abcde").build();
+        for (int i = 0; i < users; i++) {
+            room.selectCard("user-" + i, "Ace");
+        }
+        GameEvent.GameEventBuilder builder = GameEvent.builder().type(type).roomId(room.getRoomId());
+        if (type == GameEvent.Type.DELTA) {
+            builder.originId("node-a").version(42).userId("user-1").cardValue("King");
+        } else if (type == GameEvent.Type.PAYLOAD) {
+            builder.originId("node-a").version(42).payload(room);
+        }
+        return builder.build();
+    }
+
+    // What the listeners did before the codec switch: readValue into GameEvent with a plain ObjectMapper.
+    // Its own state without the codec param, it only ever reads JSON (compare with decode of codec=json).
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public static class ObjectMapperDecode {
+
+        @Param({ "INVALIDATE", "DELTA", "PAYLOAD" })
+        public GameEvent.Type type;
+
+        @Param({ "8" })
+        public int users;
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private byte[] encoded;
+
+        @Setup
+        public void setUp() {
+            encoded = new GenericJackson2JsonRedisSerializer().serialize(buildEvent(type, users));
+        }
+
+        @Benchmark
+        public GameEvent decode() throws IOException {
+            return objectMapper.readValue(encoded, GameEvent.class);
+        }
+    }
+}
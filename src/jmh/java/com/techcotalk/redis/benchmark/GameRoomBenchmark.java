@@ -0,0 +1,55 @@
+package com.techcotalk.redis.benchmark;
+
+import com.techcotalk.redis.domain.model.GameRoom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// GameRoom.selectCard with many threads writing the same room, the way LocalCacheGameService uses it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class GameRoomBenchmark {
+
+    private static final int USERS = 16;
+    private static final String[] CARDS = { "Ace", "King", "Queen", "Jack" };
+
+    private String[] userIds;
+    private GameRoom room;
+
+    @Setup
+    public void setUp() {
+        userIds = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = "user-" + i;
+        }
+        room = GameRoom.builder().roomId("room-1").build();
+    }
+
+    // Unsynchronized, as GameRoom is used today: fast but racy on the shared HashMap
+    @Benchmark
+    public void selectCardUnsafe() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        room.selectCard(userIds[random.nextInt(USERS)], CARDS[random.nextInt(CARDS.length)]);
+    }
+
+    // One monitor per room, the cost of making the same call safe
+    @Benchmark
+    public void selectCardSynchronized() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String userId = userIds[random.nextInt(USERS)];
+        String cardValue = CARDS[random.nextInt(CARDS.length)];
+        synchronized (room) {
+            room.selectCard(userId, cardValue);
+        }
+    }
+}
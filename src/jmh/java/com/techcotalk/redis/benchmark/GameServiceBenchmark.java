@@ -0,0 +1,174 @@
+package com.techcotalk.redis.benchmark;
+
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.GlobalCacheProperties;
+import com.techcotalk.redis.global.config.HybridCacheProperties;
+import com.techcotalk.redis.global.config.LocalCacheProperties;
+import com.techcotalk.redis.global.config.RdbmsProperties;
+import com.techcotalk.redis.service.GameService;
+import com.techcotalk.redis.service.GlobalCacheGameService;
+import com.techcotalk.redis.service.HybridCacheGameService;
+import com.techcotalk.redis.service.LocalCacheGameService;
+import com.techcotalk.redis.service.RdbmsGameService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.transaction.TransactionException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Every strategy runs as two "nodes" in one JVM: node A takes the writes, node B is subscribed to A's
+// Pub/Sub events and serves the reads, so a selectCard also pays for the receive side.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class GameServiceBenchmark {
+
+    private static final int ROOMS = 1_000;
+    private static final int USERS_PER_ROOM = 8;
+    private static final String[] CARDS = { "Ace", "King", "Queen", "Jack" };
+
+    @Param({ "rdbms-jpa", "rdbms-upsert", "rdbms-cached", "global-string", "global-hash", "local", "hybrid" })
+    public String strategy;
+
+    @Param({ "json", "binary" })
+    public String codec;
+
+    private BenchmarkEnvironment environment;
+    private GameService nodeA;
+    private GameService nodeB;
+    private boolean transactional;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new BenchmarkEnvironment(codec);
+        transactional = strategy.startsWith("rdbms");
+
+        switch (strategy) {
+            case "rdbms-jpa", "rdbms-upsert", "rdbms-cached" -> {
+                RdbmsProperties properties = new RdbmsProperties();
+                properties.setAccessPath(strategy.equals("rdbms-upsert")
+                        ? RdbmsProperties.AccessPath.UPSERT
+                        : RdbmsProperties.AccessPath.JPA);
+                properties.setCacheEnabled(strategy.equals("rdbms-cached"));
+                ChannelTopic topic = new ChannelTopic("rdbms-events");
+                nodeA = rdbms(topic, properties);
+                RdbmsGameService b = rdbms(topic, properties);
+                environment.redis.subscribe(topic.getTopic(), b);
+                nodeB = b;
+            }
+            case "global-string", "global-hash" -> {
+                GlobalCacheProperties properties = new GlobalCacheProperties();
+                properties.setLayout(strategy.equals("global-hash")
+                        ? GlobalCacheProperties.Layout.HASH
+                        : GlobalCacheProperties.Layout.STRING);
+                ChannelTopic topic = new ChannelTopic("global-cache-events");
+                nodeA = global(topic, properties);
+                GlobalCacheGameService b = global(topic, properties);
+                environment.redis.subscribe(topic.getTopic(), b);
+                nodeB = b;
+            }
+            case "local" -> {
+                ChannelTopic topic = new ChannelTopic("local-cache-events");
+                LocalCacheGameService a = new LocalCacheGameService(environment.redisTemplate, topic,
+                        new LocalCacheProperties(), environment.disabledWriteBehind, environment.eventPublisher,
+                        environment.roomSubscriptions, environment.applicationEventPublisher, new SimpleMeterRegistry(),
+                        environment.disabledChangeLog);
+                LocalCacheGameService b = new LocalCacheGameService(environment.redisTemplate, topic,
+                        new LocalCacheProperties(), environment.disabledWriteBehind, environment.eventPublisher,
+                        environment.roomSubscriptions, environment.applicationEventPublisher, new SimpleMeterRegistry(),
+                        environment.disabledChangeLog);
+                environment.redis.subscribe(topic.getTopic(), a);
+                environment.redis.subscribe(topic.getTopic(), b);
+                nodeA = a;
+                nodeB = b;
+            }
+            case "hybrid" -> {
+                ChannelTopic topic = new ChannelTopic("global-cache-events");
+                GlobalCacheGameService store = global(topic, new GlobalCacheProperties());
+                HybridCacheGameService a = new HybridCacheGameService(store, environment.redisTemplate,
+                        environment.eventPublisher, new SimpleMeterRegistry(), environment.applicationEventPublisher,
+                        new HybridCacheProperties());
+                HybridCacheGameService b = new HybridCacheGameService(store, environment.redisTemplate,
+                        environment.eventPublisher, new SimpleMeterRegistry(), environment.applicationEventPublisher,
+                        new HybridCacheProperties());
+                environment.redis.subscribe(topic.getTopic(), a);
+                environment.redis.subscribe(topic.getTopic(), b);
+                nodeA = a;
+                nodeB = b;
+            }
+            default -> throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
+
+        for (int i = 0; i < ROOMS; i++) {
+            String roomId = roomId(i);
+            run(() -> nodeA.createRoom(roomId));
+            if (strategy.equals("local")) {
+                nodeB.createRoom(roomId); // local rooms only sync between nodes that hold them
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public void selectCard() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String roomId = roomId(random.nextInt(ROOMS));
+        String userId = "user-" + random.nextInt(USERS_PER_ROOM);
+        String cardValue = CARDS[random.nextInt(CARDS.length)];
+        try {
+            run(() -> nodeA.selectCard(roomId, userId, cardValue));
+        } catch (DataAccessException | TransactionException e) {
+            // Two threads rewriting the same room's collection can collide on the JPA path, as they do in the app
+        }
+    }
+
+    @Benchmark
+    public GameRoom getGameRoom() {
+        // RdbmsGameService opens its own read-only transaction, and only on a cache miss
+        return nodeB.getGameRoom(roomId(ThreadLocalRandom.current().nextInt(ROOMS)));
+    }
+
+    private RdbmsGameService rdbms(ChannelTopic topic, RdbmsProperties properties) {
+        return new RdbmsGameService(environment.gameJpaRepository, environment.redisTemplate, topic,
+                environment.gameRoomJdbcRepository, properties, environment.eventPublisher,
+                environment.roomSubscriptions, environment.applicationEventPublisher, environment.transactionManager,
+                new SimpleMeterRegistry());
+    }
+
+    private GlobalCacheGameService global(ChannelTopic topic, GlobalCacheProperties properties) {
+        return new GlobalCacheGameService(environment.redisTemplate, environment.reactiveRedisTemplate, topic, properties,
+                environment.disabledWriteBehind, environment.eventPublisher, environment.roomSubscriptions,
+                environment.applicationEventPublisher);
+    }
+
+    // The RDBMS services rely on @Transactional, which only applies through Spring's proxies
+    private void run(Runnable action) {
+        if (transactional) {
+            environment.transactionTemplate.executeWithoutResult(status -> action.run());
+        } else {
+            action.run();
+        }
+    }
+
+    private static String roomId(int index) {
+        return "room-" + index;
+    }
+}
@@ -0,0 +1,169 @@
+package com.techcotalk.redis.benchmark;
+
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-process stand-in for a Redis server, plugged in below RedisTemplate as a RedisConnectionFactory.
+// The services keep their real serialization and template code paths, only the network hop disappears.
+// PUBLISH is delivered synchronously to the listeners subscribed here.
+//
+// Supported: GET, SET, DEL, EXISTS, HSET, HGETALL, PUBLISH and the create-room / select-card scripts of
+// GlobalCacheGameService.
+public class InMemoryRedis {
+
+    // GlobalCacheGameService's hash field for the room payload
+    private static final String PAYLOAD_FIELD = "#dummyData";
+
+    private final Map<String, byte[]> strings = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>();
+    private final Map<String, List<MessageListener>> subscribers = new ConcurrentHashMap<>();
+
+    private final RedisConnection connection = proxy(RedisConnection.class);
+    private final RedisConnectionFactory connectionFactory = (RedisConnectionFactory) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] { RedisConnectionFactory.class },
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getConnection" -> connection;
+                case "getConvertPipelineAndTxResults" -> false;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "InMemoryRedisConnectionFactory";
+                default -> null;
+            });
+
+    public RedisTemplate<String, Object> template(RedisSerializer<Object> valueSerializer) {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(valueSerializer);
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setHashValueSerializer(valueSerializer);
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    public void subscribe(String channel, MessageListener listener) {
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void flushAll() {
+        strings.clear();
+        hashes.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, new CommandHandler());
+    }
+
+    private static String key(Object raw) {
+        return new String((byte[]) raw, StandardCharsets.ISO_8859_1);
+    }
+
+    private class CommandHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+
+            // connection.stringCommands(), connection.hashCommands(), ... all land on this handler again
+            if (name.endsWith("Commands") && method.getReturnType().isInterface() && (args == null || args.length == 0)) {
+                return proxy(method.getReturnType());
+            }
+
+            return switch (name) {
+                case "get" -> strings.get(key(args[0]));
+                case "set" -> {
+                    strings.put(key(args[0]), (byte[]) args[1]);
+                    yield Boolean.TRUE;
+                }
+                case "del" -> del((Object[]) args[0]);
+                case "exists" -> args[0] instanceof byte[] raw
+                        ? Boolean.valueOf(strings.containsKey(key(raw)) || hashes.containsKey(key(raw)))
+                        : null;
+                case "hSet" -> hashes.computeIfAbsent(key(args[0]), k -> new ConcurrentHashMap<>())
+                        .put(key(args[1]), (byte[]) args[2]) == null;
+                case "hGetAll" -> hGetAll(key(args[0]));
+                case "evalSha", "eval" -> roomScript((byte[][]) args[3]);
+                case "publish" -> publish((byte[]) args[0], (byte[]) args[1]);
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "InMemoryRedisConnection";
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+
+        private Long del(Object[] rawKeys) {
+            long removed = 0;
+            for (Object rawKey : rawKeys) {
+                String key = key(rawKey);
+                if (strings.remove(key) != null | hashes.remove(key) != null) {
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        private Map<byte[], byte[]> hGetAll(String key) {
+            Map<String, byte[]> hash = hashes.get(key);
+            Map<byte[], byte[]> result = new HashMap<>();
+            if (hash != null) {
+                hash.forEach((field, value) -> result.put(field.getBytes(StandardCharsets.ISO_8859_1), value));
+            }
+            return result;
+        }
+
+        // GlobalCacheGameService.CREATE_ROOM_SCRIPT is the only one writing the payload field: DEL + HSET.
+        // Otherwise SELECT_CARD_SCRIPT: HSET only if the hash exists
+        private Long roomScript(byte[][] keysAndArgs) {
+            if (PAYLOAD_FIELD.equals(key(keysAndArgs[1]))) {
+                Map<String, byte[]> hash = new ConcurrentHashMap<>();
+                hash.put(PAYLOAD_FIELD, keysAndArgs[2]);
+                strings.remove(key(keysAndArgs[0]));
+                hashes.put(key(keysAndArgs[0]), hash);
+                return 1L;
+            }
+            Map<String, byte[]> hash = hashes.get(key(keysAndArgs[0]));
+            if (hash == null) {
+                return 0L;
+            }
+            hash.put(key(keysAndArgs[1]), keysAndArgs[2]);
+            return 1L;
+        }
+
+        private Long publish(byte[] channel, byte[] body) {
+            List<MessageListener> listeners = subscribers.getOrDefault(key(channel), List.of());
+            DefaultMessage message = new DefaultMessage(channel, body);
+            for (MessageListener listener : listeners) {
+                listener.onMessage(message, null);
+            }
+            return (long) listeners.size();
+        }
+
+        private Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            if (type == int.class) {
+                return 0;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.techcotalk.redis.benchmark;
+
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.LocalCacheProperties;
+import com.techcotalk.redis.service.LocalCacheGameService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.redis.listener.ChannelTopic;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// LocalCacheGameService with its rooms on the heap vs in direct memory, with many rooms cached.
+// Besides throughput, the gc profiler's gc.count / gc.time show the collection cost, and the trial prints the
+// resident footprint: heap still in use after a full GC, direct memory, and the GC time spent over the trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class LocalRoomStorageBenchmark {
+
+    private static final int USERS_PER_ROOM = 8;
+    private static final String[] CARDS = { "Ace", "King", "Queen", "Jack" };
+
+    @Param({ "HEAP", "OFF_HEAP" })
+    public LocalCacheProperties.Storage storage;
+
+    @Param({ "100000" })
+    public int rooms;
+
+    private BenchmarkEnvironment environment;
+    private LocalCacheGameService service;
+    private long gcMillisAtStart;
+    private long gcCountAtStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new BenchmarkEnvironment("binary");
+
+        LocalCacheProperties properties = new LocalCacheProperties();
+        properties.setStorage(storage);
+        properties.setMaximumSize(rooms);
+        properties.setExpireAfterAccess(Duration.ofHours(1));
+        service = new LocalCacheGameService(environment.redisTemplate, new ChannelTopic("local-cache-events"),
+                properties, environment.disabledWriteBehind, environment.eventPublisher,
+                environment.roomSubscriptions, environment.applicationEventPublisher, new SimpleMeterRegistry(),
+                environment.disabledChangeLog);
+
+        // Full rooms, every player has picked a card
+        for (int i = 0; i < rooms; i++) {
+            String roomId = roomId(i);
+            service.createRoom(roomId);
+            for (int user = 0; user < USERS_PER_ROOM; user++) {
+                service.selectCard(roomId, "user-" + user, CARDS[user % CARDS.length]);
+            }
+        }
+
+        System.gc();
+        gcMillisAtStart = gcMillis();
+        gcCountAtStart = gcCount();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long gcMillis = gcMillis() - gcMillisAtStart;
+        long gcCount = gcCount() - gcCountAtStart;
+        System.gc();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long directUsed = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+        System.out.printf("%n[%s, %d rooms] heap after GC: %d MB, direct: %d MB, GC during the trial: %d collections, %d ms%n",
+                storage, rooms, heapUsed >> 20, directUsed >> 20, gcCount, gcMillis);
+        environment.close();
+    }
+
+    @Benchmark
+    public void selectCard() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        service.selectCard(roomId(random.nextInt(rooms)), "user-" + random.nextInt(USERS_PER_ROOM),
+                CARDS[random.nextInt(CARDS.length)]);
+    }
+
+    @Benchmark
+    public GameRoom getGameRoom() {
+        return service.getGameRoom(roomId(ThreadLocalRandom.current().nextInt(rooms)));
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static String roomId(int index) {
+        return "room-" + index;
+    }
+}
@@ -0,0 +1,86 @@
+package com.techcotalk.redis.benchmark;
+
+import com.techcotalk.redis.domain.model.CompactGameRoom;
+import com.techcotalk.redis.domain.model.GameRoom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Resident bytes per room of GameRoom (HashMap of cards, 1KB payload) vs CompactGameRoom, with many rooms held.
+// Cards are built the way they arrive from Pub/Sub, one new String per value, so the report includes what
+// interning saves. The trial prints heap growth after a full GC divided by the number of rooms, the benchmark
+// itself is a card lookup, the read the compact form's linear scan has to keep cheap.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoomFootprintBenchmark {
+
+    public enum Representation {
+        GAME_ROOM, COMPACT
+    }
+
+    private static final String[] CARDS = { "Ace", "King", "Queen", "Jack" };
+
+    @Param({ "GAME_ROOM", "COMPACT" })
+    public Representation representation;
+
+    @Param({ "100000" })
+    public int rooms;
+
+    @Param({ "8" })
+    public int usersPerRoom;
+
+    private GameRoom[] gameRooms;
+    private CompactGameRoom[] compactRooms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = heapAfterGc();
+        if (representation == Representation.GAME_ROOM) {
+            gameRooms = new GameRoom[rooms];
+            for (int i = 0; i < rooms; i++) {
+                GameRoom room = GameRoom.builder().roomId("room-" + i).build();
+                for (int user = 0; user < usersPerRoom; user++) {
+                    room.selectCard("user-" + user, new String(CARDS[user % CARDS.length]));
+                }
+                gameRooms[i] = room;
+            }
+        } else {
+            compactRooms = new CompactGameRoom[rooms];
+            for (int i = 0; i < rooms; i++) {
+                CompactGameRoom room = CompactGameRoom.empty("room-" + i);
+                for (int user = 0; user < usersPerRoom; user++) {
+                    room = room.withCard("user-" + user, new String(CARDS[user % CARDS.length]));
+                }
+                compactRooms[i] = room;
+            }
+        }
+        long used = heapAfterGc() - before;
+        System.out.printf("%n[%s, %d rooms, %d players each] heap: %d MB, %d bytes per room%n",
+                representation, rooms, usersPerRoom, used >> 20, used / rooms);
+    }
+
+    @Benchmark
+    public String cardOf() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int room = random.nextInt(rooms);
+        String userId = "user-" + random.nextInt(usersPerRoom);
+        return representation == Representation.GAME_ROOM ? gameRooms[room].getUserCards().get(userId)
+                : compactRooms[room].cardOf(userId);
+    }
+
+    private static long heapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
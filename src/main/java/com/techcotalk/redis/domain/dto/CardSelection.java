@@ -0,0 +1,5 @@
+package com.techcotalk.redis.domain.dto;
+
+// One SELECT_CARD of a batch command
+public record CardSelection(String roomId, String userId, String cardValue) {
+}
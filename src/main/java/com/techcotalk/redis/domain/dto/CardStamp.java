@@ -0,0 +1,17 @@
+package com.techcotalk.redis.domain.dto;
+
+import java.io.Serializable;
+
+// When and where a card was picked: hybrid logical clock of the writing node, then its node id as tie-breaker.
+// Every node orders two writes of the same card the same way, so the later one wins everywhere.
+public record CardStamp(long time, String nodeId) implements Serializable, Comparable<CardStamp> {
+
+    // Older than any real write, for cards whose origin is unknown
+    public static final CardStamp ZERO = new CardStamp(0, "");
+
+    @Override
+    public int compareTo(CardStamp other) {
+        int byTime = Long.compare(time, other.time);
+        return byTime != 0 ? byTime : nodeId.compareTo(other.nodeId);
+    }
+}
@@ -0,0 +1,27 @@
+package com.techcotalk.redis.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One client command received over the WebSocket, in JSON or in the binary sub-protocol
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameCommand {
+    public static final String CREATE_ROOM = "CREATE_ROOM";
+    public static final String SELECT_CARD = "SELECT_CARD";
+    public static final String GET_ROOM = "GET_ROOM";
+    public static final String BATCH = "BATCH";
+
+    private String command;
+    private String strategy;
+    private String roomId;
+    private String userId; // Only used for SELECT_CARD
+    private String cardValue; // Only used for SELECT_CARD
+    private List<GameCommand> commands; // Only used for BATCH: CREATE_ROOM / SELECT_CARD commands, applied in order
+}
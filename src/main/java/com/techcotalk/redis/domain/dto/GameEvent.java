@@ -7,6 +7,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -15,10 +17,30 @@ import java.io.Serializable;
 public class GameEvent implements Serializable {
     public enum Type {
         INVALIDATE, // For RDBMS & Global Cache: "Something changed, go fetch it"
-        PAYLOAD // For Local Cache: "Here is the change, apply it"
+        PAYLOAD, // For Local Cache: "Here is the whole room, replace your copy"
+        DELTA, // For Local Cache: "Only this user's card changed, apply it in order"
+        RESYNC, // For Local Cache: "I missed a delta from you, send me a full PAYLOAD"
+        BATCH, // For all strategies: several events of one publish window in a single message
+        FORWARD // For Local Cache (ownership mode): "You own this room, apply my selection"
     }
 
     private Type type;
     private String roomId;
     private GameRoom payload; // Only used for PAYLOAD type
+
+    private String originId; // Node that published the event
+    private long publishedAt; // Wall clock (epoch millis) when it was published, receivers record the propagation lag
+    private long version; // Per-room sequence of the origin node (DELTA, PAYLOAD)
+    private String userId; // Only used for DELTA type
+    private String cardValue; // Only used for DELTA type
+    private long timestamp; // DELTA: hybrid logical clock of the write, stamped with originId. PAYLOAD of the change log: when the room was (re)created
+    private Map<String, CardStamp> stamps; // Only used for PAYLOAD type: userId -> stamp of that card
+    private String targetId; // Only used for RESYNC / FORWARD type: node asked to send the snapshot / apply the selection
+    private String requestId; // FORWARD, and the owner's DELTA applying it: lets the forwarding node match the two
+    private List<GameEvent> events; // Only used for BATCH type
+
+    // A BATCH stands for the events it carries, any other event stands for itself
+    public List<GameEvent> unbatch() {
+        return type == Type.BATCH ? events : List.of(this);
+    }
 }
@@ -0,0 +1,237 @@
+package com.techcotalk.redis.domain.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Memory-lean, immutable form of GameRoom for rooms held in memory (LocalCacheGameService keeps one per room).
+// - players live in two parallel arrays sized exactly to the room instead of a HashMap with a node per player
+// - card values are interned: the deck's few values exist once per JVM, not once per card picked
+// - the payload is only kept when it isn't GameRoom's default block of zeros
+// A change returns a new room, so readers share it without copying. Players are found by a linear scan,
+// which beats hashing for the handful of players a room has.
+public final class CompactGameRoom {
+
+    // Size of GameRoom's default dummyData
+    public static final int DEFAULT_PAYLOAD_SIZE = 1024;
+
+    private static final String[] DECK = { "Ace", "King", "Queen", "Jack" };
+    // Values clients send beyond the deck are interned on first sight, up to this many
+    private static final int MAX_INTERNED_CARD_VALUES = 1024;
+    private static final Map<String, String> CARD_VALUES = new ConcurrentHashMap<>();
+
+    // Shared by the read-only views of every room with the default payload, must never be written to
+    private static final byte[] DEFAULT_PAYLOAD = new byte[DEFAULT_PAYLOAD_SIZE];
+    private static final byte[] NO_PAYLOAD = new byte[0];
+    private static final String[] NO_STRINGS = new String[0];
+
+    static {
+        for (String card : DECK) {
+            CARD_VALUES.put(card, card);
+        }
+    }
+
+    private final String roomId;
+    private final String[] userIds;
+    private final String[] cardValues; // cardValues[i] is the card of userIds[i]
+    private final byte[] payload; // null: the default payload, NO_PAYLOAD: the room had none
+
+    private CompactGameRoom(String roomId, String[] userIds, String[] cardValues, byte[] payload) {
+        this.roomId = roomId;
+        this.userIds = userIds;
+        this.cardValues = cardValues;
+        this.payload = payload;
+    }
+
+    public static CompactGameRoom empty(String roomId) {
+        return new CompactGameRoom(roomId, NO_STRINGS, NO_STRINGS, null);
+    }
+
+    public static CompactGameRoom from(GameRoom room) {
+        Map<String, String> userCards = room.getUserCards();
+        int size = userCards == null ? 0 : userCards.size();
+        String[] userIds = size == 0 ? NO_STRINGS : new String[size];
+        String[] cardValues = size == 0 ? NO_STRINGS : new String[size];
+        int i = 0;
+        if (userCards != null) {
+            for (Map.Entry<String, String> card : userCards.entrySet()) {
+                userIds[i] = card.getKey();
+                cardValues[i++] = internCardValue(card.getValue());
+            }
+        }
+        return new CompactGameRoom(room.getRoomId(), userIds, cardValues, compactPayload(room.getDummyData()));
+    }
+
+    // The shared instance of a card value, or the value itself once the table is full
+    public static String internCardValue(String cardValue) {
+        if (cardValue == null) {
+            return null;
+        }
+        String interned = CARD_VALUES.get(cardValue);
+        if (interned != null) {
+            return interned;
+        }
+        if (CARD_VALUES.size() >= MAX_INTERNED_CARD_VALUES) {
+            return cardValue;
+        }
+        interned = CARD_VALUES.putIfAbsent(cardValue, cardValue);
+        return interned != null ? interned : cardValue;
+    }
+
+    // A new, mutable GameRoom owning its map and payload, e.g. to persist through JPA
+    public GameRoom toGameRoom() {
+        Map<String, String> userCards = new HashMap<>();
+        for (int i = 0; i < userIds.length; i++) {
+            userCards.put(userIds[i], cardValues[i]);
+        }
+        return GameRoom.builder()
+                .roomId(roomId)
+                .userCards(userCards)
+                .dummyData(payload == null ? new byte[DEFAULT_PAYLOAD_SIZE]
+                        : payload == NO_PAYLOAD ? null : payload.clone())
+                .build();
+    }
+
+    // A GameRoom sharing this room's arrays: read-only cards, and a payload that must not be written to (the default
+    // one is shared by all rooms). Only for publishing and serializing, never hand it to callers, they get toGameRoom()
+    public GameRoom toReadOnlyGameRoom() {
+        return GameRoom.builder()
+                .roomId(roomId)
+                .userCards(userCards())
+                .dummyData(payload == null ? DEFAULT_PAYLOAD : payload == NO_PAYLOAD ? null : payload)
+                .build();
+    }
+
+    // Read-only map view over the player arrays
+    public Map<String, String> userCards() {
+        return new UserCards(userIds, cardValues);
+    }
+
+    // Same index as long as the player stays in the room, new players are added at the end
+    public int indexOf(String userId) {
+        return indexOf(userIds, userId);
+    }
+
+    public CompactGameRoom withCard(String userId, String cardValue) {
+        String interned = internCardValue(cardValue);
+        int index = indexOf(userId);
+        if (index >= 0) {
+            if (cardValues[index] == interned) {
+                return this;
+            }
+            // The players don't change, only the cards are copied
+            String[] changed = cardValues.clone();
+            changed[index] = interned;
+            return new CompactGameRoom(roomId, userIds, changed, payload);
+        }
+        String[] grownUsers = Arrays.copyOf(userIds, userIds.length + 1);
+        String[] grownCards = Arrays.copyOf(cardValues, cardValues.length + 1);
+        grownUsers[userIds.length] = userId;
+        grownCards[cardValues.length] = interned;
+        return new CompactGameRoom(roomId, grownUsers, grownCards, payload);
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public String userId(int index) {
+        return userIds[index];
+    }
+
+    public String cardValue(int index) {
+        return cardValues[index];
+    }
+
+    public String cardOf(String userId) {
+        int index = indexOf(userId);
+        return index < 0 ? null : cardValues[index];
+    }
+
+    public int size() {
+        return userIds.length;
+    }
+
+    private static byte[] compactPayload(byte[] dummyData) {
+        if (dummyData == null) {
+            return NO_PAYLOAD;
+        }
+        if (dummyData.length == DEFAULT_PAYLOAD_SIZE && Arrays.equals(dummyData, DEFAULT_PAYLOAD)) {
+            return null;
+        }
+        return dummyData.clone();
+    }
+
+    private static int indexOf(String[] userIds, Object userId) {
+        for (int i = 0; i < userIds.length; i++) {
+            if (Objects.equals(userIds[i], userId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class UserCards extends AbstractMap<String, String> {
+        private final String[] userIds;
+        private final String[] cardValues;
+
+        private UserCards(String[] userIds, String[] cardValues) {
+            this.userIds = userIds;
+            this.cardValues = cardValues;
+        }
+
+        @Override
+        public int size() {
+            return userIds.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(userIds, key) >= 0;
+        }
+
+        @Override
+        public String get(Object key) {
+            int index = indexOf(userIds, key);
+            return index < 0 ? null : cardValues[index];
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return userIds.length;
+                }
+
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < userIds.length;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (next >= userIds.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new SimpleImmutableEntry<>(userIds[i], cardValues[i]);
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
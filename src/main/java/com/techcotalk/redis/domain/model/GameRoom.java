@@ -1,9 +1,13 @@
 package com.techcotalk.redis.domain.model;
 
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapKeyColumn;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,7 +26,11 @@ public class GameRoom implements Serializable {
     @Id
     private String roomId;
 
+    // Table and column names are spelled out because GameRoomJdbcRepository writes to them directly
     @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "game_room_user_cards", joinColumns = @JoinColumn(name = "room_id"))
+    @MapKeyColumn(name = "user_id")
+    @Column(name = "card_value")
     @Builder.Default
     private Map<String, String> userCards = new HashMap<>();
 
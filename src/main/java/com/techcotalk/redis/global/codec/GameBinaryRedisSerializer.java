@@ -0,0 +1,319 @@
+package com.techcotalk.redis.global.codec;
+
+import com.techcotalk.redis.domain.dto.CardStamp;
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.domain.model.GameRoom;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compact binary format for the values we keep in Redis and send over Pub/Sub.
+// The schema lives in this class, so a message only carries a one byte type tag instead of a class name.
+//
+// [flags:1][tag:1][body...]                  flags = PLAIN
+// [flags:1][length:4][deflate([tag][body])]  flags = DEFLATED, length = inflated size
+public class GameBinaryRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final byte PLAIN = 0;
+    private static final byte DEFLATED = 1;
+
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_BYTES = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_ROOM = 4;
+    private static final byte TAG_EVENT = 5;
+
+    // Deflate expands by at most ~1032x, a larger inflated length can only come from a corrupt header
+    private static final int MAX_INFLATION = 1032;
+
+    private final int compressionThreshold;
+
+    public GameBinaryRedisSerializer(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeByte(PLAIN);
+            writeValue(out, value);
+            out.flush();
+
+            byte[] plain = buffer.toByteArray();
+            int bodyLength = plain.length - 1;
+            if (compressionThreshold > 0 && bodyLength > compressionThreshold) {
+                return deflate(plain, bodyLength);
+            }
+            return plain;
+        } catch (IOException e) {
+            throw new SerializationException("Could not write " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        try {
+            DataInputStream in = bytes[0] == DEFLATED
+                    ? new DataInputStream(new ByteArrayInputStream(inflate(bytes)))
+                    : new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+            return readValue(in);
+        } catch (SerializationException e) {
+            throw e;
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            // Truncated or corrupt bytes fail like any other unreadable value, not with whatever the read ran into
+            throw new SerializationException("Could not read binary value", e);
+        }
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof String string) {
+            out.writeByte(TAG_STRING);
+            out.writeUTF(string);
+        } else if (value instanceof byte[] bytes) {
+            out.writeByte(TAG_BYTES);
+            writeBytes(out, bytes);
+        } else if (value instanceof Long number) {
+            out.writeByte(TAG_LONG);
+            out.writeLong(number);
+        } else if (value instanceof GameRoom room) {
+            out.writeByte(TAG_ROOM);
+            writeRoom(out, room);
+        } else if (value instanceof GameEvent event) {
+            out.writeByte(TAG_EVENT);
+            writeEvent(out, event);
+        } else {
+            throw new SerializationException("Unsupported type: " + value.getClass().getName());
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case TAG_STRING -> in.readUTF();
+            case TAG_BYTES -> readBytes(in);
+            case TAG_LONG -> in.readLong();
+            case TAG_ROOM -> readRoom(in);
+            case TAG_EVENT -> readEvent(in);
+            default -> throw new SerializationException("Unknown type tag: " + tag);
+        };
+    }
+
+    private void writeRoom(DataOutputStream out, GameRoom room) throws IOException {
+        writeString(out, room.getRoomId());
+        Map<String, String> userCards = room.getUserCards();
+        out.writeInt(userCards == null ? -1 : userCards.size());
+        if (userCards != null) {
+            for (Map.Entry<String, String> entry : userCards.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+        writeBytes(out, room.getDummyData());
+    }
+
+    private GameRoom readRoom(DataInputStream in) throws IOException {
+        String roomId = readString(in);
+        int size = readLength(in);
+        Map<String, String> userCards = null;
+        if (size >= 0) {
+            userCards = new HashMap<>(Math.max(16, size * 2));
+            for (int i = 0; i < size; i++) {
+                userCards.put(readString(in), readString(in));
+            }
+        }
+        GameRoom room = GameRoom.builder().roomId(roomId).userCards(userCards).build();
+        room.setDummyData(readBytes(in));
+        return room;
+    }
+
+    private void writeEvent(DataOutputStream out, GameEvent event) throws IOException {
+        out.writeByte(event.getType() == null ? -1 : event.getType().ordinal());
+        writeString(out, event.getRoomId());
+        writeString(out, event.getOriginId());
+        out.writeLong(event.getPublishedAt());
+        out.writeLong(event.getVersion());
+        writeString(out, event.getUserId());
+        writeString(out, event.getCardValue());
+        out.writeLong(event.getTimestamp());
+        writeString(out, event.getTargetId());
+        writeString(out, event.getRequestId());
+        out.writeBoolean(event.getPayload() != null);
+        if (event.getPayload() != null) {
+            writeRoom(out, event.getPayload());
+        }
+        Map<String, CardStamp> stamps = event.getStamps();
+        out.writeInt(stamps == null ? -1 : stamps.size());
+        if (stamps != null) {
+            for (Map.Entry<String, CardStamp> entry : stamps.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().time());
+                writeString(out, entry.getValue().nodeId());
+            }
+        }
+        List<GameEvent> events = event.getEvents();
+        out.writeInt(events == null ? -1 : events.size());
+        if (events != null) {
+            for (GameEvent batched : events) {
+                writeEvent(out, batched);
+            }
+        }
+    }
+
+    private GameEvent readEvent(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type >= GameEvent.Type.values().length || type < -1) {
+            throw new SerializationException("Unknown event type: " + type);
+        }
+        GameEvent event = new GameEvent();
+        event.setType(type < 0 ? null : GameEvent.Type.values()[type]);
+        event.setRoomId(readString(in));
+        event.setOriginId(readString(in));
+        event.setPublishedAt(in.readLong());
+        event.setVersion(in.readLong());
+        event.setUserId(readString(in));
+        event.setCardValue(readString(in));
+        event.setTimestamp(in.readLong());
+        event.setTargetId(readString(in));
+        event.setRequestId(readString(in));
+        if (in.readBoolean()) {
+            event.setPayload(readRoom(in));
+        }
+        int stampCount = readLength(in);
+        if (stampCount >= 0) {
+            Map<String, CardStamp> stamps = new HashMap<>(Math.max(16, stampCount * 2));
+            for (int i = 0; i < stampCount; i++) {
+                String userId = readString(in);
+                stamps.put(userId, new CardStamp(in.readLong(), readString(in)));
+            }
+            event.setStamps(stamps);
+        }
+        int batched = readLength(in);
+        if (batched >= 0) {
+            List<GameEvent> events = new ArrayList<>(batched);
+            for (int i = 0; i < batched; i++) {
+                events.add(readEvent(in));
+            }
+            event.setEvents(events);
+        }
+        return event;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value == null ? -1 : value.length);
+        if (value != null) {
+            out.write(value);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+
+    // A length or count read from the value, -1 for null. Every element takes at least a byte, so one larger than
+    // the bytes left is corrupt and is rejected before it sizes an allocation.
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < -1 || length > in.available()) {
+            throw new SerializationException("Invalid length " + length + " with " + in.available() + " bytes left");
+        }
+        return length;
+    }
+
+    private static byte[] deflate(byte[] plain, int bodyLength) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(plain, 1, bodyLength);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bodyLength / 2 + 16);
+            out.write(DEFLATED);
+            out.write(bodyLength >>> 24);
+            out.write(bodyLength >>> 16);
+            out.write(bodyLength >>> 8);
+            out.write(bodyLength);
+            byte[] chunk = new byte[512];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(chunk);
+                out.write(chunk, 0, written);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws DataFormatException {
+        if (bytes.length < 5) {
+            throw new DataFormatException("Truncated deflated value header");
+        }
+        int length = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16) | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+        if (length < 0 || (long) length > (long) (bytes.length - 5) * MAX_INFLATION) {
+            throw new DataFormatException("Invalid inflated length " + length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 5, bytes.length - 5);
+            byte[] body = new byte[length];
+            int read = 0;
+            // Runs to the end of the stream: once the body is full only the checksum may be left, so a value cut
+            // inside it (or one longer than its header says) fails too
+            byte[] overflow = new byte[1];
+            while (!inflater.finished()) {
+                int n = read < length ? inflater.inflate(body, read, length - read) : inflater.inflate(overflow);
+                if (read == length && n > 0) {
+                    throw new DataFormatException("Deflated value longer than " + length + " bytes");
+                }
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated deflated value");
+                }
+                read += n;
+            }
+            if (read < length) {
+                throw new DataFormatException("Deflated value ended after " + read + " of " + length + " bytes");
+            }
+            return body;
+        } finally {
+            inflater.end();
+        }
+    }
+}
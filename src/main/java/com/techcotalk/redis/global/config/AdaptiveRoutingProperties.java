@@ -0,0 +1,50 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.adaptive")
+public class AdaptiveRoutingProperties {
+
+    public enum ColdTier {
+        GLOBAL, // Redis, shared by every node
+        RDBMS // MySQL, for rooms that are rarely touched at all
+    }
+
+    // Background evaluation. Off, every room stays on the cold tier unless AdaptiveGameService.evaluate() is called
+    private boolean enabled = true;
+
+    // Where rooms live until a node finds them hot enough to keep in its local cache
+    private ColdTier coldTier = ColdTier.GLOBAL;
+
+    // How often access rates are evaluated, owned rooms checkpointed to the cold tier and their leases renewed
+    private Duration evaluationInterval = Duration.ofSeconds(1);
+
+    // Reads + writes per second on this node that make a room hot
+    private double promoteOpsPerSecond = 50;
+
+    // Below this an owned room goes back to the cold tier
+    private double demoteOpsPerSecond = 5;
+
+    // A room written by another node within this window is contended and is not promoted
+    private Duration contentionWindow = Duration.ofSeconds(10);
+
+    // Ownership of a promoted room expires unless renewed, so rooms of a dead node return to the cold tier
+    private Duration ownerLease = Duration.ofSeconds(10);
+
+    // How long a node waits for the owner to hand a room back before failing the command
+    private Duration handoffTimeout = Duration.ofSeconds(2);
+
+    // Rooms a node holds in memory at most, hot rooms beyond it stay on the cold tier
+    private int maxLocalRooms = 10_000;
+
+    // Rooms whose access rates are tracked per node, the least recently used ones are forgotten
+    private long maxTrackedRooms = 100_000;
+}
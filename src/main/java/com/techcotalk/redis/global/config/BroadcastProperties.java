@@ -0,0 +1,23 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.broadcast")
+public class BroadcastProperties {
+
+    // Push room changes to the WebSocket sessions in the room. Off: clients poll GET_ROOM as before
+    private boolean enabled = true;
+
+    // Broadcast threads. A room always maps to the same one, so its pushes keep their order
+    private int lanes = 4;
+
+    // Pushes queued per lane. A DELTA beyond it is folded into one ROOM_UPDATED of its room, a push that
+    // doesn't fit even then is dropped (game.broadcast.dropped)
+    private int queueCapacity = 1000;
+}
@@ -0,0 +1,33 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.change-log")
+public class ChangeLogProperties {
+
+    // Off by default: a Local Cache node starts empty and only learns about rooms from Pub/Sub
+    private boolean enabled = false;
+
+    // Changes are appended to the Redis Stream in pipelined batches at least this often
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    // How often the stream is folded into the compacted snapshot (and trimmed up to it)
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+
+    // Rooms without a change for this long are dropped from the snapshot, a starting node doesn't restore them
+    private Duration snapshotRetention = Duration.ofDays(1);
+
+    // Stream entries / snapshot rooms read per round trip, also the size of a pipelined append
+    private int batchSize = 1000;
+
+    // Bound of the append buffer, changes beyond it are dropped (and counted) while Redis can't keep up
+    private int maxPending = 100_000;
+}
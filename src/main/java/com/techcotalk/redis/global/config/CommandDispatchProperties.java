@@ -0,0 +1,29 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.dispatch")
+public class CommandDispatchProperties {
+
+    // Worker threads running WebSocket commands. Sized for blocking JPA / Redis calls, not for CPU
+    private int threads = 64;
+
+    // Commands a single session may have waiting. Further commands are answered with an error right away
+    private int maxQueuedPerSession = 32;
+
+    // Single commands of the strategies with a non-blocking API (AsyncGameService) don't hold a worker while they
+    // wait on Redis, the response is sent when the command completes. RDBMS and BATCH commands always block a worker
+    private boolean async = true;
+
+    // Outbound messages of a session are buffered while another thread is sending, up to these limits
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+    private int sendBufferSizeLimit = 512 * 1024;
+}
@@ -0,0 +1,20 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.global-cache")
+public class GlobalCacheProperties {
+
+    public enum Layout {
+        STRING, // One JSON value per room: GET, mutate in the JVM, SET the whole room back
+        HASH // One hash per room with a field per user: a single atomic HSET per card selection
+    }
+
+    private Layout layout = Layout.STRING;
+}
@@ -0,0 +1,21 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.hybrid")
+public class HybridCacheProperties {
+
+    // Upper bound of L1 copies kept per node, admission/eviction is decided by Caffeine's W-TinyLFU
+    private long maximumSize = 10_000;
+
+    // L1 copies nobody read for this long are dropped, and their rooms unwatched
+    private Duration expireAfterAccess = Duration.ofMinutes(10);
+}
@@ -0,0 +1,26 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.listener-dispatch")
+public class ListenerDispatchProperties {
+
+    public enum Overflow {
+        BLOCK, // the receiving thread waits for room in the lane, Pub/Sub messages pile up in front of it
+        DROP // the event is dropped and counted (Local Cache recovers deltas through RESYNC, invalidations are lost)
+    }
+
+    // Single-threaded lanes handling received events, a room's events always go to the same lane
+    private int lanes = 8;
+
+    // Events waiting per lane
+    private int queueCapacity = 10_000;
+
+    private Overflow overflow = Overflow.BLOCK;
+}
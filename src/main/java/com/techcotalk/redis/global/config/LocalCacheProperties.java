@@ -0,0 +1,48 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.local-cache")
+public class LocalCacheProperties {
+
+    public enum Storage {
+        HEAP, // rooms are plain Java objects
+        OFF_HEAP // rooms are serialized into direct memory slots, the heap only keeps a small index
+    }
+
+    // Upper bound of rooms kept per node, admission/eviction is decided by Caffeine's W-TinyLFU
+    private long maximumSize = 10_000;
+
+    // Rooms nobody touched for this long are dropped
+    private Duration expireAfterAccess = Duration.ofMinutes(10);
+
+    // Where the rooms live, OFF_HEAP trades a decode per read for a heap the GC doesn't have to walk
+    private Storage storage = Storage.HEAP;
+
+    // OFF_HEAP: bytes per room (header, dummy data and card entries). A room outgrowing its slot moves to the heap
+    private int offHeapSlotSize = 2048;
+
+    // OFF_HEAP: upper bound of direct memory for the slots (also bounded by -XX:MaxDirectMemorySize).
+    // Rooms beyond it are kept on the heap
+    private DataSize offHeapMaxSize = DataSize.ofMegabytes(512);
+
+    // Single-writer mode: every room has one owner node holding a lease in Redis. Other nodes forward their
+    // selections to the owner and keep a replica for reads, so writes of a room never race across nodes
+    private boolean ownership = false;
+
+    // Ownership: the owner renews its leases at a third of this, the rooms of a node that stops renewing
+    // are taken over by the next node writing to them
+    private Duration ownerLease = Duration.ofSeconds(5);
+
+    // Ownership: how long a forwarded selection may take until the owner's delta for it comes back
+    private Duration forwardTimeout = Duration.ofSeconds(2);
+}
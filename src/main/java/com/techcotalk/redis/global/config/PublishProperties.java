@@ -0,0 +1,21 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.publish")
+public class PublishProperties {
+
+    // How long an event may wait for others before it is published. 0 publishes every event right away
+    private Duration window = Duration.ZERO;
+
+    // A channel's buffer is published early once it holds this many events
+    private int maxBatchSize = 100;
+}
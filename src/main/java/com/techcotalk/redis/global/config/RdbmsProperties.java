@@ -0,0 +1,31 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.rdbms")
+public class RdbmsProperties {
+
+    public enum AccessPath {
+        JPA, // findById + save through the entity, Hibernate rewrites the userCards collection
+        UPSERT // one INSERT ... ON DUPLICATE KEY UPDATE per pick, one JOIN query per read
+    }
+
+    private AccessPath accessPath = AccessPath.JPA;
+
+    // Per-node read-through cache in front of getGameRoom, evicted by the INVALIDATE events of the room
+    private boolean cacheEnabled = false;
+
+    // Upper bound of rooms cached per node
+    private long cacheMaximumSize = 10_000;
+
+    // Safety net only, a room is normally evicted by its invalidation long before this
+    private Duration cacheExpireAfterWrite = Duration.ofSeconds(30);
+}
@@ -0,0 +1,23 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.redis")
+public class RedisCodecProperties {
+
+    public enum Codec {
+        JSON, // GenericJackson2JsonRedisSerializer, with @class type metadata
+        BINARY // GameBinaryRedisSerializer, fixed schema without class names
+    }
+
+    private Codec codec = Codec.JSON;
+
+    // BINARY only: bodies larger than this many bytes are deflated, 0 or less turns compression off
+    private int compressionThreshold = 512;
+}
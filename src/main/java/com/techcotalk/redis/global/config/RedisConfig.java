@@ -1,33 +1,68 @@
 package com.techcotalk.redis.global.config;
 
+import com.techcotalk.redis.global.codec.GameBinaryRedisSerializer;
+import com.techcotalk.redis.global.codec.MeteredRedisSerializer;
+import com.techcotalk.redis.service.AdaptiveGameService;
 import com.techcotalk.redis.service.GlobalCacheGameService;
+import com.techcotalk.redis.service.HybridCacheGameService;
 import com.techcotalk.redis.service.LocalCacheGameService;
+import com.techcotalk.redis.service.PubSubDispatcher;
 import com.techcotalk.redis.service.RdbmsGameService;
+import com.techcotalk.redis.service.RoomSubscriptionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
-import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+            RedisCodecProperties codecProperties,
+            MeterRegistry meterRegistry) {
+        RedisSerializer<Object> codec = switch (codecProperties.getCodec()) {
+            case JSON -> new GenericJackson2JsonRedisSerializer();
+            case BINARY -> new GameBinaryRedisSerializer(codecProperties.getCompressionThreshold());
+        };
+        RedisSerializer<Object> valueSerializer = new MeteredRedisSerializer(codec, meterRegistry);
+
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(valueSerializer);
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setHashValueSerializer(valueSerializer);
         return template;
     }
 
+    // Same keys and values as redisTemplate, over Lettuce's non-blocking API (AsyncGameService).
+    // Concurrent commands share one connection and are pipelined on it instead of each holding a thread
+    @Bean
+    @SuppressWarnings("unchecked")
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(ReactiveRedisConnectionFactory connectionFactory,
+            RedisTemplate<String, Object> redisTemplate) {
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(valueSerializer)
+                .key(RedisSerializer.string())
+                .value(valueSerializer)
+                .hashKey(RedisSerializer.string())
+                .hashValue(valueSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+
     @Bean
     public ChannelTopic rdbmsTopic() {
         return new ChannelTopic("rdbms-events");
@@ -43,22 +78,41 @@ public class RedisConfig {
         return new ChannelTopic("local-cache-events");
     }
 
+    // Hand-off requests of AdaptiveGameService, asking the owner of a room to give it back to the cold tier
+    @Bean
+    public ChannelTopic adaptiveTopic() {
+        return new ChannelTopic("adaptive-events");
+    }
+
     @Bean
     public RedisMessageListenerContainer redisMessageListenerContainer(
             RedisConnectionFactory connectionFactory,
             RdbmsGameService rdbmsGameService,
             GlobalCacheGameService globalCacheGameService,
             LocalCacheGameService localCacheGameService,
+            HybridCacheGameService hybridCacheGameService,
+            AdaptiveGameService adaptiveGameService,
+            RoomSubscriptionRegistry roomSubscriptions,
+            PubSubDispatcher dispatcher,
             @Qualifier("rdbmsTopic") ChannelTopic rdbmsTopic,
             @Qualifier("globalCacheTopic") ChannelTopic globalCacheTopic,
-            @Qualifier("localCacheTopic") ChannelTopic localCacheTopic) {
+            @Qualifier("localCacheTopic") ChannelTopic localCacheTopic,
+            @Qualifier("adaptiveTopic") ChannelTopic adaptiveTopic) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
+        // One receive thread instead of a thread per message, the dispatcher fans events out to per-room lanes
+        container.setTaskExecutor(dispatcher.receiveExecutor());
 
         // Register Listeners
-        container.addMessageListener(new MessageListenerAdapter(rdbmsGameService), rdbmsTopic);
-        container.addMessageListener(new MessageListenerAdapter(globalCacheGameService), globalCacheTopic);
-        container.addMessageListener(new MessageListenerAdapter(localCacheGameService), localCacheTopic);
+        // Depending on game.subscription.mode they are attached to the strategy channel right away,
+        // or to the room channels this node takes an interest in later on
+        roomSubscriptions.register(container, rdbmsTopic, dispatcher.listenerFor(rdbmsGameService));
+        roomSubscriptions.register(container, globalCacheTopic, dispatcher.listenerFor(globalCacheGameService));
+        roomSubscriptions.register(container, localCacheTopic, dispatcher.listenerFor(localCacheGameService));
+        // Hybrid shares the Redis store of Global Cache, so it listens for the same invalidations
+        roomSubscriptions.register(container, globalCacheTopic, dispatcher.listenerFor(hybridCacheGameService));
+        // Adaptive serves rooms through the other services' listeners, its own channel only carries hand-offs
+        roomSubscriptions.register(container, adaptiveTopic, dispatcher.listenerFor(adaptiveGameService));
 
         return container;
     }
@@ -0,0 +1,30 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.subscription")
+public class SubscriptionProperties {
+
+    public enum Mode {
+        BROADCAST, // One channel per strategy, every node receives every room's events
+        SHARD, // "<channel>:<shard>", a node subscribes to the shards of the rooms it serves
+        ROOM // "<channel>:<roomId>", a node subscribes to exactly the rooms it serves
+    }
+
+    // Must be the same on every node, publishers and subscribers derive the channel name from it
+    private Mode mode = Mode.BROADCAST;
+
+    private int shards = 64;
+
+    // A channel nobody is interested in any more is only unsubscribed after this long,
+    // so a room that is evicted and loaded again right away doesn't pay for UNSUBSCRIBE + SUBSCRIBE
+    private Duration unsubscribeDelay = Duration.ofSeconds(30);
+}
@@ -0,0 +1,36 @@
+package com.techcotalk.redis.global.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "game.write-behind")
+public class WriteBehindProperties {
+
+    // Off by default: Global Cache and Local Cache keep their original "memory only" behavior
+    private boolean enabled = false;
+
+    // Time trigger: dirty rooms are flushed at least this often
+    private Duration flushInterval = Duration.ofMillis(500);
+
+    // Size trigger: a flush starts as soon as this many rooms are dirty
+    private int batchSize = 500;
+
+    // Bound of the buffer. When it is full a writer of a room not in the buffer yet wakes the flusher and
+    // waits for space (backpressure)
+    private int maxPendingRooms = 10_000;
+
+    // How long such a writer waits before its change is dropped (game.write-behind.dropped)
+    private Duration backpressureTimeout = Duration.ofSeconds(1);
+
+    // Failed flushes of a room before its changes are given up (game.write-behind.dropped{reason="dead-letter"}).
+    // Scheduled flushes back off from flush-interval up to 30s between failures, so an outage of MySQL is ridden out
+    // for a while before anything is dropped
+    private int maxAttempts = 10;
+}
@@ -0,0 +1,357 @@
+package com.techcotalk.redis.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.techcotalk.redis.domain.dto.GameCommand;
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.codec.GameBinaryRedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Wire format of the WebSocket protocol.
+//
+// JSON (text frames): commands are read with a streaming parser straight into a GameCommand, no JsonNode tree.
+// Constant responses are encoded once, the others from pre-encoded prefixes.
+//
+// Binary sub-protocol "game.binary.v1" (binary frames), str = [length:2][UTF-8 bytes], length unsigned (< 64 KiB):
+//   command  [command:1][strategy:str][roomId:str]                  1 = CREATE_ROOM, 2 = SELECT_CARD, 3 = GET_ROOM
+//            ...[userId:str][cardValue:str]                         SELECT_CARD only
+//            [4][count:2][command]...                               BATCH of CREATE_ROOM / SELECT_CARD commands
+//   response [1][status:1][roomId:str]                              status 1 = CREATED, 2 = SELECTED
+//            [2][room in the GameBinaryRedisSerializer format]      empty when the room doesn't exist
+//            [3][error:str]
+//            [4][count:2]                                           BATCH applied
+//   push     [5][roomId:str][userId:str][cardValue:str]             CARD_SELECTED
+//            [6][roomId:str][room in the GameBinaryRedisSerializer format]   ROOM_UPDATED
+// Pushes (RoomBroadcaster) use the format the session negotiated in the handshake, responses the request's.
+//
+// A JSON BATCH is {"command":"BATCH","strategy":...,"commands":[...]}, commands without a strategy use the batch's.
+@Component
+public class GameCommandCodec {
+
+    public static final String BINARY_PROTOCOL = "game.binary.v1";
+
+    private static final byte CMD_CREATE_ROOM = 1;
+    private static final byte CMD_SELECT_CARD = 2;
+    private static final byte CMD_GET_ROOM = 3;
+    private static final byte CMD_BATCH = 4;
+
+    private static final byte RESPONSE_STATUS = 1;
+    private static final byte RESPONSE_ROOM = 2;
+    private static final byte RESPONSE_ERROR = 3;
+    private static final byte RESPONSE_BATCH = 4;
+    private static final byte PUSH_CARD_SELECTED = 5;
+    private static final byte PUSH_ROOM_UPDATED = 6;
+
+    private static final byte STATUS_CREATED = 1;
+    private static final byte STATUS_SELECTED = 2;
+
+    // A str length and a BATCH count are unsigned shorts on the wire
+    private static final int MAX_LENGTH = 0xFFFF;
+
+    private static final String CREATED_PREFIX = "{\"status\":\"CREATED\", \"roomId\":\"";
+    private static final String SELECTED_PREFIX = "{\"status\":\"SELECTED\", \"roomId\":\"";
+    private static final String STATUS_SUFFIX = "\"}";
+    private static final String BATCH_PREFIX = "{\"status\":\"BATCH_APPLIED\", \"count\":";
+
+    private static final String UNKNOWN_COMMAND = "Unknown command";
+    private static final String TOO_MANY_PENDING = "Too many pending commands";
+
+    // Text messages are immutable and shared by every session. A binary message's ByteBuffer is consumed
+    // by sending it, so only the encoded bytes are shared and each send gets its own (cheap) wrapper.
+    private static final TextMessage UNKNOWN_COMMAND_TEXT = errorText(UNKNOWN_COMMAND);
+    private static final TextMessage TOO_MANY_PENDING_TEXT = errorText(TOO_MANY_PENDING);
+    private static final byte[] UNKNOWN_COMMAND_BINARY = errorBinary(UNKNOWN_COMMAND);
+    private static final byte[] TOO_MANY_PENDING_BINARY = errorBinary(TOO_MANY_PENDING);
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final GameBinaryRedisSerializer roomSerializer = new GameBinaryRedisSerializer(0);
+
+    public GameCommandCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public GameCommand readJson(String payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            return validate(readJsonCommand(parser.nextToken(), parser), null);
+        }
+    }
+
+    public GameCommand readBinary(ByteBuffer payload) {
+        return validate(readBinaryCommand(payload, true), null);
+    }
+
+    public WebSocketMessage<?> created(String roomId, boolean binary) {
+        return binary ? statusBinary(STATUS_CREATED, roomId) : statusText(CREATED_PREFIX, roomId);
+    }
+
+    public WebSocketMessage<?> selected(String roomId, boolean binary) {
+        return binary ? statusBinary(STATUS_SELECTED, roomId) : statusText(SELECTED_PREFIX, roomId);
+    }
+
+    // The single acknowledgement of a whole BATCH
+    public WebSocketMessage<?> batchApplied(int count, boolean binary) {
+        if (binary) {
+            return new BinaryMessage(ByteBuffer.allocate(1 + 2).put(RESPONSE_BATCH).putShort(length(count)).array());
+        }
+        return new TextMessage(BATCH_PREFIX + count + "}");
+    }
+
+    public WebSocketMessage<?> room(GameRoom room, boolean binary) throws IOException {
+        if (!binary) {
+            return new TextMessage(objectMapper.writeValueAsString(room));
+        }
+        byte[] encoded = room == null ? new byte[0] : roomSerializer.serialize(room);
+        return new BinaryMessage(ByteBuffer.allocate(1 + encoded.length).put(RESPONSE_ROOM).put(encoded).array());
+    }
+
+    // Whether pushes to the session go out as binary frames
+    public static boolean isBinary(WebSocketSession session) {
+        return BINARY_PROTOCOL.equals(session.getAcceptedProtocol());
+    }
+
+    public TextMessage cardSelectedText(String roomId, String userId, String cardValue) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode()
+                .put("type", "CARD_SELECTED")
+                .put("roomId", roomId)
+                .put("userId", userId)
+                .put("cardValue", cardValue);
+        return new TextMessage(objectMapper.writeValueAsString(node));
+    }
+
+    // Shared by every binary session of the room, wrapped in a BinaryMessage per send
+    public byte[] cardSelectedBinary(String roomId, String userId, String cardValue) {
+        byte[] room = roomId.getBytes(StandardCharsets.UTF_8);
+        byte[] user = userId.getBytes(StandardCharsets.UTF_8);
+        byte[] card = cardValue.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + 2 + room.length + 2 + user.length + 2 + card.length)
+                .put(PUSH_CARD_SELECTED)
+                .putShort(length(room.length)).put(room)
+                .putShort(length(user.length)).put(user)
+                .putShort(length(card.length)).put(card)
+                .array();
+    }
+
+    public TextMessage roomUpdatedText(GameRoom room) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode()
+                .put("type", "ROOM_UPDATED")
+                .put("roomId", room.getRoomId());
+        node.set("room", objectMapper.valueToTree(room));
+        return new TextMessage(objectMapper.writeValueAsString(node));
+    }
+
+    public byte[] roomUpdatedBinary(GameRoom room) {
+        byte[] id = room.getRoomId().getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = roomSerializer.serialize(room);
+        return ByteBuffer.allocate(1 + 2 + id.length + encoded.length)
+                .put(PUSH_ROOM_UPDATED)
+                .putShort(length(id.length)).put(id)
+                .put(encoded)
+                .array();
+    }
+
+    public WebSocketMessage<?> unknownCommand(boolean binary) {
+        return binary ? new BinaryMessage(UNKNOWN_COMMAND_BINARY) : UNKNOWN_COMMAND_TEXT;
+    }
+
+    public WebSocketMessage<?> tooManyPending(boolean binary) {
+        return binary ? new BinaryMessage(TOO_MANY_PENDING_BINARY) : TOO_MANY_PENDING_TEXT;
+    }
+
+    private static GameCommand readJsonCommand(JsonToken start, JsonParser parser) throws IOException {
+        if (start != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+        GameCommand command = new GameCommand();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "command" -> command.setCommand(parser.getValueAsString());
+                case "strategy" -> command.setStrategy(parser.getValueAsString());
+                case "roomId" -> command.setRoomId(parser.getValueAsString());
+                case "userId" -> command.setUserId(parser.getValueAsString());
+                case "cardValue" -> command.setCardValue(parser.getValueAsString());
+                case "commands" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        throw new JsonParseException(parser, "Expected an array of commands");
+                    }
+                    List<GameCommand> commands = new ArrayList<>();
+                    JsonToken next;
+                    while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        commands.add(readJsonCommand(next, parser));
+                    }
+                    command.setCommands(commands);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return command;
+    }
+
+    private static GameCommand readBinaryCommand(ByteBuffer payload, boolean allowBatch) {
+        GameCommand command = new GameCommand();
+        byte code = payload.get();
+        if (code == CMD_BATCH && allowBatch) {
+            command.setCommand(GameCommand.BATCH);
+            int count = Short.toUnsignedInt(payload.getShort());
+            List<GameCommand> commands = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                commands.add(readBinaryCommand(payload, false));
+            }
+            command.setCommands(commands);
+            return command;
+        }
+
+        command.setCommand(switch (code) {
+            case CMD_CREATE_ROOM -> GameCommand.CREATE_ROOM;
+            case CMD_SELECT_CARD -> GameCommand.SELECT_CARD;
+            case CMD_GET_ROOM -> GameCommand.GET_ROOM;
+            default -> "UNKNOWN_" + code;
+        });
+        command.setStrategy(readString(payload));
+        command.setRoomId(readString(payload));
+        if (code == CMD_SELECT_CARD) {
+            command.setUserId(readString(payload));
+            command.setCardValue(readString(payload));
+        }
+        return command;
+    }
+
+    // Same contract as the old JsonNode lookups, which failed on a missing field
+    private static GameCommand validate(GameCommand command, GameCommand batch) {
+        require(command.getCommand(), "command");
+        if (batch != null && command.getStrategy() == null) {
+            command.setStrategy(batch.getStrategy());
+        }
+
+        if (GameCommand.BATCH.equals(command.getCommand())) {
+            if (batch != null) {
+                throw new IllegalArgumentException("Nested BATCH");
+            }
+            if (command.getCommands() == null || command.getCommands().isEmpty()) {
+                throw new IllegalArgumentException("Missing field: commands");
+            }
+            for (GameCommand inner : command.getCommands()) {
+                validate(inner, command);
+                if (!GameCommand.CREATE_ROOM.equals(inner.getCommand())
+                        && !GameCommand.SELECT_CARD.equals(inner.getCommand())) {
+                    throw new IllegalArgumentException("Not allowed in a BATCH: " + inner.getCommand());
+                }
+            }
+            return command;
+        }
+
+        require(command.getStrategy(), "strategy");
+        require(command.getRoomId(), "roomId");
+        if (GameCommand.SELECT_CARD.equals(command.getCommand())) {
+            require(command.getUserId(), "userId");
+            require(command.getCardValue(), "cardValue");
+        }
+        return command;
+    }
+
+    // Ids end up in binary pushes to every session of the room, whichever format the command came in, so one
+    // that doesn't fit a str is rejected here rather than failing each push
+    private static void require(String value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        if (value.length() > MAX_LENGTH / 3 && utf8Length(value) > MAX_LENGTH) {
+            throw new IllegalArgumentException("Field too long: " + field);
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // A surrogate pair takes 4 bytes, 2 per char
+            length += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+        }
+        return length;
+    }
+
+    // The (short) cast alone would silently wrap anything over 64 KiB and corrupt the rest of the frame
+    private static short length(int length) {
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Length " + length + " does not fit the binary protocol");
+        }
+        return (short) length;
+    }
+
+    private static TextMessage statusText(String prefix, String roomId) {
+        StringBuilder json = new StringBuilder(prefix.length() + roomId.length() + STATUS_SUFFIX.length())
+                .append(prefix);
+        appendEscaped(json, roomId);
+        return new TextMessage(json.append(STATUS_SUFFIX));
+    }
+
+    private static BinaryMessage statusBinary(byte status, String roomId) {
+        byte[] id = roomId.getBytes(StandardCharsets.UTF_8);
+        return new BinaryMessage(ByteBuffer.allocate(2 + 2 + id.length)
+                .put(RESPONSE_STATUS)
+                .put(status)
+                .putShort(length(id.length))
+                .put(id)
+                .array());
+    }
+
+    private static TextMessage errorText(String error) {
+        return new TextMessage("{\"error\":\"" + error + "\"}");
+    }
+
+    private static byte[] errorBinary(String error) {
+        byte[] message = error.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + 2 + message.length)
+                .put(RESPONSE_ERROR)
+                .putShort(length(message.length))
+                .put(message)
+                .array();
+    }
+
+    // Room ids are plain in practice, only pay for the encoder when something needs escaping
+    private static void appendEscaped(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                json.append(JsonStringEncoder.getInstance().quoteAsString(value));
+                return;
+            }
+        }
+        json.append(value);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = Short.toUnsignedInt(payload.getShort());
+        if (length > payload.remaining()) {
+            // The array read below would otherwise run past the frame into whatever follows in the buffer
+            throw new IllegalArgumentException("Truncated string");
+        }
+        if (payload.hasArray()) {
+            String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length,
+                    StandardCharsets.UTF_8);
+            payload.position(payload.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,60 +1,288 @@
 package com.techcotalk.redis.handler;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techcotalk.redis.domain.dto.CardSelection;
+import com.techcotalk.redis.domain.dto.GameCommand;
 import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.CommandDispatchProperties;
+import com.techcotalk.redis.service.AdaptiveGameService;
+import com.techcotalk.redis.service.AsyncGameService;
 import com.techcotalk.redis.service.GameService;
 import com.techcotalk.redis.service.GlobalCacheGameService;
+import com.techcotalk.redis.service.HybridCacheGameService;
 import com.techcotalk.redis.service.LocalCacheGameService;
 import com.techcotalk.redis.service.RdbmsGameService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class GameWebSocketHandler extends TextWebSocketHandler {
+public class GameWebSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
 
     private final RdbmsGameService rdbmsGameService;
     private final GlobalCacheGameService globalCacheGameService;
     private final LocalCacheGameService localCacheGameService;
-    private final ObjectMapper objectMapper;
+    private final HybridCacheGameService hybridCacheGameService;
+    private final AdaptiveGameService adaptiveGameService;
+    private final GameCommandCodec commandCodec;
+    private final SessionCommandDispatcher commandDispatcher;
+    private final CommandDispatchProperties dispatchProperties;
+    private final RoomSessionRegistry roomSessions;
+    private final MeterRegistry meterRegistry;
+
+    // Session attribute: thread-safe view of the session for sending
+    private static final String SENDER = "sender";
+
+    // Tag values are limited to these, whatever clients send
+    private static final Set<String> COMMANDS = Set.of(GameCommand.CREATE_ROOM, GameCommand.SELECT_CARD,
+            GameCommand.GET_ROOM, GameCommand.BATCH);
+    private static final Set<String> STRATEGIES = Set.of("rdbms", "global", "local", "hybrid", "adaptive");
+    private static final Set<String> SINGLE_COMMANDS = Set.of(GameCommand.CREATE_ROOM, GameCommand.SELECT_CARD,
+            GameCommand.GET_ROOM);
+
+    // "command/strategy/outcome" -> timer
+    private final Map<String, Timer> commandTimers = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Responses are sent from worker threads and pushes from the broadcaster, the decorator serializes
+        // concurrent sends and buffers them while another thread is sending
+        session.getAttributes().put(SENDER, new ConcurrentWebSocketSessionDecorator(session,
+                (int) dispatchProperties.getSendTimeLimit().toMillis(), dispatchProperties.getSendBufferSizeLimit()));
+    }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        JsonNode jsonNode = objectMapper.readTree(message.getPayload());
-        String command = jsonNode.get("command").asText();
-        String strategy = jsonNode.get("strategy").asText();
-        String roomId = jsonNode.get("roomId").asText();
-
-        GameService service = getService(strategy);
-
-        if ("CREATE_ROOM".equals(command)) {
-            service.createRoom(roomId);
-            session.sendMessage(new TextMessage("{\"status\":\"CREATED\", \"roomId\":\"" + roomId + "\"}"));
-        } else if ("SELECT_CARD".equals(command)) {
-            String userId = jsonNode.get("userId").asText();
-            String cardValue = jsonNode.get("cardValue").asText();
-            service.selectCard(roomId, userId, cardValue);
-            session.sendMessage(new TextMessage("{\"status\":\"SELECTED\", \"roomId\":\"" + roomId + "\"}"));
-        } else if ("GET_ROOM".equals(command)) {
-            GameRoom room = service.getGameRoom(roomId);
-            String payload = objectMapper.writeValueAsString(room);
-            session.sendMessage(new TextMessage(payload));
-        } else {
-            session.sendMessage(new TextMessage("{\"error\":\"Unknown command\"}"));
+        dispatch(session, commandCodec.readJson(message.getPayload()), false);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        dispatch(session, commandCodec.readBinary(message.getPayload()), true);
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(GameCommandCodec.BINARY_PROTOCOL);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        // The rooms this session was playing in no longer need its pushes or this node's subscription.
+        // Runs behind the command in progress, which may still be joining a room.
+        commandDispatcher.close(session, () -> roomSessions.leaveAll(session, sender(session)));
+    }
+
+    // Responses use the format of the frame the command came in
+    private void dispatch(WebSocketSession session, GameCommand command, boolean binary) throws IOException {
+        GameService service = asyncService(command);
+        boolean accepted = service != null
+                ? commandDispatcher.submitAsync(session, () -> executeAsync(session, service, command, binary))
+                // The command itself may block on MySQL or Redis, so it leaves the WebSocket I/O thread
+                : commandDispatcher.submit(session, () -> execute(session, command, binary));
+        if (!accepted) {
+            sender(session).sendMessage(commandCodec.tooManyPending(binary));
         }
     }
 
+    // The strategy's service when the command can take the non-blocking path, null otherwise
+    private GameService asyncService(GameCommand command) {
+        if (!dispatchProperties.isAsync() || !SINGLE_COMMANDS.contains(command.getCommand())
+                || command.getStrategy() == null || !STRATEGIES.contains(command.getStrategy().toLowerCase())) {
+            return null;
+        }
+        GameService service = getService(command.getStrategy());
+        return service instanceof AsyncGameService ? service : null;
+    }
+
+    private void execute(WebSocketSession session, GameCommand command, boolean binary) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            handleCommand(session, sender(session), command, binary);
+        } catch (Exception e) {
+            outcome = "error";
+            fail(session, e);
+        } finally {
+            // Service call and response send, the time spent waiting for a worker is game.dispatch.wait
+            commandTimer(command, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // The worker only starts the command, the returned stage completes once its response went out
+    private CompletableFuture<Void> executeAsync(WebSocketSession session, GameService service, GameCommand command,
+            boolean binary) {
+        long start = System.nanoTime();
+        WebSocketSession sender = sender(session);
+        AsyncGameService asyncService = (AsyncGameService) service;
+        String roomId = command.getRoomId();
+
+        CompletableFuture<?> result;
+        try {
+            // Joining the room subscribes this node to its events and this session to its pushes
+            roomSessions.join(session, sender, service, roomId);
+            result = switch (command.getCommand()) {
+                case GameCommand.CREATE_ROOM -> asyncService.createRoomAsync(roomId);
+                case GameCommand.SELECT_CARD -> asyncService.selectCardAsync(roomId, command.getUserId(),
+                        command.getCardValue());
+                default -> asyncService.getGameRoomAsync(roomId);
+            };
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        // The future completes on a Redis I/O thread, encoding and sending the response (which may block) is
+        // done by a worker
+        return result.handleAsync((value, error) -> {
+            Throwable failure = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (failure == null) {
+                try {
+                    sender.sendMessage(asyncResponse(command, value, binary));
+                } catch (Exception e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                fail(session, failure);
+            }
+            commandTimer(command, failure == null ? "success" : "error")
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return null;
+        }, commandDispatcher.workers());
+    }
+
+    private WebSocketMessage<?> asyncResponse(GameCommand command, Object value, boolean binary) throws IOException {
+        return switch (command.getCommand()) {
+            case GameCommand.CREATE_ROOM -> commandCodec.created(command.getRoomId(), binary);
+            case GameCommand.SELECT_CARD -> commandCodec.selected(command.getRoomId(), binary);
+            default -> commandCodec.room((GameRoom) value, binary);
+        };
+    }
+
+    // Same outcome as an exception thrown on the I/O thread
+    private void fail(WebSocketSession session, Throwable error) {
+        log.error("Error handling command for session {}", session.getId(), error);
+        try {
+            session.close(CloseStatus.SERVER_ERROR);
+        } catch (IOException closeError) {
+            log.debug("Error closing session {}", session.getId(), closeError);
+        }
+    }
+
+    private Timer commandTimer(GameCommand command, String outcome) {
+        String name = COMMANDS.contains(command.getCommand()) ? command.getCommand() : "UNKNOWN";
+        String strategy = command.getStrategy() == null ? "none"
+                : STRATEGIES.contains(command.getStrategy().toLowerCase()) ? command.getStrategy().toLowerCase()
+                : "unknown";
+        return commandTimers.computeIfAbsent(name + "/" + strategy + "/" + outcome, key -> Timer.builder("game.command")
+                .tag("command", name)
+                .tag("strategy", strategy)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private void handleCommand(WebSocketSession session, WebSocketSession sender, GameCommand command, boolean binary)
+            throws Exception {
+        if (GameCommand.BATCH.equals(command.getCommand())) {
+            handleBatch(session, sender, command.getCommands());
+            sender.sendMessage(commandCodec.batchApplied(command.getCommands().size(), binary));
+            return;
+        }
+
+        // Checked before joining: an unknown command must not subscribe the node or the session to its room
+        if (!SINGLE_COMMANDS.contains(command.getCommand())) {
+            sender.sendMessage(commandCodec.unknownCommand(binary));
+            return;
+        }
+
+        String roomId = command.getRoomId();
+        GameService service = getService(command.getStrategy());
+        // Joining the room subscribes this node to its events and this session to its pushes
+        roomSessions.join(session, sender, service, roomId);
+
+        switch (command.getCommand()) {
+            case GameCommand.CREATE_ROOM -> {
+                service.createRoom(roomId);
+                sender.sendMessage(commandCodec.created(roomId, binary));
+            }
+            case GameCommand.SELECT_CARD -> {
+                service.selectCard(roomId, command.getUserId(), command.getCardValue());
+                sender.sendMessage(commandCodec.selected(roomId, binary));
+            }
+            default -> sender.sendMessage(commandCodec.room(service.getGameRoom(roomId), binary));
+        }
+    }
+
+    // Consecutive commands of the same kind for the same strategy form a run, applied with one batch call.
+    // Runs are applied in order, so e.g. CREATE_ROOM followed by SELECT_CARDs of that room works.
+    private void handleBatch(WebSocketSession session, WebSocketSession sender, List<GameCommand> commands) {
+        int start = 0;
+        while (start < commands.size()) {
+            GameCommand first = commands.get(start);
+            GameService service = getService(first.getStrategy());
+            int end = start + 1;
+            while (end < commands.size()
+                    && first.getCommand().equals(commands.get(end).getCommand())
+                    && service == getService(commands.get(end).getStrategy())) {
+                end++;
+            }
+
+            List<GameCommand> run = commands.subList(start, end);
+            for (GameCommand command : run) {
+                roomSessions.join(session, sender, service, command.getRoomId());
+            }
+            if (GameCommand.CREATE_ROOM.equals(first.getCommand())) {
+                List<String> roomIds = new ArrayList<>(run.size());
+                for (GameCommand command : run) {
+                    roomIds.add(command.getRoomId());
+                }
+                service.createRooms(roomIds);
+            } else {
+                List<CardSelection> selections = new ArrayList<>(run.size());
+                for (GameCommand command : run) {
+                    selections.add(new CardSelection(command.getRoomId(), command.getUserId(), command.getCardValue()));
+                }
+                service.selectCards(selections);
+            }
+            start = end;
+        }
+    }
+
+    private WebSocketSession sender(WebSocketSession session) {
+        WebSocketSession sender = (WebSocketSession) session.getAttributes().get(SENDER);
+        return sender != null ? sender : session;
+    }
+
     private GameService getService(String strategy) {
         return switch (strategy.toLowerCase()) {
             case "rdbms" -> rdbmsGameService;
             case "global" -> globalCacheGameService;
             case "local" -> localCacheGameService;
+            case "hybrid" -> hybridCacheGameService;
+            case "adaptive" -> adaptiveGameService;
             default -> throw new IllegalArgumentException("Unknown strategy: " + strategy);
         };
     }
@@ -0,0 +1,212 @@
+package com.techcotalk.redis.handler;
+
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.BroadcastProperties;
+import com.techcotalk.redis.service.RoomChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Server push: fans room changes out to the WebSocket sessions playing in the room, so clients no longer
+// poll GET_ROOM to see other players' picks.
+// - DELTA changes are pushed as is (CARD_SELECTED)
+// - anything else (invalidations, snapshots) pushes the whole room (ROOM_UPDATED), read once
+//   per burst of changes no matter how many invalidations arrive meanwhile
+// Each session gets the format it negotiated (JSON text or game.binary.v1), every message is encoded at most once
+// per format, and each session sends through its buffered, size / time limited decorator, so a slow client
+// neither blocks the Pub/Sub listener nor holds up the other sessions for long.
+// Lanes are bounded: a DELTA that doesn't fit any more is folded into one ROOM_UPDATED of its room, which carries
+// the state of every delta it replaces. Only when not even that fits is the push dropped.
+@Slf4j
+@Component
+public class RoomBroadcaster {
+
+    private final RoomSessionRegistry roomSessions;
+    private final GameCommandCodec commandCodec;
+    private final boolean enabled;
+
+    private final ThreadPoolExecutor[] lanes;
+    private final Set<RoomSessionRegistry.Room> refreshPending = ConcurrentHashMap.newKeySet();
+
+    private final Counter messageCounter;
+    private final Counter sendCounter;
+    private final Counter failureCounter;
+    private final Counter coalescedCounter;
+    private final Counter droppedCounter;
+
+    public RoomBroadcaster(RoomSessionRegistry roomSessions,
+            GameCommandCodec commandCodec,
+            BroadcastProperties properties,
+            MeterRegistry meterRegistry) {
+        this.roomSessions = roomSessions;
+        this.commandCodec = commandCodec;
+        this.enabled = properties.isEnabled();
+
+        this.lanes = new ThreadPoolExecutor[properties.getLanes()];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "room-broadcast-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(properties.getQueueCapacity()), r -> {
+                        Thread thread = new Thread(r, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        this.messageCounter = meterRegistry.counter("game.broadcast.messages");
+        this.sendCounter = meterRegistry.counter("game.broadcast.sends");
+        this.failureCounter = meterRegistry.counter("game.broadcast.failures");
+        this.coalescedCounter = meterRegistry.counter("game.broadcast.coalesced");
+        this.droppedCounter = meterRegistry.counter("game.broadcast.dropped");
+    }
+
+    @EventListener
+    public void onRoomChanged(RoomChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        RoomSessionRegistry.Room room = roomSessions.find(event.source(), event.roomId());
+        if (room == null) {
+            return; // nobody on this node is in the room
+        }
+
+        GameEvent change = event.change();
+        ThreadPoolExecutor lane = lanes[Math.floorMod(event.roomId().hashCode(), lanes.length)];
+        if (change != null && change.getType() == GameEvent.Type.DELTA) {
+            try {
+                lane.execute(() -> cardSelected(room, change));
+                return;
+            } catch (RejectedExecutionException e) {
+                if (lane.isShutdown()) {
+                    return;
+                }
+                coalescedCounter.increment();
+            }
+        }
+        refresh(room, lane);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdownNow();
+        }
+    }
+
+    private void refresh(RoomSessionRegistry.Room room, ThreadPoolExecutor lane) {
+        if (!refreshPending.add(room)) {
+            return; // a read of the room is queued already and will see this change
+        }
+        try {
+            lane.execute(() -> {
+                // Changes arriving from here on schedule another read
+                refreshPending.remove(room);
+                try {
+                    GameRoom current = room.service().getGameRoom(room.roomId());
+                    if (current != null) {
+                        roomUpdated(room, current);
+                    }
+                } catch (RuntimeException e) {
+                    failureCounter.increment();
+                    log.warn("[Broadcast] Could not read room {} for push", room.roomId(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshPending.remove(room);
+            if (!lane.isShutdown()) {
+                droppedCounter.increment();
+                log.debug("[Broadcast] Lane is full, dropping the push of room {}", room.roomId());
+            }
+        }
+    }
+
+    private void cardSelected(RoomSessionRegistry.Room room, GameEvent change) {
+        broadcast(room, new Push() {
+            @Override
+            TextMessage encodeText() throws IOException {
+                return commandCodec.cardSelectedText(change.getRoomId(), change.getUserId(), change.getCardValue());
+            }
+
+            @Override
+            byte[] encodeBinary() {
+                return commandCodec.cardSelectedBinary(change.getRoomId(), change.getUserId(), change.getCardValue());
+            }
+        });
+    }
+
+    private void roomUpdated(RoomSessionRegistry.Room room, GameRoom current) {
+        broadcast(room, new Push() {
+            @Override
+            TextMessage encodeText() throws IOException {
+                return commandCodec.roomUpdatedText(current);
+            }
+
+            @Override
+            byte[] encodeBinary() {
+                return commandCodec.roomUpdatedBinary(current);
+            }
+        });
+    }
+
+    private void broadcast(RoomSessionRegistry.Room room, Push push) {
+        messageCounter.increment();
+        for (WebSocketSession session : room.sessions()) {
+            if (!session.isOpen()) {
+                continue;
+            }
+            try {
+                if (GameCommandCodec.isBinary(session)) {
+                    // The buffer is consumed by the send, so each session gets its own wrapper of the shared bytes
+                    session.sendMessage(new BinaryMessage(push.binary()));
+                } else {
+                    session.sendMessage(push.text());
+                }
+                sendCounter.increment();
+            } catch (Exception e) {
+                // The decorator closes sessions that exceed their limits, the others just miss this push
+                failureCounter.increment();
+                log.debug("[Broadcast] Could not push room {} to session {}", room.roomId(), session.getId(), e);
+            }
+        }
+    }
+
+    // One change in both formats, each encoded on first use only. Used by a single lane thread
+    private abstract static class Push {
+        private TextMessage text;
+        private byte[] binary;
+
+        abstract TextMessage encodeText() throws IOException;
+
+        abstract byte[] encodeBinary();
+
+        TextMessage text() throws IOException {
+            if (text == null) {
+                text = encodeText();
+            }
+            return text;
+        }
+
+        byte[] binary() {
+            if (binary == null) {
+                binary = encodeBinary();
+            }
+            return binary;
+        }
+    }
+}
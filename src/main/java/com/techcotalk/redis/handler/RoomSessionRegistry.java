@@ -0,0 +1,97 @@
+package com.techcotalk.redis.handler;
+
+import com.techcotalk.redis.service.GameService;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// room -> WebSocket sessions on this node that are playing in it.
+// A session joins a room with its first command for it and leaves all its rooms when it closes.
+// Joining keeps the strategy subscribed to the room's events (GameService.watchRoom).
+@Component
+public class RoomSessionRegistry {
+
+    // Session attribute: rooms the session has joined
+    private static final String JOINED_ROOMS = "joinedRooms";
+
+    private final Map<RoomKey, Room> rooms = new ConcurrentHashMap<>();
+
+    // Returns true if the session wasn't in the room yet
+    public boolean join(WebSocketSession session, WebSocketSession sender, GameService service, String roomId) {
+        RoomKey key = new RoomKey(target(service), roomId);
+        if (!joinedRooms(session).add(key)) {
+            return false;
+        }
+
+        rooms.compute(key, (k, room) -> {
+            Room joined = room != null ? room : new Room(service, roomId);
+            joined.sessions.add(sender);
+            return joined;
+        });
+        service.watchRoom(roomId);
+        return true;
+    }
+
+    public void leaveAll(WebSocketSession session, WebSocketSession sender) {
+        Set<RoomKey> joined = joinedRooms(session);
+        for (RoomKey key : joined) {
+            Room left = rooms.get(key);
+            rooms.computeIfPresent(key, (k, room) -> {
+                room.sessions.remove(sender);
+                return room.sessions.isEmpty() ? null : room;
+            });
+            if (left != null) {
+                left.service.unwatchRoom(key.roomId());
+            }
+        }
+        joined.clear();
+    }
+
+    // null when no session on this node is in the room
+    public Room find(GameService service, String roomId) {
+        return rooms.get(new RoomKey(target(service), roomId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<RoomKey> joinedRooms(WebSocketSession session) {
+        return (Set<RoomKey>) session.getAttributes()
+                .computeIfAbsent(JOINED_ROOMS, key -> ConcurrentHashMap.<RoomKey>newKeySet());
+    }
+
+    // Services raise events with "this", the handler holds Spring's proxy (e.g. @Transactional): key by the target
+    private static Object target(GameService service) {
+        Object target = AopProxyUtils.getSingletonTarget(service);
+        return target != null ? target : service;
+    }
+
+    private record RoomKey(Object service, String roomId) {
+    }
+
+    public static final class Room {
+        // The service as the handler sees it, so reads go through its proxy
+        private final GameService service;
+        private final String roomId;
+        private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+
+        private Room(GameService service, String roomId) {
+            this.service = service;
+            this.roomId = roomId;
+        }
+
+        public GameService service() {
+            return service;
+        }
+
+        public String roomId() {
+            return roomId;
+        }
+
+        public Set<WebSocketSession> sessions() {
+            return sessions;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.techcotalk.redis.handler;
+
+import com.techcotalk.redis.global.config.CommandDispatchProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Runs WebSocket commands on a worker pool instead of the container's I/O threads, so a slow MySQL or
+// Redis call only holds up the session that issued it.
+// Commands of one session still run one at a time and in arrival order, and each session may only have
+// a bounded number of commands waiting. An asynchronous command gives its worker back while its I/O is in flight,
+// the session's next command starts once it completes.
+@Slf4j
+@Component
+public class SessionCommandDispatcher {
+
+    private final ThreadPoolExecutor executor;
+    private final int maxQueuedPerSession;
+
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Map<String, SessionQueue> queues = new ConcurrentHashMap<>();
+
+    public SessionCommandDispatcher(CommandDispatchProperties properties, MeterRegistry meterRegistry) {
+        this.maxQueuedPerSession = properties.getMaxQueuedPerSession();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // The pool queue holds at most one drain task per session, the per-session queues are the bounded ones
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "game-command-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.waitTimer = Timer.builder("game.dispatch.wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = meterRegistry.counter("game.dispatch.rejected");
+        meterRegistry.gauge("game.dispatch.queued", Tags.empty(), queued);
+        meterRegistry.gauge("game.dispatch.active", Tags.empty(), executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    // Returns false, without queueing, when the session already has too many commands waiting
+    public boolean submit(WebSocketSession session, Runnable command) {
+        return submitAsync(session, () -> {
+            command.run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    // Same, for a command that only starts its work: the session's queue waits for the returned stage
+    public boolean submitAsync(WebSocketSession session, Supplier<? extends CompletionStage<?>> command) {
+        return queues.computeIfAbsent(session.getId(), SessionQueue::new).offer(command);
+    }
+
+    // The worker pool, for the part of an asynchronous command (e.g. sending its response) that may block
+    public Executor workers() {
+        return executor;
+    }
+
+    // Drops the commands the session still had waiting and runs cleanup after the one in progress, if any
+    public void close(WebSocketSession session, Runnable cleanup) {
+        SessionQueue queue = queues.remove(session.getId());
+        if (queue == null) {
+            cleanup.run();
+            return;
+        }
+        queue.close(cleanup);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private record Pending(Supplier<? extends CompletionStage<?>> command, long enqueuedAt) {
+    }
+
+    private class SessionQueue implements Runnable {
+        private final String sessionId;
+        private final Deque<Pending> pending = new ArrayDeque<>();
+        private boolean running;
+        private boolean closed;
+
+        private SessionQueue(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        private synchronized boolean offer(Supplier<? extends CompletionStage<?>> command) {
+            if (closed) {
+                return true; // the session is gone, nobody is waiting for an answer
+            }
+            if (pending.size() >= maxQueuedPerSession) {
+                rejectedCounter.increment();
+                return false;
+            }
+            pending.add(new Pending(command, System.nanoTime()));
+            queued.incrementAndGet();
+            schedule();
+            return true;
+        }
+
+        private synchronized void close(Runnable cleanup) {
+            closed = true;
+            queued.addAndGet(-pending.size());
+            pending.clear();
+            // Bypasses the bound: cleanup must run even if the session was flooding us
+            pending.add(new Pending(() -> {
+                cleanup.run();
+                return CompletableFuture.completedFuture(null);
+            }, System.nanoTime()));
+            queued.incrementAndGet();
+            schedule();
+        }
+
+        // Caller holds the lock
+        private void schedule() {
+            if (running) {
+                return;
+            }
+            running = true;
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                running = false;
+                log.warn("[Dispatcher] Executor is shut down, dropping commands of session {}", sessionId);
+            }
+        }
+
+        private void resume() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    running = false;
+                }
+                log.warn("[Dispatcher] Executor is shut down, dropping commands of session {}", sessionId);
+            }
+        }
+
+        @Override
+        public void run() {
+            // Hand the thread back after a bounded number of commands, so a busy session can't keep a worker forever
+            for (int executed = 0; executed < maxQueuedPerSession; executed++) {
+                Pending next;
+                synchronized (this) {
+                    next = pending.poll();
+                    if (next == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                queued.decrementAndGet();
+                waitTimer.record(System.nanoTime() - next.enqueuedAt(), TimeUnit.NANOSECONDS);
+                CompletableFuture<?> done;
+                try {
+                    done = next.command().get().toCompletableFuture();
+                } catch (RuntimeException e) {
+                    log.error("[Dispatcher] Command of session {} failed", sessionId, e);
+                    continue;
+                }
+                if (!done.isDone()) {
+                    // Still running: the worker is handed back, the queue stays marked as running until it resumes
+                    done.whenComplete((result, error) -> resume());
+                    return;
+                }
+            }
+
+            synchronized (this) {
+                running = false;
+                if (!pending.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
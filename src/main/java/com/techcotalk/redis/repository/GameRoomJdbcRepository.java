@@ -0,0 +1,85 @@
+package com.techcotalk.redis.repository;
+
+import com.techcotalk.redis.domain.model.GameRoom;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Plain JDBC access to the tables mapped by GameRoom, for paths where going through the entity is too expensive.
+// Batches are rewritten into multi-row statements by the driver (rewriteBatchedStatements=true).
+@Repository
+@RequiredArgsConstructor
+public class GameRoomJdbcRepository {
+
+    private static final String INSERT_ROOM_SQL = "INSERT IGNORE INTO game_room (room_id) VALUES (?)";
+
+    private static final String DELETE_CARDS_SQL = "DELETE FROM game_room_user_cards WHERE room_id = ?";
+
+    private static final String UPSERT_CARD_SQL = "INSERT INTO game_room_user_cards (room_id, user_id, card_value) "
+            + "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE card_value = VALUES(card_value)";
+
+    private static final String SELECT_ROOM_SQL = "SELECT r.room_id, c.user_id, c.card_value FROM game_room r "
+            + "LEFT JOIN game_room_user_cards c ON c.room_id = r.room_id WHERE r.room_id = ?";
+
+    // One row per user, or a single row with NULL user columns for an empty room
+    private static final ResultSetExtractor<Optional<GameRoom>> ROOM_EXTRACTOR = rs -> {
+        GameRoom room = null;
+        while (rs.next()) {
+            if (room == null) {
+                room = GameRoom.builder().roomId(rs.getString(1)).build();
+            }
+            String userId = rs.getString(2);
+            if (userId != null) {
+                room.getUserCards().put(userId, rs.getString(3));
+            }
+        }
+        return Optional.ofNullable(room);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<GameRoom> findRoom(String roomId) {
+        return jdbcTemplate.query(SELECT_ROOM_SQL, ROOM_EXTRACTOR, roomId);
+    }
+
+    // Fails with a DataIntegrityViolationException (foreign key) if the room does not exist
+    public void upsertCard(String roomId, String userId, String cardValue) {
+        jdbcTemplate.update(UPSERT_CARD_SQL, roomId, userId, cardValue);
+    }
+
+    public void insertRooms(Collection<String> roomIds) {
+        List<Object[]> args = new ArrayList<>(roomIds.size());
+        for (String roomId : roomIds) {
+            args.add(new Object[] { roomId });
+        }
+        jdbcTemplate.batchUpdate(INSERT_ROOM_SQL, args);
+    }
+
+    public void deleteCards(Collection<String> roomIds) {
+        if (roomIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(roomIds.size());
+        for (String roomId : roomIds) {
+            args.add(new Object[] { roomId });
+        }
+        jdbcTemplate.batchUpdate(DELETE_CARDS_SQL, args);
+    }
+
+    // roomId -> (userId -> cardValue)
+    public void upsertCards(Map<String, Map<String, String>> cardsByRoom) {
+        List<Object[]> args = new ArrayList<>();
+        cardsByRoom.forEach((roomId, cards) -> cards.forEach(
+                (userId, cardValue) -> args.add(new Object[] { roomId, userId, cardValue })));
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_CARD_SQL, args);
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package com.techcotalk.redis.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.techcotalk.redis.domain.dto.CardSelection;
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.domain.model.CompactGameRoom;
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.AdaptiveRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// Picks the tier per room from how the room is used, instead of one strategy for every room.
+// Rooms live on the cold tier (Redis or MySQL, shared by all nodes). When one node alone keeps a room busy it takes
+// a lease on the room and serves it from its own memory, writing the changed cards back to the cold tier at every
+// evaluation. A node touching a room owned by another one asks the owner to hand it back (RESYNC on the adaptive
+// channel) and waits for the lease to go before using the cold tier. An owner demotes its room when the room goes
+// idle, when its lease is lost, and when other nodes use the room; a room used by several nodes within the
+// contention window is not promoted again.
+// Promoted rooms are held here, apart from the "local" strategy's rooms: nothing of them is published, logged or
+// written behind, the cold tier is their only copy outside this node.
+// Nodes remember the owner of the rooms they use, and owners announce every change of the lease (INVALIDATE on the
+// adaptive channel), so commands of cold rooms don't read the lease from Redis each time.
+@Slf4j
+@Service
+public class AdaptiveGameService implements GameService, GameEventListener, MessageListener {
+
+    private static final String OWNER_KEY_PREFIX = "adaptive:owner:";
+    private static final long HANDOFF_POLL_MILLIS = 10;
+
+    private final GameService coldGameService;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ChannelTopic topic;
+    private final AdaptiveRoutingProperties properties;
+    private final GameEventPublisher eventPublisher;
+    private final RoomSubscriptionRegistry roomSubscriptions;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final RoomLeases leases;
+    private final String nodeId;
+    private final RoomTier coldTier;
+
+    // The cold tier as it raises RoomChangedEvents (with "this", not through Spring's proxy)
+    private final Object coldTarget;
+
+    private final Counter promotionCounter;
+    private final Counter handoffCounter;
+    private final Map<String, Counter> demotionCounters = new ConcurrentHashMap<>();
+
+    // Access statistics of the rooms this node has used lately. Each one keeps this node on the room's adaptive
+    // channel, where owners announce lease changes.
+    private final Cache<String, RoomRoute> routes;
+
+    // Rooms this node owns (or is promoting), never evicted with the statistics
+    private final Map<String, RoomRoute> owned = new ConcurrentHashMap<>();
+    private final AtomicInteger localRooms = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler;
+    private long lastEvaluation = System.nanoTime(); // guarded by evaluate()
+
+    public AdaptiveGameService(RdbmsGameService rdbmsGameService,
+            GlobalCacheGameService globalCacheGameService,
+            RedisTemplate<String, Object> redisTemplate,
+            @Qualifier("adaptiveTopic") ChannelTopic topic,
+            AdaptiveRoutingProperties properties,
+            GameEventPublisher eventPublisher,
+            RoomSubscriptionRegistry roomSubscriptions,
+            ApplicationEventPublisher applicationEventPublisher,
+            MeterRegistry meterRegistry) {
+        this.coldGameService = properties.getColdTier() == AdaptiveRoutingProperties.ColdTier.RDBMS
+                ? rdbmsGameService
+                : globalCacheGameService;
+        this.redisTemplate = redisTemplate;
+        this.topic = topic;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.roomSubscriptions = roomSubscriptions;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.meterRegistry = meterRegistry;
+        // Same id as the events this node publishes, so a cold-tier invalidation tells which node wrote the room
+        this.nodeId = eventPublisher.getNodeId();
+        this.leases = new RoomLeases(redisTemplate, OWNER_KEY_PREFIX, nodeId);
+        this.coldTier = new ColdTier();
+        this.coldTarget = target(coldGameService);
+
+        this.promotionCounter = meterRegistry.counter("game.adaptive.promotions");
+        this.handoffCounter = meterRegistry.counter("game.adaptive.handoffs");
+        meterRegistry.gauge("game.adaptive.local.rooms", localRooms);
+        this.routes = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedRooms())
+                .<String, RoomRoute>removalListener((roomId, route, cause) -> {
+                    if (cause != RemovalCause.REPLACED) {
+                        roomSubscriptions.release(topic, roomId);
+                    }
+                })
+                .build();
+
+        if (properties.isEnabled()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "adaptive-routing");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = properties.getEvaluationInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::evaluateQuietly, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Adaptive (" + coldGameService.getStrategyName() + " / Local Cache per room)";
+    }
+
+    @Override
+    public void createRoom(String roomId) {
+        log.debug("createRoom");
+
+        // A new room starts cold, whatever this node held of the old one is written back and dropped first
+        RoomRoute route = owned.get(roomId);
+        if (route != null) {
+            demote(roomId, route, "recreate");
+        }
+        serve(roomId, true, tier -> {
+            tier.createRoom(roomId);
+            return null;
+        });
+    }
+
+    @Override
+    public void selectCard(String roomId, String userId, String cardValue) {
+        log.debug("selectCard");
+
+        serve(roomId, true, tier -> {
+            tier.selectCard(roomId, userId, cardValue);
+            return null;
+        });
+    }
+
+    @Override
+    public GameRoom getGameRoom(String roomId) {
+        log.debug("getGameRoom");
+        return serve(roomId, false, tier -> tier.getGameRoom(roomId));
+    }
+
+    @Override
+    public void watchRoom(String roomId) {
+        // Pushes of cold rooms come from the cold tier's invalidations, owned rooms push their own writes
+        coldGameService.watchRoom(roomId);
+    }
+
+    @Override
+    public void unwatchRoom(String roomId) {
+        coldGameService.unwatchRoom(roomId);
+    }
+
+    // Runs the operation on the tier the room is on right now. Promotion and demotion take the room's write lock,
+    // so an operation never sees the room half way between two tiers.
+    private <T> T serve(String roomId, boolean write, Function<RoomTier, T> operation) {
+        RoomRoute route = route(roomId);
+        (write ? route.writes : route.reads).increment();
+        while (true) {
+            String foreignOwner = null;
+            route.lock.readLock().lock();
+            try {
+                if (route.local) {
+                    return operation.apply(new LocalTier(route));
+                }
+                String owner = ownerOf(roomId, route);
+                if (owner == null) {
+                    return operation.apply(coldTier);
+                }
+                if (!owner.equals(nodeId)) {
+                    foreignOwner = owner;
+                } else {
+                    // Ours, but not through this route: read the lease again below
+                    route.forgetOwner();
+                    if (!owned.containsKey(roomId)) {
+                        // Left behind by a demotion that failed half way, nobody serves the room from memory
+                        leases.release(roomId);
+                    }
+                }
+            } finally {
+                route.lock.readLock().unlock();
+            }
+
+            if (foreignOwner != null) {
+                // Waits without the route's lock, promotion, demotion and evaluation of the room go on meanwhile.
+                // The tier is looked up again once the owner handed the room back.
+                awaitHandoff(roomId, route, foreignOwner);
+                continue;
+            }
+
+            // This node is promoting the room through the route its statistics had before they were evicted,
+            // whose write lock is held until the room is local
+            RoomRoute promoting = owned.get(roomId);
+            if (promoting != null) {
+                promoting.lock.readLock().lock();
+                promoting.lock.readLock().unlock();
+                route = promoting;
+            }
+        }
+    }
+
+    // The owner this node knows of, or the lease's when it knows of none. Null for a cold room
+    private String ownerOf(String roomId, RoomRoute route) {
+        RoomRoute.Owner cached = route.owner;
+        if (cached != null) {
+            return cached.nodeId();
+        }
+        long generation = route.ownerGeneration;
+        String owner = leases.owner(roomId);
+        route.cacheOwner(generation, owner);
+        return owner;
+    }
+
+    // Asks the owner to give the room back and waits until its lease is gone
+    private void awaitHandoff(String roomId, RoomRoute route, String owner) {
+        // Used by more than one node: not a candidate for this node's local cache either
+        route.lastForeignAccess = System.nanoTime();
+        handoffCounter.increment();
+        requestHandoff(roomId, owner);
+
+        long deadline = System.nanoTime() + properties.getHandoffTimeout().toNanos();
+        while (true) {
+            long generation = route.ownerGeneration;
+            String current = leases.owner(roomId);
+            if (current == null) {
+                route.cacheOwner(generation, null);
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                route.forgetOwner();
+                throw new RuntimeException("Room " + roomId + " was not handed back by its owner");
+            }
+            if (!current.equals(owner)) {
+                // Another node took the room meanwhile
+                owner = current;
+                requestHandoff(roomId, owner);
+            }
+            try {
+                Thread.sleep(HANDOFF_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for room " + roomId, e);
+            }
+        }
+    }
+
+    private void requestHandoff(String roomId, String owner) {
+        log.debug("[Adaptive] Asking {} to hand back room {}", owner, roomId);
+        eventPublisher.publish(topic, GameEvent.builder()
+                .type(GameEvent.Type.RESYNC)
+                .roomId(roomId)
+                .originId(nodeId)
+                .targetId(owner)
+                .build());
+    }
+
+    // Tells the nodes using the room to read its lease again
+    private void announceOwnerChange(String roomId) {
+        eventPublisher.publish(topic, GameEvent.builder()
+                .type(GameEvent.Type.INVALIDATE)
+                .roomId(roomId)
+                .originId(nodeId)
+                .build());
+    }
+
+    // Moves rooms between tiers, renews the leases of owned rooms and writes their changed cards to the cold tier
+    public synchronized void evaluate() {
+        long now = System.nanoTime();
+        double seconds = Math.max(now - lastEvaluation, 1) / 1e9;
+        lastEvaluation = now;
+
+        for (Map.Entry<String, RoomRoute> entry : owned.entrySet()) {
+            String roomId = entry.getKey();
+            RoomRoute route = entry.getValue();
+            double rate = route.sample(seconds);
+            try {
+                if (!leases.renew(roomId, properties.getOwnerLease())) {
+                    demote(roomId, route, "lease");
+                } else if (rate < properties.getDemoteOpsPerSecond()) {
+                    demote(roomId, route, "idle");
+                } else {
+                    checkpoint(roomId, route);
+                }
+            } catch (RuntimeException e) {
+                log.warn("[Adaptive] Could not evaluate owned room {}", roomId, e);
+            }
+        }
+
+        for (Map.Entry<String, RoomRoute> entry : routes.asMap().entrySet()) {
+            String roomId = entry.getKey();
+            RoomRoute route = entry.getValue();
+            if (owned.get(roomId) == route) {
+                continue; // sampled above
+            }
+            double rate = route.sample(seconds);
+            // An announcement this node missed (e.g. while subscribing) is stale for one interval at most
+            route.forgetOwner();
+            boolean contended = now - route.lastForeignAccess < properties.getContentionWindow().toNanos();
+            if (rate >= properties.getPromoteOpsPerSecond() && !contended) {
+                if (localRooms.get() >= properties.getMaxLocalRooms()) {
+                    continue; // hot, but this node holds as many rooms as it may
+                }
+                try {
+                    promote(roomId, route);
+                } catch (RuntimeException e) {
+                    log.warn("[Adaptive] Could not promote room {}", roomId, e);
+                }
+            } else if (rate == 0 && !contended) {
+                // Nothing to remember about an unused room
+                routes.asMap().remove(roomId, route);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        // Hand every owned room back, so other nodes don't wait for the leases to expire
+        for (Map.Entry<String, RoomRoute> entry : owned.entrySet()) {
+            try {
+                demote(entry.getKey(), entry.getValue(), "shutdown");
+            } catch (RuntimeException e) {
+                log.warn("[Adaptive] Could not hand back room {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private void evaluateQuietly() {
+        try {
+            evaluate();
+        } catch (RuntimeException e) {
+            log.error("[Adaptive] Evaluation failed", e);
+        }
+    }
+
+    private void promote(String roomId, RoomRoute route) {
+        route.lock.writeLock().lock();
+        try {
+            if (route.local || owned.putIfAbsent(roomId, route) != null) {
+                return;
+            }
+            // 1. Take the lease. Once it is set, other nodes hand their commands of the room over to us
+            if (!leases.acquire(roomId, properties.getOwnerLease())) {
+                owned.remove(roomId, route);
+                route.forgetOwner();
+                return; // owned by another node
+            }
+            try {
+                // 2. Listen for hand-off requests and for writes of nodes that came in before the lease
+                roomSubscriptions.acquire(topic, roomId);
+                coldGameService.watchRoom(roomId);
+                announceOwnerChange(roomId);
+
+                // 3. Copy the room into memory
+                GameRoom room = coldGameService.getGameRoom(roomId);
+                if (room == null) {
+                    throw new IllegalStateException("Room not found");
+                }
+                route.room.set(CompactGameRoom.from(room));
+            } catch (RuntimeException e) {
+                roomSubscriptions.release(topic, roomId);
+                coldGameService.unwatchRoom(roomId);
+                leases.release(roomId);
+                owned.remove(roomId, route);
+                throw e;
+            }
+            route.pendingCards.clear();
+            route.local = true;
+            localRooms.incrementAndGet();
+            promotionCounter.increment();
+            log.debug("[Adaptive] Room {} promoted to the local tier ({} reads/s, {} writes/s)", roomId,
+                    route.readRate, route.writeRate);
+        } finally {
+            route.lock.writeLock().unlock();
+        }
+    }
+
+    // Throws if the changed cards can't be written back, the room then stays local and is demoted again later
+    private void demote(String roomId, RoomRoute route, String reason) {
+        route.lock.writeLock().lock();
+        try {
+            if (!route.local) {
+                return;
+            }
+            // 1. Cards changed since the last checkpoint go to the cold tier first, nothing acknowledged is lost
+            checkpoint(roomId, route);
+
+            // 2. Drop the copy and the lease, from now on every node reads and writes the cold tier
+            route.room.set(null);
+            route.local = false;
+            route.cacheOwner(route.ownerGeneration, null);
+            owned.remove(roomId, route);
+            leases.release(roomId);
+            announceOwnerChange(roomId);
+            roomSubscriptions.release(topic, roomId);
+            coldGameService.unwatchRoom(roomId);
+            localRooms.decrementAndGet();
+            demotionCounters.computeIfAbsent(reason,
+                    r -> meterRegistry.counter("game.adaptive.demotions", "reason", r)).increment();
+            log.debug("[Adaptive] Room {} demoted to the cold tier ({})", roomId, reason);
+        } finally {
+            route.lock.writeLock().unlock();
+        }
+    }
+
+    // Writes the cards changed on this node to the cold tier. Runs without the route's write lock from evaluate(),
+    // so a card is only taken off the pending ones while it still holds the value written: one changed again
+    // meanwhile stays pending for the next checkpoint.
+    private void checkpoint(String roomId, RoomRoute route) {
+        if (route.pendingCards.isEmpty()) {
+            return;
+        }
+        Map<String, String> cards = new HashMap<>(route.pendingCards);
+        List<CardSelection> selections = new ArrayList<>(cards.size());
+        cards.forEach((userId, cardValue) -> selections.add(new CardSelection(roomId, userId, cardValue)));
+        coldGameService.selectCards(selections);
+        cards.forEach((userId, cardValue) -> route.pendingCards.remove(userId, cardValue));
+    }
+
+    private RoomRoute route(String roomId) {
+        RoomRoute route = owned.get(roomId);
+        if (route == null) {
+            route = routes.getIfPresent(roomId);
+        }
+        if (route != null) {
+            return route;
+        }
+        // The route's subscription is taken outside the cache's lock, released again if another caller added it first
+        roomSubscriptions.acquire(topic, roomId);
+        boolean[] created = new boolean[1];
+        try {
+            return routes.get(roomId, id -> {
+                created[0] = true;
+                return new RoomRoute();
+            });
+        } finally {
+            if (!created[0]) {
+                roomSubscriptions.release(topic, roomId);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        log.debug("onMessage");
+
+        try {
+            GameEvent received = (GameEvent) redisTemplate.getValueSerializer().deserialize(message.getBody());
+            eventPublisher.recordReceived(getListenerName(), message, received);
+            received.unbatch().forEach(this::onEvent);
+        } catch (SerializationException e) {
+            log.error("Error parsing message", e);
+        }
+    }
+
+    @Override
+    public String getListenerName() {
+        return "adaptive";
+    }
+
+    // Adaptive channel: INVALIDATE announces a new owner or a room handed back, RESYNC asks the owner to hand the
+    // room back to the cold tier
+    @Override
+    public void onEvent(GameEvent event) {
+        if (nodeId.equals(event.getOriginId())) {
+            return;
+        }
+        if (event.getType() == GameEvent.Type.INVALIDATE) {
+            RoomRoute route = routes.getIfPresent(event.getRoomId());
+            if (route != null) {
+                route.forgetOwner();
+            }
+            return;
+        }
+        if (event.getType() != GameEvent.Type.RESYNC || !nodeId.equals(event.getTargetId())) {
+            return;
+        }
+        RoomRoute route = owned.get(event.getRoomId());
+        if (route == null) {
+            return; // already handed back
+        }
+        route.lastForeignAccess = System.nanoTime();
+        demote(event.getRoomId(), route, "contention");
+    }
+
+    // Changes raised by the cold tier: detects writes of other nodes, and forwards the pushes of cold rooms to the
+    // sessions playing through this service. Owned rooms push their writes themselves (LocalTier).
+    @EventListener
+    public void onRoomChanged(RoomChangedEvent event) {
+        if (event.source() != coldTarget) {
+            return;
+        }
+        String roomId = event.roomId();
+        GameEvent change = event.change();
+
+        if (change != null && change.getOriginId() != null && !nodeId.equals(change.getOriginId())) {
+            RoomRoute route = owned.get(roomId);
+            if (route == null) {
+                route = routes.getIfPresent(roomId);
+            }
+            if (route != null) {
+                route.lastForeignAccess = System.nanoTime();
+            }
+            // Written through the cold tier while we own it (raced the promotion): merge back and stay cold
+            if (route != null && route.local) {
+                demote(roomId, route, "contention");
+            }
+        }
+        if (!owned.containsKey(roomId)) {
+            applicationEventPublisher.publishEvent(new RoomChangedEvent(this, roomId, change));
+        }
+    }
+
+    private static Object target(GameService service) {
+        Object target = AopProxyUtils.getSingletonTarget(service);
+        return target != null ? target : service;
+    }
+
+    // Per-room routing state on this node
+    private static final class RoomRoute {
+
+        // The owner a node remembers for a room, nodeId is null for a cold room
+        private record Owner(String nodeId) {
+        }
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+        // The room while it is local, each write replaces it
+        private final AtomicReference<CompactGameRoom> room = new AtomicReference<>();
+        // userId -> card written locally and not yet checkpointed to the cold tier
+        private final Map<String, String> pendingCards = new ConcurrentHashMap<>();
+        private volatile boolean local; // written under the write lock
+        private volatile long lastForeignAccess = System.nanoTime() - Long.MAX_VALUE / 2;
+        private volatile double readRate;
+        private volatile double writeRate;
+        // Null until the lease is read, and again after every announced change of it
+        private volatile Owner owner;
+        private volatile long ownerGeneration; // written under this
+
+        // Operations per second since the last sample
+        private double sample(double seconds) {
+            readRate = reads.sumThenReset() / seconds;
+            writeRate = writes.sumThenReset() / seconds;
+            return readRate + writeRate;
+        }
+
+        // Unless the owner changed since the lease was read
+        private synchronized void cacheOwner(long generation, String nodeId) {
+            if (generation == ownerGeneration) {
+                owner = new Owner(nodeId);
+            }
+        }
+
+        private synchronized void forgetOwner() {
+            ownerGeneration++;
+            owner = null;
+        }
+    }
+
+    // What the operations of serve() may do with a room, on either tier
+    private interface RoomTier {
+        void createRoom(String roomId);
+
+        void selectCard(String roomId, String userId, String cardValue);
+
+        GameRoom getGameRoom(String roomId);
+    }
+
+    private final class ColdTier implements RoomTier {
+        @Override
+        public void createRoom(String roomId) {
+            coldGameService.createRoom(roomId);
+        }
+
+        @Override
+        public void selectCard(String roomId, String userId, String cardValue) {
+            coldGameService.selectCard(roomId, userId, cardValue);
+        }
+
+        @Override
+        public GameRoom getGameRoom(String roomId) {
+            return coldGameService.getGameRoom(roomId);
+        }
+    }
+
+    // An owned room: kept in memory, remembering which cards still have to reach the cold tier. Used under the
+    // route's read lock.
+    private final class LocalTier implements RoomTier {
+        private final RoomRoute route;
+
+        private LocalTier(RoomRoute route) {
+            this.route = route;
+        }
+
+        // Promoted by this node between the demotion in createRoom() and here: both copies start over
+        @Override
+        public void createRoom(String roomId) {
+            coldGameService.createRoom(roomId);
+            route.room.set(CompactGameRoom.empty(roomId));
+            route.pendingCards.clear();
+        }
+
+        @Override
+        public void selectCard(String roomId, String userId, String cardValue) {
+            route.room.updateAndGet(room -> room.withCard(userId, cardValue));
+            route.pendingCards.put(userId, cardValue);
+            applicationEventPublisher.publishEvent(new RoomChangedEvent(AdaptiveGameService.this, roomId,
+                    GameEvent.builder()
+                            .type(GameEvent.Type.DELTA)
+                            .roomId(roomId)
+                            .originId(nodeId)
+                            .userId(userId)
+                            .cardValue(cardValue)
+                            .build()));
+        }
+
+        @Override
+        public GameRoom getGameRoom(String roomId) {
+            return route.room.get().toGameRoom();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.model.GameRoom;
+
+import java.util.concurrent.CompletableFuture;
+
+// Non-blocking counterpart of GameService for the strategies backed by Redis (or by nothing but memory).
+// No thread waits while a command is in flight: the futures complete on the Redis client's I/O threads,
+// so whatever follows them and may block (sending a WebSocket response, touching MySQL) belongs on another thread.
+// Same semantics and errors as the blocking methods, a failure completes the future exceptionally.
+public interface AsyncGameService {
+    CompletableFuture<Void> createRoomAsync(String roomId);
+
+    CompletableFuture<Void> selectCardAsync(String roomId, String userId, String cardValue);
+
+    CompletableFuture<GameRoom> getGameRoomAsync(String roomId);
+}
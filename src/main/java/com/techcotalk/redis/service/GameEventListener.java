@@ -0,0 +1,13 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.dto.GameEvent;
+
+// Receive side of a strategy. PubSubDispatcher decodes each message once and hands the events over one by one,
+// the events of a room in the order they were published.
+public interface GameEventListener {
+
+    // Tag of the received-message metrics ("rdbms", "global", ...)
+    String getListenerName();
+
+    void onEvent(GameEvent event);
+}
@@ -0,0 +1,311 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.global.config.PublishProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Outbound Pub/Sub pipeline shared by all strategies.
+// With a publish window, events are held per channel for up to that long: repeated INVALIDATE / PAYLOAD / RESYNC
+// events of the same room collapse into the last one, and everything left goes out as one BATCH message.
+// DELTA events are never collapsed, receivers need every sequence number.
+// Events are stamped with the publish time (and this node's id, unless the strategy set its own), and the
+// receiving listeners report back through recordReceived, so message sizes and the cross-node propagation lag
+// are measured in one place for every strategy. The lag compares wall clocks of two nodes, keep them NTP-synced.
+@Slf4j
+@Component
+public class GameEventPublisher {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final PublishProperties properties;
+    private final RoomSubscriptionRegistry roomSubscriptions;
+    private final MeterRegistry meterRegistry;
+    private final long windowNanos;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final DistributionSummary batchSize;
+    private final Timer addedLatency;
+    private final Counter coalesced;
+    private final Map<String, DistributionSummary> sentSizes = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> receivedSizes = new ConcurrentHashMap<>();
+    private final Map<String, Timer> propagationLags = new ConcurrentHashMap<>();
+
+    private final Map<String, ChannelBuffer> buffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public GameEventPublisher(RedisTemplate<String, Object> redisTemplate,
+            ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+            PublishProperties properties,
+            RoomSubscriptionRegistry roomSubscriptions,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.properties = properties;
+        this.roomSubscriptions = roomSubscriptions;
+        this.meterRegistry = meterRegistry;
+        this.windowNanos = properties.getWindow().toNanos();
+
+        this.batchSize = DistributionSummary.builder("game.publish.batch.size")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.addedLatency = Timer.builder("game.publish.added.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.coalesced = meterRegistry.counter("game.publish.coalesced");
+
+        if (windowNanos > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "event-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    // Origin id stamped on the events of this node
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void publish(ChannelTopic topic, GameEvent event) {
+        stamp(event);
+        String channel = roomSubscriptions.channelFor(topic, event.getRoomId()).getTopic();
+        if (windowNanos <= 0) {
+            send(topic.getTopic(), channel, event);
+            batchSize.record(1);
+            return;
+        }
+        buffer(topic, channel, event, true);
+    }
+
+    // Non-blocking publish for AsyncGameService, completes once Redis took the PUBLISH.
+    // With a publish window the event is only buffered, and a full batch leaves from the publisher's own thread
+    // rather than the caller's, which may be a Redis I/O thread.
+    public CompletableFuture<Void> publishAsync(ChannelTopic topic, GameEvent event) {
+        stamp(event);
+        String channel = roomSubscriptions.channelFor(topic, event.getRoomId()).getTopic();
+        if (windowNanos > 0) {
+            buffer(topic, channel, event, false);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        byte[] body = serialize(event);
+        ByteBuffer rawChannel = ByteBuffer.wrap(RedisSerializer.string().serialize(channel));
+        return reactiveRedisTemplate
+                .execute(connection -> connection.pubSubCommands().publish(rawChannel, ByteBuffer.wrap(body)))
+                .then()
+                .toFuture()
+                .thenRun(() -> {
+                    recordSent(topic.getTopic(), body.length);
+                    batchSize.record(1);
+                });
+    }
+
+    // Events of one batch command: without a publish window they still leave as one message per channel
+    public void publishAll(ChannelTopic topic, List<GameEvent> events) {
+        if (windowNanos > 0) {
+            events.forEach(event -> publish(topic, event));
+            return;
+        }
+
+        Map<String, LinkedHashMap<Object, GameEvent>> byChannel = new LinkedHashMap<>();
+        for (GameEvent event : events) {
+            stamp(event);
+            String channel = roomSubscriptions.channelFor(topic, event.getRoomId()).getTopic();
+            if (byChannel.computeIfAbsent(channel, c -> new LinkedHashMap<>()).put(coalesceKey(event), event) != null) {
+                coalesced.increment();
+            }
+        }
+        byChannel.forEach((channel, pending) -> {
+            List<GameEvent> batch = new ArrayList<>(pending.values());
+            send(topic.getTopic(), channel, batch.size() == 1 ? batch.get(0) : batchOf(batch));
+            batchSize.record(batch.size());
+        });
+    }
+
+    // Receive side, called by every strategy's listener with the raw message and the event it decoded
+    public void recordReceived(String strategy, Message message, GameEvent received) {
+        receivedSizes.computeIfAbsent(strategy, s -> sizeSummary("in", "strategy", s)).record(message.getBody().length);
+
+        Timer lag = propagationLags.computeIfAbsent(strategy, s -> Timer.builder("game.pubsub.propagation.lag")
+                .tag("strategy", s)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        long now = System.currentTimeMillis();
+        for (GameEvent event : received.unbatch()) {
+            if (event.getPublishedAt() > 0) {
+                // Clock skew between nodes can make it negative
+                lag.record(Math.max(0, now - event.getPublishedAt()), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        buffers.values().forEach(this::flushQuietly);
+    }
+
+    private void flushQuietly(ChannelBuffer buffer) {
+        try {
+            buffer.flush();
+        } catch (RuntimeException e) {
+            log.error("Error publishing batch to {}", buffer.channel, e);
+        }
+    }
+
+    // A batched event keeps the time it was published at, so its lag includes the publish window
+    private void stamp(GameEvent event) {
+        event.setPublishedAt(System.currentTimeMillis());
+        if (event.getOriginId() == null) {
+            event.setOriginId(nodeId);
+        }
+    }
+
+    private GameEvent batchOf(List<GameEvent> events) {
+        return GameEvent.builder()
+                .type(GameEvent.Type.BATCH)
+                .originId(nodeId)
+                .publishedAt(System.currentTimeMillis())
+                .events(events)
+                .build();
+    }
+
+    private void buffer(ChannelTopic topic, String channel, GameEvent event, boolean flushInline) {
+        ChannelBuffer buffer = buffers.computeIfAbsent(channel, c -> new ChannelBuffer(topic.getTopic(), c));
+        int size = buffer.add(event);
+        if (size == 1) {
+            scheduler.schedule(() -> flushQuietly(buffer), windowNanos, TimeUnit.NANOSECONDS);
+        } else if (size >= properties.getMaxBatchSize()) {
+            if (flushInline) {
+                buffer.flush();
+            } else {
+                scheduler.execute(() -> flushQuietly(buffer));
+            }
+        }
+    }
+
+    // Same as convertAndSend, but we get to see the serialized size
+    private void send(String topic, String channel, GameEvent message) {
+        byte[] body = serialize(message);
+        byte[] rawChannel = RedisSerializer.string().serialize(channel);
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(rawChannel, body));
+        recordSent(topic, body.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(GameEvent message) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(message);
+    }
+
+    private void recordSent(String topic, int size) {
+        sentSizes.computeIfAbsent(topic, t -> sizeSummary("out", "topic", t)).record(size);
+    }
+
+    private DistributionSummary sizeSummary(String direction, String tagKey, String tagValue) {
+        return DistributionSummary.builder("game.pubsub.message.size")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .tag(tagKey, tagValue)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Object coalesceKey(GameEvent event) {
+        return switch (event.getType()) {
+            case INVALIDATE -> "I:" + event.getRoomId();
+            case PAYLOAD -> "P:" + event.getRoomId() + ":" + event.getOriginId();
+            case RESYNC -> "R:" + event.getRoomId() + ":" + event.getOriginId() + ":" + event.getTargetId();
+            default -> new Object(); // unique, kept as is
+        };
+    }
+
+    private record Pending(GameEvent event, long enqueuedAt) {
+    }
+
+    private class ChannelBuffer {
+        private final String topic;
+        private final String channel;
+        private final ReentrantLock sendLock = new ReentrantLock(); // keeps batches of a channel in order
+        private LinkedHashMap<Object, Pending> pending = new LinkedHashMap<>();
+
+        private ChannelBuffer(String topic, String channel) {
+            this.topic = topic;
+            this.channel = channel;
+        }
+
+        private synchronized int add(GameEvent event) {
+            // A replaced entry keeps its place, but carries the newest event and the oldest enqueue time
+            Object key = coalesceKey(event);
+            Pending previous = pending.get(key);
+            if (previous != null) {
+                coalesced.increment();
+                pending.put(key, new Pending(event, previous.enqueuedAt()));
+            } else {
+                pending.put(key, new Pending(event, System.nanoTime()));
+            }
+            return pending.size();
+        }
+
+        private synchronized List<Pending> drain() {
+            if (pending.isEmpty()) {
+                return List.of();
+            }
+            List<Pending> drained = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+            return drained;
+        }
+
+        private void flush() {
+            sendLock.lock();
+            try {
+                List<Pending> drained = drain();
+                if (drained.isEmpty()) {
+                    return;
+                }
+
+                long now = System.nanoTime();
+                List<GameEvent> events = new ArrayList<>(drained.size());
+                for (Pending entry : drained) {
+                    events.add(entry.event());
+                    addedLatency.record(now - entry.enqueuedAt(), TimeUnit.NANOSECONDS);
+                }
+
+                send(topic, channel, events.size() == 1 ? events.get(0) : batchOf(events));
+                batchSize.record(events.size());
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.techcotalk.redis.service;
 
+import com.techcotalk.redis.domain.dto.CardSelection;
 import com.techcotalk.redis.domain.model.GameRoom;
 
+import java.util.List;
+
 public interface GameService {
     void createRoom(String roomId);
 
@@ -9,5 +12,25 @@ public interface GameService {
 
     GameRoom getGameRoom(String roomId);
 
+    // Batch commands: strategies apply the whole list at once (one transaction, one Redis round trip,
+    // one publish) where they can. Applied in list order, so a later selection of a user wins.
+    default void createRooms(List<String> roomIds) {
+        roomIds.forEach(this::createRoom);
+    }
+
+    default void selectCards(List<CardSelection> selections) {
+        for (CardSelection selection : selections) {
+            selectCard(selection.roomId(), selection.userId(), selection.cardValue());
+        }
+    }
+
     String getStrategyName();
+
+    // Keeps this node subscribed to the room's events while it serves the room (see game.subscription).
+    // Every watchRoom must be paired with exactly one unwatchRoom.
+    default void watchRoom(String roomId) {
+    }
+
+    default void unwatchRoom(String roomId) {
+    }
 }
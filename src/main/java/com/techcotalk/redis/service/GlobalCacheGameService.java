@@ -1,47 +1,129 @@
 package com.techcotalk.redis.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techcotalk.redis.domain.dto.CardSelection;
 import com.techcotalk.redis.domain.dto.GameEvent;
 import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.GlobalCacheProperties;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
-public class GlobalCacheGameService implements GameService, MessageListener {
+public class GlobalCacheGameService implements GameService, AsyncGameService, GameEventListener, MessageListener {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
     private final ChannelTopic topic;
-    private final ObjectMapper objectMapper;
+    private final GlobalCacheProperties.Layout layout;
+    private final WriteBehindBuffer writeBehindBuffer;
+    private final GameEventPublisher eventPublisher;
+    private final RoomSubscriptionRegistry roomSubscriptions;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    // Records the async path's writes in the write-behind buffer, off the Redis I/O threads. Its own threads: a
+    // flush blocking on MySQL must not hold up the common pool (and whatever else runs on it).
+    private static final int WRITE_BEHIND_THREADS = 2;
+    private final ExecutorService writeBehindExecutor;
 
     public GlobalCacheGameService(RedisTemplate<String, Object> redisTemplate,
+            ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
             @Qualifier("globalCacheTopic") ChannelTopic topic,
-            ObjectMapper objectMapper) {
+            GlobalCacheProperties properties,
+            WriteBehindBuffer writeBehindBuffer,
+            GameEventPublisher eventPublisher,
+            RoomSubscriptionRegistry roomSubscriptions,
+            ApplicationEventPublisher applicationEventPublisher) {
         this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
         this.topic = topic;
-        this.objectMapper = objectMapper;
+        this.layout = properties.getLayout();
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.eventPublisher = eventPublisher;
+        this.roomSubscriptions = roomSubscriptions;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.writeBehindExecutor = Executors.newFixedThreadPool(WRITE_BEHIND_THREADS, r -> {
+            Thread thread = new Thread(r, "global-cache-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     private static final String KEY_PREFIX = "gameroom:";
+    private static final String HASH_KEY_PREFIX = "gameroom:hash:";
+
+    // Hash layout: every field is a userId except this one, which holds the room's dummy payload
+    private static final String PAYLOAD_FIELD = "#dummyData";
+
+    // Only touches the changed field, and only if the room exists (same "Room not found" rule as the GET/SET path)
+    private static final RedisScript<Long> SELECT_CARD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end "
+                    + "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) "
+                    + "return 1",
+            Long.class);
+    private static final byte[] SELECT_CARD_SCRIPT_BYTES = RedisSerializer.string()
+            .serialize(SELECT_CARD_SCRIPT.getScriptAsString());
+
+    // Resets the room in one step, so a concurrent SELECT_CARD_SCRIPT sees either the old room or the new one,
+    // never a missing key or a card that the reset then wipes
+    private static final RedisScript<Long> CREATE_ROOM_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) "
+                    + "return 1",
+            Long.class);
+    private static final byte[] CREATE_ROOM_SCRIPT_BYTES = RedisSerializer.string()
+            .serialize(CREATE_ROOM_SCRIPT.getScriptAsString());
 
     @Override
     public String getStrategyName() {
-        return "Global Cache (Redis) + Redis Pub/Sub";
+        return "Global Cache (Redis " + layout.name().toLowerCase() + ") + Redis Pub/Sub";
     }
 
     @Override
     public void createRoom(String roomId) {
         log.debug("createRoom");
         GameRoom room = GameRoom.builder().roomId(roomId).build();
-        redisTemplate.opsForValue().set(KEY_PREFIX + roomId, room);
+        if (layout == GlobalCacheProperties.Layout.HASH) {
+            redisTemplate.execute(CREATE_ROOM_SCRIPT, RedisSerializer.byteArray(),
+                    new GenericToStringSerializer<>(Long.class), List.of(HASH_KEY_PREFIX + roomId),
+                    RedisSerializer.string().serialize(PAYLOAD_FIELD), serializeHashValue(room.getDummyData()));
+        } else {
+            redisTemplate.opsForValue().set(KEY_PREFIX + roomId, room);
+        }
+        writeBehindBuffer.recordRoom(roomId);
     }
 
     @Override
@@ -49,38 +131,321 @@ public class GlobalCacheGameService implements GameService, MessageListener {
         log.debug("selectCard");
 
         // 1. Update Redis Store
-        GameRoom room = (GameRoom) redisTemplate.opsForValue().get(KEY_PREFIX + roomId);
-        if (room == null)
-            throw new RuntimeException("Room not found");
+        if (layout == GlobalCacheProperties.Layout.HASH) {
+            Long updated = redisTemplate.execute(SELECT_CARD_SCRIPT, RedisSerializer.byteArray(),
+                    new GenericToStringSerializer<>(Long.class), List.of(HASH_KEY_PREFIX + roomId),
+                    RedisSerializer.string().serialize(userId), serializeHashValue(cardValue));
+            if (updated == null || updated == 0L)
+                throw new RuntimeException("Room not found");
+        } else {
+            GameRoom room = (GameRoom) redisTemplate.opsForValue().get(KEY_PREFIX + roomId);
+            if (room == null)
+                throw new RuntimeException("Room not found");
 
-        room.selectCard(userId, cardValue);
-        redisTemplate.opsForValue().set(KEY_PREFIX + roomId, room);
+            room.selectCard(userId, cardValue);
+            redisTemplate.opsForValue().set(KEY_PREFIX + roomId, room);
+        }
+        writeBehindBuffer.recordCard(roomId, userId, cardValue);
 
         // 2. Publish Invalidation Event
         GameEvent event = GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build();
-        redisTemplate.convertAndSend(topic.getTopic(), event);
+        eventPublisher.publish(topic, event);
+    }
+
+    @Override
+    public void createRooms(List<String> roomIds) {
+        log.debug("createRooms");
+
+        // One pipelined round trip for the whole batch
+        if (layout == GlobalCacheProperties.Layout.HASH) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String roomId : roomIds) {
+                    GameRoom room = GameRoom.builder().roomId(roomId).build();
+                    connection.scriptingCommands().eval(CREATE_ROOM_SCRIPT_BYTES, ReturnType.INTEGER, 1,
+                            RedisSerializer.string().serialize(HASH_KEY_PREFIX + roomId),
+                            RedisSerializer.string().serialize(PAYLOAD_FIELD),
+                            serializeHashValue(room.getDummyData()));
+                }
+                return null;
+            });
+        } else {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (String roomId : roomIds) {
+                        ops.opsForValue().set(KEY_PREFIX + roomId, GameRoom.builder().roomId(roomId).build());
+                    }
+                    return null;
+                }
+            });
+        }
+        roomIds.forEach(writeBehindBuffer::recordRoom);
+    }
+
+    @Override
+    public void selectCards(List<CardSelection> selections) {
+        log.debug("selectCards");
+
+        // 1. Update Redis Store
+        List<CardSelection> applied;
+        if (layout == GlobalCacheProperties.Layout.HASH) {
+            applied = selectCardsPipelined(selections);
+        } else {
+            selectCardsMulti(selections);
+            applied = selections;
+        }
+
+        // 2. Publish one Invalidation Event per room, as a single message.
+        // Also when a room was missing: the selections that did land must reach the other nodes and MySQL
+        Set<String> roomIds = new LinkedHashSet<>();
+        for (CardSelection selection : applied) {
+            writeBehindBuffer.recordCard(selection.roomId(), selection.userId(), selection.cardValue());
+            roomIds.add(selection.roomId());
+        }
+        List<GameEvent> events = new ArrayList<>(roomIds.size());
+        for (String roomId : roomIds) {
+            events.add(GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build());
+        }
+        if (!events.isEmpty()) {
+            eventPublisher.publishAll(topic, events);
+        }
+        if (applied.size() < selections.size())
+            throw new RuntimeException("Room not found");
     }
 
     @Override
     public GameRoom getGameRoom(String roomId) {
         log.debug("getGameRoom");
 
+        if (layout == GlobalCacheProperties.Layout.HASH) {
+            return readHashRoom(roomId);
+        }
         return (GameRoom) redisTemplate.opsForValue().get(KEY_PREFIX + roomId);
     }
 
+    @Override
+    public CompletableFuture<Void> createRoomAsync(String roomId) {
+        log.debug("createRoomAsync");
+        GameRoom room = GameRoom.builder().roomId(roomId).build();
+        Mono<?> write;
+        if (layout == GlobalCacheProperties.Layout.HASH) {
+            write = reactiveRedisTemplate.execute(CREATE_ROOM_SCRIPT, List.of(HASH_KEY_PREFIX + roomId),
+                            List.of(RedisSerializer.string().serialize(PAYLOAD_FIELD),
+                                    serializeHashValue(room.getDummyData())),
+                            RedisElementWriter.from(RedisSerializer.byteArray()),
+                            RedisElementReader.from(new GenericToStringSerializer<>(Long.class)))
+                    .next();
+        } else {
+            write = reactiveRedisTemplate.opsForValue().set(KEY_PREFIX + roomId, room);
+        }
+        return write.toFuture().thenCompose(ignored -> recordWriteBehind(() -> writeBehindBuffer.recordRoom(roomId)));
+    }
+
+    @Override
+    public CompletableFuture<Void> selectCardAsync(String roomId, String userId, String cardValue) {
+        log.debug("selectCardAsync");
+
+        // 1. Update Redis Store, same commands as selectCard without waiting for the replies
+        Mono<?> write;
+        if (layout == GlobalCacheProperties.Layout.HASH) {
+            write = reactiveRedisTemplate.execute(SELECT_CARD_SCRIPT, List.of(HASH_KEY_PREFIX + roomId),
+                            List.of(RedisSerializer.string().serialize(userId), serializeHashValue(cardValue)),
+                            RedisElementWriter.from(RedisSerializer.byteArray()),
+                            RedisElementReader.from(new GenericToStringSerializer<>(Long.class)))
+                    .next()
+                    .filter(updated -> updated == 1L)
+                    .switchIfEmpty(Mono.error(() -> new RuntimeException("Room not found")));
+        } else {
+            String key = KEY_PREFIX + roomId;
+            write = reactiveRedisTemplate.opsForValue().get(key)
+                    .switchIfEmpty(Mono.error(() -> new RuntimeException("Room not found")))
+                    .flatMap(value -> {
+                        GameRoom room = (GameRoom) value;
+                        room.selectCard(userId, cardValue);
+                        return reactiveRedisTemplate.opsForValue().set(key, room);
+                    });
+        }
+
+        // 2. Publish Invalidation Event
+        return write.toFuture()
+                .thenCompose(ignored -> recordWriteBehind(() -> writeBehindBuffer.recordCard(roomId, userId, cardValue)))
+                .thenCompose(ignored -> eventPublisher.publishAsync(topic,
+                        GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build()));
+    }
+
+    @Override
+    public CompletableFuture<GameRoom> getGameRoomAsync(String roomId) {
+        log.debug("getGameRoomAsync");
+
+        if (layout == GlobalCacheProperties.Layout.HASH) {
+            return reactiveRedisTemplate.opsForHash().entries(HASH_KEY_PREFIX + roomId)
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                    .filter(entries -> !entries.isEmpty())
+                    .map(entries -> toRoom(roomId, entries))
+                    .toFuture();
+        }
+        return reactiveRedisTemplate.opsForValue().get(KEY_PREFIX + roomId)
+                .map(GameRoom.class::cast)
+                .toFuture();
+    }
+
+    // Hybrid's L1 copies of re-created rooms: every node watching them drops its copy
+    void publishInvalidations(List<String> roomIds) {
+        List<GameEvent> events = new ArrayList<>(roomIds.size());
+        for (String roomId : roomIds) {
+            events.add(GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build());
+        }
+        if (!events.isEmpty()) {
+            eventPublisher.publishAll(topic, events);
+        }
+    }
+
+    CompletableFuture<Void> publishInvalidationAsync(String roomId) {
+        return eventPublisher.publishAsync(topic, GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build());
+    }
+
+    @Override
+    public void watchRoom(String roomId) {
+        roomSubscriptions.acquire(topic, roomId);
+    }
+
+    @Override
+    public void unwatchRoom(String roomId) {
+        roomSubscriptions.release(topic, roomId);
+    }
+
     @Override
     public void onMessage(Message message, byte[] pattern) {
         log.debug("onMessage");
 
         try {
-            GameEvent event = objectMapper.readValue(message.getBody(), GameEvent.class);
-            if (event.getType() == GameEvent.Type.INVALIDATE) {
-                log.debug(
-                        "[Global Cache Service] Received Invalidation Event for Room: {}. Clients should fetch from Redis.",
-                        event.getRoomId());
-            }
-        } catch (IOException e) {
+            GameEvent received = (GameEvent) redisTemplate.getValueSerializer().deserialize(message.getBody());
+            eventPublisher.recordReceived(getListenerName(), message, received);
+            received.unbatch().forEach(this::onEvent);
+        } catch (SerializationException e) {
             log.error("Error parsing message", e);
         }
     }
+
+    @Override
+    public String getListenerName() {
+        return "global";
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        if (event.getType() == GameEvent.Type.INVALIDATE) {
+            log.debug("[Global Cache Service] Received Invalidation Event for Room: {}. Pushing room to clients.",
+                    event.getRoomId());
+            applicationEventPublisher.publishEvent(new RoomChangedEvent(this, event.getRoomId(), event));
+        }
+    }
+
+    // Hash layout: every selection runs the script, all of them in one pipelined round trip.
+    // Selections of rooms that exist are applied even if another one is missing, like separate commands would be.
+    // Returns the applied ones, the caller publishes and records them before failing for the missing rooms.
+    private List<CardSelection> selectCardsPipelined(List<CardSelection> selections) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (CardSelection selection : selections) {
+                connection.scriptingCommands().eval(SELECT_CARD_SCRIPT_BYTES, ReturnType.INTEGER, 1,
+                        RedisSerializer.string().serialize(HASH_KEY_PREFIX + selection.roomId()),
+                        RedisSerializer.string().serialize(selection.userId()),
+                        serializeHashValue(selection.cardValue()));
+            }
+            return null;
+        });
+        List<CardSelection> applied = new ArrayList<>(selections.size());
+        for (int i = 0; i < selections.size(); i++) {
+            if (Long.valueOf(1L).equals(results.get(i))) {
+                applied.add(selections.get(i));
+            }
+        }
+        return applied;
+    }
+
+    // Value layout: MGET every room once, apply the selections in order, MSET them back
+    private void selectCardsMulti(List<CardSelection> selections) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (CardSelection selection : selections) {
+            keys.add(KEY_PREFIX + selection.roomId());
+        }
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+
+        Map<String, GameRoom> rooms = new LinkedHashMap<>();
+        int i = 0;
+        for (String key : keys) {
+            GameRoom room = (GameRoom) values.get(i++);
+            if (room == null)
+                throw new RuntimeException("Room not found");
+            rooms.put(key, room);
+        }
+        for (CardSelection selection : selections) {
+            rooms.get(KEY_PREFIX + selection.roomId()).selectCard(selection.userId(), selection.cardValue());
+        }
+        redisTemplate.opsForValue().multiSet(rooms);
+    }
+
+    // The write-behind buffer may flush to MySQL under backpressure, which must not happen on a Redis I/O thread
+    private CompletableFuture<Void> recordWriteBehind(Runnable record) {
+        if (!writeBehindBuffer.isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(record, writeBehindExecutor);
+    }
+
+    private GameRoom readHashRoom(String roomId) {
+        return toRoom(roomId, redisTemplate.opsForHash().entries(HASH_KEY_PREFIX + roomId));
+    }
+
+    // Reassembles the room from HGETALL: userId fields become userCards, the payload field becomes dummyData
+    private GameRoom toRoom(String roomId, Map<Object, Object> entries) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> userCards = new HashMap<>();
+        byte[] dummyData = null;
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            if (PAYLOAD_FIELD.equals(entry.getKey())) {
+                dummyData = toBytes(entry.getValue());
+            } else {
+                userCards.put((String) entry.getKey(), (String) entry.getValue());
+            }
+        }
+
+        GameRoom room = GameRoom.builder().roomId(roomId).userCards(userCards).build();
+        if (dummyData != null) {
+            room.setDummyData(dummyData);
+        }
+        return room;
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serializeHashValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(value);
+    }
+
+    // JSON serializers write byte[] as a Base64 string without type info, so it may come back as a String
+    private static byte[] toBytes(Object value) {
+        if (value instanceof byte[] bytes) {
+            return bytes;
+        }
+        return Base64.getDecoder().decode((String) value);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Writes already handed over are still recorded, before the write-behind buffer (destroyed after this
+        // service) makes its last flush
+        writeBehindExecutor.shutdown();
+        try {
+            if (!writeBehindExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("[Global Cache Service] Write-behind recording did not finish before shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -0,0 +1,312 @@
+package com.techcotalk.redis.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.techcotalk.redis.domain.dto.CardSelection;
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.HybridCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+public class HybridCacheGameService implements GameService, AsyncGameService, GameEventListener, MessageListener {
+
+    private final GlobalCacheGameService globalCacheGameService;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final GameEventPublisher eventPublisher;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter invalidationCounter;
+
+    // L1 (Near Cache) Storage
+    private final Cache<String, GameRoom> nearCache;
+
+    // Rooms this node holds an L1 copy of (or is loading), each one watched once through the Redis store.
+    // The watch is replaced on every invalidation: a load only stores its copy if the watch it started with is
+    // still there, checked under the map's lock for the room, so an INVALIDATE racing with it wins and
+    // invalidations of other rooms don't matter.
+    private final Map<String, Watch> watchedRooms = new ConcurrentHashMap<>();
+
+    // Completes once the room's channel is subscribed to. The SUBSCRIBE runs outside the map's lock, loads of
+    // the room wait for it instead
+    private static final class Watch {
+        private final CompletableFuture<Void> subscribed = new CompletableFuture<>();
+    }
+
+    public HybridCacheGameService(GlobalCacheGameService globalCacheGameService,
+            RedisTemplate<String, Object> redisTemplate,
+            GameEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            ApplicationEventPublisher applicationEventPublisher,
+            HybridCacheProperties properties) {
+        this.globalCacheGameService = globalCacheGameService;
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.hitCounter = meterRegistry.counter("game.cache.requests", "strategy", "hybrid", "result", "hit");
+        this.missCounter = meterRegistry.counter("game.cache.requests", "strategy", "hybrid", "result", "miss");
+        this.invalidationCounter = meterRegistry.counter("game.cache.invalidations", "strategy", "hybrid");
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterAccess(properties.getExpireAfterAccess())
+                .<String, GameRoom>removalListener((roomId, room, cause) -> {
+                    // Invalidations went through evict(), which unwatches the room itself
+                    if (cause.wasEvicted()) {
+                        unwatchIfNotCached(roomId);
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "Hybrid (Local L1 + Redis) + Redis Pub/Sub";
+    }
+
+    @Override
+    public void createRoom(String roomId) {
+        log.debug("createRoom");
+        globalCacheGameService.createRoom(roomId);
+        // Other nodes may hold a copy of the room it replaced
+        globalCacheGameService.publishInvalidations(List.of(roomId));
+        evict(roomId);
+    }
+
+    @Override
+    public void selectCard(String roomId, String userId, String cardValue) {
+        log.debug("selectCard");
+
+        // 1. Update Redis Store and publish Invalidation Event
+        globalCacheGameService.selectCard(roomId, userId, cardValue);
+
+        // 2. Our own copy is stale right away, don't wait for the event to come back
+        evict(roomId);
+    }
+
+    @Override
+    public void createRooms(List<String> roomIds) {
+        log.debug("createRooms");
+        globalCacheGameService.createRooms(roomIds);
+        globalCacheGameService.publishInvalidations(roomIds);
+        roomIds.forEach(this::evict);
+    }
+
+    @Override
+    public void selectCards(List<CardSelection> selections) {
+        log.debug("selectCards");
+
+        // 1. Update Redis Store and publish Invalidation Events in one go
+        globalCacheGameService.selectCards(selections);
+
+        // 2. Our own copies are stale right away
+        for (CardSelection selection : selections) {
+            evict(selection.roomId());
+        }
+    }
+
+    @Override
+    public GameRoom getGameRoom(String roomId) {
+        log.debug("getGameRoom");
+
+        GameRoom room = nearCache.getIfPresent(roomId);
+        if (room != null) {
+            hitCounter.increment();
+            return room;
+        }
+        missCounter.increment();
+
+        Watch watch = watch(roomId);
+        room = null;
+        try {
+            room = globalCacheGameService.getGameRoom(roomId);
+            if (room != null) {
+                cacheIfCurrent(roomId, watch, room);
+            }
+            return room;
+        } finally {
+            if (room == null) {
+                // Missing room or failed read: nothing cached to watch
+                release(roomId, watch);
+            }
+        }
+    }
+
+    // Eviction may unsubscribe from the room's channel, a blocking call kept off the Redis I/O thread
+    @Override
+    public CompletableFuture<Void> createRoomAsync(String roomId) {
+        return globalCacheGameService.createRoomAsync(roomId)
+                .thenCompose(ignored -> globalCacheGameService.publishInvalidationAsync(roomId))
+                .thenRunAsync(() -> evict(roomId));
+    }
+
+    @Override
+    public CompletableFuture<Void> selectCardAsync(String roomId, String userId, String cardValue) {
+        log.debug("selectCardAsync");
+        return globalCacheGameService.selectCardAsync(roomId, userId, cardValue).thenRunAsync(() -> evict(roomId));
+    }
+
+    @Override
+    public CompletableFuture<GameRoom> getGameRoomAsync(String roomId) {
+        log.debug("getGameRoomAsync");
+
+        GameRoom cached = nearCache.getIfPresent(roomId);
+        if (cached != null) {
+            hitCounter.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        missCounter.increment();
+
+        // Same steps as getGameRoom, the L1 copy is stored when the Redis read completes
+        Watch watch = watch(roomId);
+        return globalCacheGameService.getGameRoomAsync(roomId).whenComplete((room, e) -> {
+            if (room != null) {
+                cacheIfCurrent(roomId, watch, room);
+            } else {
+                // Unsubscribing blocks, kept off the Redis I/O thread
+                CompletableFuture.runAsync(() -> release(roomId, watch));
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        log.debug("onMessage");
+
+        try {
+            GameEvent received = (GameEvent) redisTemplate.getValueSerializer().deserialize(message.getBody());
+            eventPublisher.recordReceived(getListenerName(), message, received);
+            received.unbatch().forEach(this::onEvent);
+        } catch (SerializationException e) {
+            log.error("Error parsing message", e);
+        }
+    }
+
+    @Override
+    public String getListenerName() {
+        return "hybrid";
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        if (event.getType() == GameEvent.Type.INVALIDATE) {
+            log.debug("[Hybrid Cache Service] Received Invalidation Event for Room: {}. Evicting L1 cache.",
+                    event.getRoomId());
+            evict(event.getRoomId());
+            invalidationCounter.increment();
+            applicationEventPublisher.publishEvent(new RoomChangedEvent(this, event.getRoomId(), event));
+        }
+    }
+
+    @Override
+    public void watchRoom(String roomId) {
+        globalCacheGameService.watchRoom(roomId);
+    }
+
+    @Override
+    public void unwatchRoom(String roomId) {
+        globalCacheGameService.unwatchRoom(roomId);
+    }
+
+    // Subscribes before reading, so an invalidation of what we are about to cache can't be missed.
+    // The load that adds the watch subscribes, the others wait for it: nobody reads the room before it is watched.
+    private Watch watch(String roomId) {
+        Watch created = new Watch();
+        Watch watch = watchedRooms.putIfAbsent(roomId, created);
+        if (watch == null) {
+            watch = created;
+            try {
+                globalCacheGameService.watchRoom(roomId);
+                watch.subscribed.complete(null);
+            } catch (RuntimeException e) {
+                watchedRooms.remove(roomId, watch);
+                watch.subscribed.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            watch.subscribed.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return watch;
+    }
+
+    private void cacheIfCurrent(String roomId, Watch watch, GameRoom room) {
+        // An INVALIDATE arrived (or the room was dropped) while we were reading from Redis, the room may be stale
+        watchedRooms.computeIfPresent(roomId, (id, current) -> {
+            if (current == watch) {
+                nearCache.put(id, room);
+            }
+            return current;
+        });
+    }
+
+    private void evict(String roomId) {
+        Watch[] removed = new Watch[1];
+        watchedRooms.computeIfPresent(roomId, (id, watch) -> {
+            nearCache.invalidate(id);
+            removed[0] = watch;
+            return null;
+        });
+        // Nothing cached any more, the next miss subscribes again
+        if (removed[0] != null) {
+            unwatch(roomId, removed[0]);
+        }
+    }
+
+    // Evicted for size or idleness: stop watching, unless a load stored the room again in the meantime
+    private void unwatchIfNotCached(String roomId) {
+        Watch[] removed = new Watch[1];
+        watchedRooms.computeIfPresent(roomId, (id, watch) -> {
+            if (nearCache.asMap().containsKey(id)) {
+                return watch;
+            }
+            removed[0] = watch;
+            return null;
+        });
+        if (removed[0] != null) {
+            unwatch(roomId, removed[0]);
+        }
+    }
+
+    // A load that cached nothing gives the watch back, unless a copy was stored or a newer load replaced it
+    private void release(String roomId, Watch watch) {
+        boolean[] removed = new boolean[1];
+        watchedRooms.computeIfPresent(roomId, (id, current) -> {
+            if (current != watch || nearCache.asMap().containsKey(id)) {
+                return current;
+            }
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            unwatch(roomId, watch);
+        }
+    }
+
+    // Unsubscribes once the watch's SUBSCRIBE went through, which may still be running on the loading thread
+    private void unwatch(String roomId, Watch watch) {
+        watch.subscribed.whenComplete((ignored, e) -> {
+            if (e == null) {
+                globalCacheGameService.unwatchRoom(roomId);
+            }
+        });
+    }
+}
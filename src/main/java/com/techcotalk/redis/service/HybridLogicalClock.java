@@ -0,0 +1,24 @@
+package com.techcotalk.redis.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hybrid logical clock: wall clock millis in the upper 48 bits, a counter in the lower 16.
+// Ticks never go backwards and always move past every timestamp seen from other nodes, so a change made
+// after seeing another node's change is stamped later than it, even if this node's wall clock is behind.
+class HybridLogicalClock {
+
+    private static final int LOGICAL_BITS = 16;
+
+    private final AtomicLong last = new AtomicLong();
+
+    // Timestamp for a local change
+    long tick() {
+        long physical = System.currentTimeMillis() << LOGICAL_BITS;
+        return last.updateAndGet(previous -> Math.max(physical, previous + 1));
+    }
+
+    // Merges a timestamp received from another node
+    void observe(long remote) {
+        last.accumulateAndGet(remote, Math::max);
+    }
+}
@@ -1,78 +1,318 @@
 package com.techcotalk.redis.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.techcotalk.redis.domain.dto.CardSelection;
+import com.techcotalk.redis.domain.dto.CardStamp;
 import com.techcotalk.redis.domain.dto.GameEvent;
 import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.LocalCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
-public class LocalCacheGameService implements GameService, MessageListener {
+public class LocalCacheGameService implements GameService, AsyncGameService, GameEventListener, MessageListener {
 
     private final RedisTemplate<String, Object> redisTemplate;
     private final ChannelTopic topic;
-    private final ObjectMapper objectMapper;
+    private final WriteBehindBuffer writeBehindBuffer;
+    private final GameEventPublisher eventPublisher;
+    private final RoomSubscriptionRegistry roomSubscriptions;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final LocalChangeLog changeLog;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter offHeapFallbackCounter;
+
+    // OFF_HEAP storage only
+    private final OffHeapRoomArena offHeapArena;
+
+    // Ownership mode only
+    private static final String OWNER_KEY_PREFIX = "localcache:owner:";
+    private final RoomLeases leases;
+    private final Duration ownerLease;
+    private final Duration forwardTimeout;
+    private final ScheduledExecutorService leaseRenewer;
+    private final Counter forwardCounter;
+    private final Counter takeoverCounter;
+    private final Counter lostCounter;
 
     public LocalCacheGameService(RedisTemplate<String, Object> redisTemplate,
             @org.springframework.beans.factory.annotation.Qualifier("localCacheTopic") ChannelTopic topic,
-            ObjectMapper objectMapper) {
+            LocalCacheProperties properties,
+            WriteBehindBuffer writeBehindBuffer,
+            GameEventPublisher eventPublisher,
+            RoomSubscriptionRegistry roomSubscriptions,
+            ApplicationEventPublisher applicationEventPublisher,
+            MeterRegistry meterRegistry,
+            LocalChangeLog changeLog) {
         this.redisTemplate = redisTemplate;
         this.topic = topic;
-        this.objectMapper = objectMapper;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.eventPublisher = eventPublisher;
+        this.roomSubscriptions = roomSubscriptions;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.changeLog = changeLog;
+        this.hitCounter = meterRegistry.counter("game.cache.requests", "strategy", "local", "result", "hit");
+        this.missCounter = meterRegistry.counter("game.cache.requests", "strategy", "local", "result", "miss");
+        this.offHeapFallbackCounter = meterRegistry.counter("game.local-cache.off-heap.fallbacks");
+        this.offHeapArena = properties.getStorage() == LocalCacheProperties.Storage.OFF_HEAP
+                ? new OffHeapRoomArena(properties.getOffHeapSlotSize(), properties.getOffHeapMaxSize().toBytes(),
+                        meterRegistry)
+                : null;
+        this.ownerLease = properties.getOwnerLease();
+        this.forwardTimeout = properties.getForwardTimeout();
+        this.forwardCounter = meterRegistry.counter("game.local-cache.ownership.forwards");
+        this.takeoverCounter = meterRegistry.counter("game.local-cache.ownership.takeovers");
+        this.lostCounter = meterRegistry.counter("game.local-cache.ownership.lost");
+        if (properties.isOwnership()) {
+            this.leases = new RoomLeases(redisTemplate, OWNER_KEY_PREFIX, nodeId);
+            meterRegistry.gaugeCollectionSize("game.local-cache.ownership.rooms", Tags.empty(), ownedRooms);
+            this.leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "local-cache-leases");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long renewMillis = Math.max(1, ownerLease.toMillis() / 3);
+            leaseRenewer.scheduleWithFixedDelay(this::renewLeases, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.leases = null;
+            this.leaseRenewer = null;
+        }
+        // Sends the deltas of selectCardAsync, in the order their stripes queued them
+        this.publishExecutor = Executors.newFixedThreadPool(PUBLISH_THREADS, r -> {
+            Thread thread = new Thread(r, "local-cache-publish");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Local Memory Storage (bounded by size and idle time, frequency-aware eviction)
+        // A cached room keeps this node subscribed to its events until it is evicted
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterAccess(properties.getExpireAfterAccess())
+                .<String, ReplicatedRoom>removalListener((roomId, room, cause) -> {
+                    room.release();
+                    if (cause != RemovalCause.REPLACED) {
+                        unwatchRoom(roomId);
+                        // Nothing left to apply writes to, the next node writing the room takes it over
+                        dropOwnership(roomId);
+                    }
+                })
+                .build();
+    }
+
+    private final Cache<String, ReplicatedRoom> localCache;
+
+    // Identifies this node as the origin of the deltas it publishes
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Stamps every card this node writes, concurrent writes of the same card on different nodes resolve to the later one
+    private final HybridLogicalClock clock = new HybridLogicalClock();
+
+    // Ownership mode: rooms this node holds the lease of, and the selections it forwarded, by request id
+    private final Set<String> ownedRooms = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Void>> forwarded = new ConcurrentHashMap<>();
+    // Forwarded selections whose delta didn't land on our replica as is: roomId -> waiting for the owner's snapshot
+    private final Map<String, List<AwaitedSnapshot>> awaitingSnapshots = new ConcurrentHashMap<>();
+    private final RoomStripe[] stripes = newStripes(64);
+
+    private static final int PUBLISH_THREADS = 4;
+    private final ExecutorService publishExecutor;
+
+    private record AwaitedSnapshot(String ownerId, long version, CompletableFuture<Void> applied) {
     }
 
-    // Local Memory Storage
-    private final Map<String, GameRoom> localCache = new ConcurrentHashMap<>();
+    // Deltas leaving together, one message per channel
+    private record Outgoing(List<GameEvent> events, CompletableFuture<Void> published) {
+    }
+
+    // The deltas this node writes to the rooms of a stripe: applied under the monitor, queued in version order,
+    // and sent by one thread at a time once the monitor is released, so a slow PUBLISH doesn't hold up the writers.
+    // Receivers see every origin's deltas of a room in version order and don't have to ask for a resync.
+    private static final class RoomStripe {
+        private final Queue<Outgoing> outbox = new ArrayDeque<>(); // guarded by this
+        private final ReentrantLock publishLock = new ReentrantLock();
+    }
 
     @Override
     public String getStrategyName() {
-        return "Local Cache + Redis Pub/Sub (Payload)";
+        return "Local Cache + Redis Pub/Sub (Delta)";
     }
 
     @Override
     public void createRoom(String roomId) {
         log.debug("createRoom");
-        localCache.put(roomId, GameRoom.builder().roomId(roomId).build());
+
+        if (leases != null) {
+            await(createOwned(roomId));
+            return;
+        }
+
+        // Taken before the room exists, every card of the new room is stamped later
+        long createdAt = clock.tick();
+        // Subscribe before the room can receive events, a replaced room was already watched
+        watchRoom(roomId);
+        ReplicatedRoom room = newRoom(GameRoom.builder().roomId(roomId).build(), false);
+        if (localCache.asMap().put(roomId, room) != null) {
+            unwatchRoom(roomId);
+        }
+        writeBehindBuffer.recordRoom(roomId);
+        // Nodes restoring from the change log learn about the (still empty) room too. As a reset: whatever the log
+        // holds of the room it replaced is stamped before it and dropped
+        if (changeLog.isEnabled()) {
+            GameEvent reset = snapshotEvent(roomId, room);
+            reset.setTimestamp(createdAt);
+            changeLog.append(reset);
+        }
     }
 
     @Override
     public void selectCard(String roomId, String userId, String cardValue) {
         log.debug("selectCard");
 
-        // 1. Update Local Cache
-        GameRoom room = localCache.get(roomId);
-        if (room == null) {
-            // In a real scenario, we might need to fetch from a persistent store if not in
-            // local cache
-            // For this demo, we assume it must exist.
-            log.warn("Room {} not found in local cache, creating new for demo", roomId);
-            room = GameRoom.builder().roomId(roomId).build();
-            localCache.put(roomId, room);
+        if (leases != null) {
+            await(selectOwned(roomId, userId, cardValue));
+            return;
         }
-        room.selectCard(userId, cardValue);
 
-        // 2. Publish Payload Event (Fire and Forget)
-        // We send the ENTIRE room state or just the delta. Here we send the room state
-        // for simplicity.
-        GameEvent event = GameEvent.builder().type(GameEvent.Type.PAYLOAD).roomId(roomId).payload(room).build();
-        redisTemplate.convertAndSend(topic.getTopic(), event);
+        RoomStripe stripe = stripeOf(roomId);
+        Outgoing outgoing = enqueue(stripe, List.of(new CardSelection(roomId, userId, cardValue)));
+        publishQueued(stripe);
+        await(outgoing.published());
+        changeLog.append(outgoing.events());
+        applicationEventPublisher.publishEvent(new RoomChangedEvent(this, roomId, outgoing.events().get(0)));
+    }
+
+    @Override
+    public void selectCards(List<CardSelection> selections) {
+        log.debug("selectCards");
+
+        if (leases != null) {
+            // Every selection goes to its room's owner, the forwarded ones are awaited together
+            List<CompletableFuture<Void>> applied = new ArrayList<>(selections.size());
+            for (CardSelection selection : selections) {
+                applied.add(selectOwned(selection.roomId(), selection.userId(), selection.cardValue()));
+            }
+            await(CompletableFuture.allOf(applied.toArray(CompletableFuture[]::new)));
+            return;
+        }
+
+        // Every delta is kept (receivers need each version), they leave as one message per stripe and channel
+        Map<RoomStripe, List<CardSelection>> byStripe = new LinkedHashMap<>();
+        for (CardSelection selection : selections) {
+            byStripe.computeIfAbsent(stripeOf(selection.roomId()), s -> new ArrayList<>()).add(selection);
+        }
+        List<Outgoing> outgoing = new ArrayList<>(byStripe.size());
+        byStripe.forEach((stripe, stripeSelections) -> outgoing.add(enqueue(stripe, stripeSelections)));
+        byStripe.keySet().forEach(this::publishQueued);
+        await(CompletableFuture.allOf(outgoing.stream().map(Outgoing::published).toArray(CompletableFuture[]::new)));
+
+        List<GameEvent> events = outgoing.stream().flatMap(o -> o.events().stream()).toList();
+        changeLog.append(events);
+        for (GameEvent event : events) {
+            applicationEventPublisher.publishEvent(new RoomChangedEvent(this, event.getRoomId(), event));
+        }
     }
 
     @Override
     public GameRoom getGameRoom(String roomId) {
         log.debug("getGameRoom");
 
-        return localCache.get(roomId);
+        ReplicatedRoom room = localCache.getIfPresent(roomId);
+        if (room == null) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return room.gameRoom();
+    }
+
+    // The room lives in memory, only the delta's publish waits on Redis
+    @Override
+    public CompletableFuture<Void> createRoomAsync(String roomId) {
+        try {
+            if (leases != null) {
+                return createOwned(roomId);
+            }
+            createRoom(roomId);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> selectCardAsync(String roomId, String userId, String cardValue) {
+        log.debug("selectCardAsync");
+
+        if (leases != null) {
+            try {
+                return selectOwned(roomId, userId, cardValue);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        RoomStripe stripe = stripeOf(roomId);
+        Outgoing outgoing;
+        try {
+            outgoing = enqueue(stripe, List.of(new CardSelection(roomId, userId, cardValue)));
+            // The caller's thread doesn't wait for the PUBLISH, one of ours sends it after what the stripe queued before
+            publishExecutor.execute(() -> publishQueued(stripe));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        GameEvent event = outgoing.events().get(0);
+        changeLog.append(event);
+        applicationEventPublisher.publishEvent(new RoomChangedEvent(this, roomId, event));
+        return outgoing.published();
+    }
+
+    @Override
+    public CompletableFuture<GameRoom> getGameRoomAsync(String roomId) {
+        return CompletableFuture.completedFuture(getGameRoom(roomId));
+    }
+
+    @Override
+    public void watchRoom(String roomId) {
+        roomSubscriptions.acquire(topic, roomId);
+    }
+
+    @Override
+    public void unwatchRoom(String roomId) {
+        roomSubscriptions.release(topic, roomId);
     }
 
     @Override
@@ -80,17 +320,576 @@ public class LocalCacheGameService implements GameService, MessageListener {
         log.debug("onMessage");
 
         try {
-            GameEvent event = objectMapper.readValue(message.getBody(), GameEvent.class);
-            if (event.getType() == GameEvent.Type.PAYLOAD) {
+            GameEvent received = (GameEvent) redisTemplate.getValueSerializer().deserialize(message.getBody());
+            eventPublisher.recordReceived(getListenerName(), message, received);
+            received.unbatch().forEach(this::onEvent);
+        } catch (SerializationException e) {
+            log.error("Error parsing message", e);
+        }
+    }
+
+    // Warm start: applies an entry of the change log (a room snapshot or a delta) without publishing anything.
+    // Restored rooms are watched like any other cached room.
+    void restore(GameEvent event) {
+        ReplicatedRoom room = cachedOrNew(event.getRoomId(), true);
+        if (event.getType() == GameEvent.Type.DELTA) {
+            clock.observe(event.getTimestamp());
+            room.restore(event.getOriginId(), event.getVersion(), event.getUserId(), event.getCardValue(),
+                    new CardStamp(event.getTimestamp(), event.getOriginId()));
+        } else if (event.getPayload() != null) {
+            if (event.getStamps() != null) {
+                event.getStamps().values().forEach(stamp -> clock.observe(stamp.time()));
+            }
+            if (LocalChangeLog.isReset(event)) {
+                clock.observe(event.getTimestamp());
+                room = withoutCardsBefore(event.getRoomId(), room, event.getTimestamp());
+            }
+            room.applySnapshot(null, 0, event.getPayload(), event.getStamps());
+        }
+    }
+
+    // The room was re-created at resetAt: it is swapped for a room holding only the cards written after that
+    private ReplicatedRoom withoutCardsBefore(String roomId, ReplicatedRoom room, long resetAt) {
+        // Swapped even when no card is dropped: the versions seen of the old room don't apply to the new one
+        GameEvent kept = LocalChangeLog.withoutCardsBefore(roomId, room.snapshot(), resetAt);
+        ReplicatedRoom fresh = newRoom(GameRoom.builder().roomId(roomId).build(), true);
+        fresh.applySnapshot(null, 0, kept.getPayload(), kept.getStamps());
+        if (localCache.asMap().replace(roomId, room, fresh)) {
+            return fresh;
+        }
+        fresh.release(); // changed meanwhile, keep what is cached
+        return room;
+    }
+
+    private ReplicatedRoom newRoom(GameRoom room, boolean restored) {
+        if (offHeapArena != null) {
+            ReplicatedRoom offHeap = OffHeapReplicatedRoom.allocate(offHeapArena, room, restored);
+            if (offHeap != null) {
+                return offHeap;
+            }
+            // Arena full (or the room is larger than a slot): this room lives on the heap
+            offHeapFallbackCounter.increment();
+        }
+        return new ReplicatedRoom(room, restored);
+    }
+
+    // Applies the selections to the local copies and queues their deltas on the stripe, in version order.
+    // The rooms are looked up first, a missing one is subscribed to without holding the stripe.
+    private Outgoing enqueue(RoomStripe stripe, List<CardSelection> selections) {
+        List<ReplicatedRoom> rooms = new ArrayList<>(selections.size());
+        for (CardSelection selection : selections) {
+            rooms.add(roomFor(selection.roomId()));
+        }
+        synchronized (stripe) {
+            List<GameEvent> events = new ArrayList<>(selections.size());
+            for (int i = 0; i < selections.size(); i++) {
+                CardSelection selection = selections.get(i);
+                events.add(applySelection(rooms.get(i), selection.roomId(), selection.userId(), selection.cardValue()));
+            }
+            Outgoing outgoing = new Outgoing(events, new CompletableFuture<>());
+            stripe.outbox.add(outgoing);
+            return outgoing;
+        }
+    }
+
+    // 1. The room's Local Cache copy
+    private ReplicatedRoom roomFor(String roomId) {
+        ReplicatedRoom room = localCache.getIfPresent(roomId);
+        if (room != null) {
+            hitCounter.increment();
+        } else {
+            missCounter.increment();
+            // In a real scenario, we might need to fetch from a persistent store if not in
+            // local cache
+            // For this demo, we assume it must exist.
+            log.warn("Room {} not found in local cache, creating new for demo", roomId);
+            room = cachedOrNew(roomId, false);
+        }
+        return room;
+    }
+
+    // The cached room, or a new empty one. Its channel is subscribed to before the room is cached, but outside the
+    // cache's lock: a blocking SUBSCRIBE in the loader would hold up every other room of the same bin
+    private ReplicatedRoom cachedOrNew(String roomId, boolean restored) {
+        ReplicatedRoom room = localCache.getIfPresent(roomId);
+        if (room != null) {
+            return room;
+        }
+        watchRoom(roomId);
+        boolean[] created = new boolean[1];
+        try {
+            return localCache.get(roomId, id -> {
+                ReplicatedRoom loaded = newRoom(GameRoom.builder().roomId(id).build(), restored);
+                created[0] = true;
+                return loaded;
+            });
+        } finally {
+            if (!created[0]) {
+                unwatchRoom(roomId); // cached by someone else meanwhile, who watches it
+            }
+        }
+    }
+
+    private GameEvent applySelection(ReplicatedRoom room, String roomId, String userId, String cardValue) {
+        long timestamp = clock.tick();
+        long version = room.selectCard(userId, cardValue, new CardStamp(timestamp, nodeId));
+        writeBehindBuffer.recordCard(roomId, userId, cardValue);
+
+        // 2. Build Delta Event (Fire and Forget)
+        // Only the changed entry travels, receivers apply it in version order and keep the later write of a card.
+        return GameEvent.builder()
+                .type(GameEvent.Type.DELTA)
+                .roomId(roomId)
+                .originId(nodeId)
+                .version(version)
+                .timestamp(timestamp)
+                .userId(userId)
+                .cardValue(cardValue)
+                .build();
+    }
+
+    @Override
+    public String getListenerName() {
+        return "local";
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        if (nodeId.equals(event.getOriginId())) {
+            return; // our own event, already applied
+        }
+        if (event.getType() == GameEvent.Type.FORWARD) {
+            onForward(event);
+            return;
+        }
+
+        // Ownership mode: the owner's delta for a selection this node forwarded, or its reset for a forwarded create
+        CompletableFuture<Void> forwardedSelection = event.getRequestId() != null
+                && (event.getType() == GameEvent.Type.DELTA || event.getType() == GameEvent.Type.PAYLOAD)
+                ? forwarded.get(event.getRequestId()) : null;
+
+        // Only rooms this node already holds are synced.
+        // Rooms we have never seen (or already evicted) must not be pulled back in by other nodes.
+        ReplicatedRoom room = localCache.getIfPresent(event.getRoomId());
+        if (room == null && forwardedSelection != null && LocalChangeLog.isReset(event)) {
+            // The reset holds the whole (new) room, it becomes this node's replica
+            room = cachedOrNew(event.getRoomId(), true);
+        }
+        if (room == null) {
+            if (forwardedSelection != null) {
+                // The replica was evicted while the selection was on its way, the owner sends the room again
+                replicaOf(event.getRoomId(), event.getOriginId());
+                awaitSnapshot(event, forwardedSelection);
+                return;
+            }
+            log.debug("[Local Cache Service] Room {} is not cached on this node. Skipping {} event.",
+                    event.getRoomId(), event.getType());
+            return;
+        }
+
+        switch (event.getType()) {
+            case DELTA -> {
+                ReplicatedRoom.DeltaResult result = applyDelta(room, event);
+                if (forwardedSelection == null) {
+                    return;
+                }
+                // Our replica reads the selection now. Otherwise (a gap, or a delta it can't tell whether it holds
+                // already) only the owner's snapshot shows the selection for sure.
+                if (result == ReplicatedRoom.DeltaResult.APPLIED || result == ReplicatedRoom.DeltaResult.SUPERSEDED) {
+                    forwardedSelection.complete(null);
+                } else {
+                    awaitSnapshot(event, forwardedSelection);
+                }
+            }
+            case PAYLOAD -> {
                 log.debug("[Local Cache Service] Received Payload Event for Room: {}. Syncing local cache.",
                         event.getRoomId());
-                // Sync local cache with the payload
                 if (event.getPayload() != null) {
-                    localCache.put(event.getRoomId(), event.getPayload());
+                    if (event.getStamps() != null) {
+                        event.getStamps().values().forEach(stamp -> clock.observe(stamp.time()));
+                    }
+                    // Ownership mode: the owner re-created the room, the cards written before that are dropped
+                    boolean reset = LocalChangeLog.isReset(event);
+                    if (reset) {
+                        clock.observe(event.getTimestamp());
+                        room = withoutCardsBefore(event.getRoomId(), room, event.getTimestamp());
+                    }
+                    if (room.applySnapshot(event.getOriginId(), event.getVersion(), event.getPayload(),
+                            event.getStamps()) || reset) {
+                        applicationEventPublisher.publishEvent(new RoomChangedEvent(this, event.getRoomId(), event));
+                    }
+                    snapshotApplied(room, event);
+                    if (forwardedSelection != null) {
+                        forwardedSelection.complete(null);
+                    }
                 }
             }
-        } catch (IOException e) {
-            log.error("Error parsing message", e);
+            case RESYNC -> {
+                if (nodeId.equals(event.getTargetId())) {
+                    publishSnapshot(event.getRoomId(), room);
+                }
+            }
+            default -> {
+            }
         }
     }
+
+    private ReplicatedRoom.DeltaResult applyDelta(ReplicatedRoom room, GameEvent event) {
+        clock.observe(event.getTimestamp());
+        ReplicatedRoom.DeltaResult result = room.applyDelta(event.getOriginId(), event.getVersion(),
+                event.getUserId(), event.getCardValue(), new CardStamp(event.getTimestamp(), event.getOriginId()));
+        if (result == ReplicatedRoom.DeltaResult.APPLIED) {
+            applicationEventPublisher.publishEvent(new RoomChangedEvent(this, event.getRoomId(), event));
+        } else if (result == ReplicatedRoom.DeltaResult.GAP) {
+            // We missed at least one delta from this origin, ask it for the full room instead
+            log.info("[Local Cache Service] Gap detected for Room: {} from {} at version {}. Requesting resync.",
+                    event.getRoomId(), event.getOriginId(), event.getVersion());
+            requestResync(room, event.getRoomId(), event.getOriginId());
+        }
+        return result;
+    }
+
+    // Unless one is in flight already
+    private void requestResync(ReplicatedRoom room, String roomId, String originId) {
+        if (room.markResyncRequested(originId)) {
+            eventPublisher.publish(topic, GameEvent.builder()
+                    .type(GameEvent.Type.RESYNC)
+                    .roomId(roomId)
+                    .originId(nodeId)
+                    .targetId(originId)
+                    .build());
+        }
+    }
+
+    // The forwarded selection completes once a snapshot of the owner at its delta's version or later is applied
+    private void awaitSnapshot(GameEvent delta, CompletableFuture<Void> applied) {
+        awaitingSnapshots.compute(delta.getRoomId(), (roomId, awaited) -> {
+            List<AwaitedSnapshot> list = awaited != null ? awaited : new ArrayList<>();
+            list.add(new AwaitedSnapshot(delta.getOriginId(), delta.getVersion(), applied));
+            return list;
+        });
+        ReplicatedRoom room = localCache.getIfPresent(delta.getRoomId());
+        if (room != null) {
+            requestResync(room, delta.getRoomId(), delta.getOriginId());
+        }
+    }
+
+    private void snapshotApplied(ReplicatedRoom room, GameEvent snapshot) {
+        if (snapshot.getOriginId() == null || awaitingSnapshots.isEmpty()) {
+            return;
+        }
+        List<AwaitedSnapshot> covered = new ArrayList<>();
+        boolean[] behind = new boolean[1];
+        awaitingSnapshots.computeIfPresent(snapshot.getRoomId(), (roomId, awaited) -> {
+            awaited.removeIf(waiting -> {
+                if (waiting.applied().isDone()) {
+                    return true; // timed out
+                }
+                if (!waiting.ownerId().equals(snapshot.getOriginId())) {
+                    return false;
+                }
+                if (waiting.version() <= snapshot.getVersion()) {
+                    covered.add(waiting);
+                    return true;
+                }
+                behind[0] = true;
+                return false;
+            });
+            return awaited.isEmpty() ? null : awaited;
+        });
+        covered.forEach(waiting -> waiting.applied().complete(null));
+        if (behind[0]) {
+            // The owner answered a RESYNC sent before the selection, ask again
+            requestResync(room, snapshot.getRoomId(), snapshot.getOriginId());
+        }
+    }
+
+    // Ownership mode: the owner applies the selection itself, any other node forwards it to the owner
+    private CompletableFuture<Void> selectOwned(String roomId, String userId, String cardValue) {
+        String owner = ownerOf(roomId);
+        if (nodeId.equals(owner)) {
+            applyAsOwner(roomId, userId, cardValue, null);
+            return CompletableFuture.completedFuture(null);
+        }
+        return forward(roomId, userId, cardValue, owner);
+    }
+
+    // Ownership mode: the node creating a room owns it, unless another node does already, which then re-creates it.
+    // Re-creating only the local replica would leave the owner (and every other replica) with the old cards.
+    private CompletableFuture<Void> createOwned(String roomId) {
+        // A second round in case the lease expired between trying to take it and reading it
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (ownedRooms.contains(roomId) || leases.acquire(roomId, ownerLease)) {
+                ownedRooms.add(roomId);
+                createAsOwner(roomId, null);
+                return CompletableFuture.completedFuture(null);
+            }
+            String owner = leases.owner(roomId);
+            if (owner != null) {
+                return forward(roomId, null, null, owner);
+            }
+        }
+        throw new RuntimeException("Room " + roomId + " has no owner");
+    }
+
+    // Node id of the room's owner, this node takes the lease when nobody holds it
+    private String ownerOf(String roomId) {
+        if (ownedRooms.contains(roomId)) {
+            return nodeId;
+        }
+        // A second round in case the lease expired between reading it and trying to take it
+        for (int attempt = 0; attempt < 2; attempt++) {
+            String owner = leases.owner(roomId);
+            if (owner == null && leases.acquire(roomId, ownerLease)) {
+                owner = nodeId;
+                takeoverCounter.increment();
+                log.debug("[Local Cache Service] Taking ownership of Room: {}", roomId);
+            }
+            if (nodeId.equals(owner) && ownedRooms.add(roomId)) {
+                adoptRoom(roomId);
+            }
+            if (owner != null) {
+                return owner;
+            }
+        }
+        throw new RuntimeException("Room " + roomId + " has no owner");
+    }
+
+    // A node taking a room over continues from the room's cards, from its replica or else from the change log.
+    // With neither, the write fails: accepting it on an empty room would wipe the room on every replica.
+    private void adoptRoom(String roomId) {
+        if (localCache.getIfPresent(roomId) != null) {
+            return;
+        }
+        if (changeLog.isEnabled() && changeLog.replay(roomId, this::restore)) {
+            log.info("[Local Cache Service] Restored Room: {} from the change log to take it over", roomId);
+            return;
+        }
+        dropOwnership(roomId);
+        throw new RuntimeException("Room " + roomId + " not found");
+    }
+
+    // One writer per room: selections are applied and queued under the room's stripe, so the deltas leave in
+    // version order whether they come from this node's callers or from forwarding nodes. The PUBLISH itself
+    // happens after the stripe is released.
+    private void applyAsOwner(String roomId, String userId, String cardValue, String requestId) {
+        RoomStripe stripe = stripeOf(roomId);
+        Outgoing outgoing;
+        synchronized (stripe) {
+            ReplicatedRoom room = localCache.getIfPresent(roomId);
+            if (room == null) {
+                // Evicted, which gave up the lease too
+                throw new RuntimeException("Room " + roomId + " not found");
+            }
+            hitCounter.increment();
+            GameEvent event = applySelection(room, roomId, userId, cardValue);
+            event.setRequestId(requestId);
+            outgoing = new Outgoing(List.of(event), new CompletableFuture<>());
+            stripe.outbox.add(outgoing);
+        }
+        publishQueued(stripe);
+        await(outgoing.published());
+        changeLog.append(outgoing.events());
+        applicationEventPublisher.publishEvent(new RoomChangedEvent(this, roomId, outgoing.events().get(0)));
+    }
+
+    // The owner swaps in the new room under the stripe like a selection, and sends it as a reset: replicas drop
+    // every card stamped before it, and the owner's next deltas start over at version 1 on the new room.
+    private void createAsOwner(String roomId, String requestId) {
+        RoomStripe stripe = stripeOf(roomId);
+        // Subscribe outside the stripe, a replaced room was already watched
+        watchRoom(roomId);
+        Outgoing outgoing;
+        ReplicatedRoom previous;
+        synchronized (stripe) {
+            long createdAt = clock.tick();
+            ReplicatedRoom room = newRoom(GameRoom.builder().roomId(roomId).build(), false);
+            previous = localCache.asMap().put(roomId, room);
+            GameEvent reset = snapshotEvent(roomId, room);
+            reset.setTimestamp(createdAt);
+            reset.setRequestId(requestId);
+            outgoing = new Outgoing(List.of(reset), new CompletableFuture<>());
+            stripe.outbox.add(outgoing);
+        }
+        if (previous != null) {
+            unwatchRoom(roomId);
+        }
+        writeBehindBuffer.recordRoom(roomId);
+        publishQueued(stripe);
+        await(outgoing.published());
+        changeLog.append(outgoing.events());
+        applicationEventPublisher.publishEvent(new RoomChangedEvent(this, roomId, outgoing.events().get(0)));
+    }
+
+    // Whoever gets the publish lock sends everything queued so far, in order. By the time a caller gets it, its
+    // own delta is either sent already or still queued, so it has been sent when this returns.
+    private void publishQueued(RoomStripe stripe) {
+        stripe.publishLock.lock();
+        try {
+            while (true) {
+                Outgoing next;
+                synchronized (stripe) {
+                    next = stripe.outbox.poll();
+                }
+                if (next == null) {
+                    return;
+                }
+                try {
+                    eventPublisher.publishAll(topic, next.events());
+                    next.published().complete(null);
+                } catch (RuntimeException e) {
+                    next.published().completeExceptionally(e);
+                }
+            }
+        } finally {
+            stripe.publishLock.unlock();
+        }
+    }
+
+    // Hands the selection (or, without a userId, the create) to the owner. Completes once the owner's delta or
+    // reset for it has been applied here, so this node reads its own write afterwards
+    private CompletableFuture<Void> forward(String roomId, String userId, String cardValue, String owner) {
+        forwardCounter.increment();
+        // A create needs no resync, the owner's reset brings the whole room
+        if (userId != null && localCache.getIfPresent(roomId) == null) {
+            replicaOf(roomId, owner);
+        }
+
+        String requestId = UUID.randomUUID().toString();
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        forwarded.put(requestId, applied);
+        try {
+            eventPublisher.publish(topic, GameEvent.builder()
+                    .type(GameEvent.Type.FORWARD)
+                    .roomId(roomId)
+                    .originId(nodeId)
+                    .targetId(owner)
+                    .userId(userId)
+                    .cardValue(cardValue)
+                    .requestId(requestId)
+                    .build());
+        } catch (RuntimeException e) {
+            forwarded.remove(requestId);
+            throw e;
+        }
+        return applied.orTimeout(forwardTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((ignored, e) -> {
+                    forwarded.remove(requestId);
+                    awaitingSnapshots.computeIfPresent(roomId, (id, awaited) -> {
+                        awaited.removeIf(waiting -> waiting.applied() == applied);
+                        return awaited.isEmpty() ? null : awaited;
+                    });
+                    if (e != null) {
+                        throw new CompletionException(
+                                new RuntimeException("Owner of room " + roomId + " did not apply the "
+                                        + (userId != null ? "selection" : "create") + " in time", e));
+                    }
+                    return null;
+                });
+    }
+
+    // Keeps a replica for reads, the owner sends the cards it has so far
+    private void replicaOf(String roomId, String owner) {
+        ReplicatedRoom room = cachedOrNew(roomId, true);
+        requestResync(room, roomId, owner);
+    }
+
+    private void onForward(GameEvent event) {
+        if (!nodeId.equals(event.getTargetId())) {
+            return;
+        }
+        if (leases == null || !ownedRooms.contains(event.getRoomId())) {
+            // Lost the room meanwhile: the forwarding node times out and finds the new owner next time
+            log.debug("[Local Cache Service] Not the owner of Room: {}. Dropping forwarded write.",
+                    event.getRoomId());
+            return;
+        }
+        try {
+            if (event.getUserId() == null) {
+                createAsOwner(event.getRoomId(), event.getRequestId());
+            } else {
+                applyAsOwner(event.getRoomId(), event.getUserId(), event.getCardValue(), event.getRequestId());
+            }
+        } catch (RuntimeException e) {
+            // The forwarding node times out, the other events of the message still get applied
+            log.warn("[Local Cache Service] Could not apply the write forwarded for Room: {}", event.getRoomId(), e);
+        }
+    }
+
+    private void renewLeases() {
+        for (String roomId : ownedRooms) {
+            try {
+                if (!leases.renew(roomId, ownerLease)) {
+                    ownedRooms.remove(roomId);
+                    lostCounter.increment();
+                    log.info("[Local Cache Service] Lost the lease of Room: {}. Another node owns it now.", roomId);
+                }
+            } catch (RuntimeException e) {
+                log.warn("[Local Cache Service] Could not renew the lease of Room: {}", roomId, e);
+            }
+        }
+    }
+
+    private void dropOwnership(String roomId) {
+        if (ownedRooms.remove(roomId)) {
+            leases.release(roomId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Deltas already queued are still sent
+        publishExecutor.shutdown();
+        if (leaseRenewer == null) {
+            return;
+        }
+        leaseRenewer.shutdownNow();
+        // Give the rooms back right away instead of letting other nodes wait for the leases to expire
+        for (String roomId : ownedRooms) {
+            try {
+                dropOwnership(roomId);
+            } catch (RuntimeException e) {
+                log.warn("[Local Cache Service] Could not release the lease of Room: {}", roomId, e);
+            }
+        }
+    }
+
+    private static void await(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private RoomStripe stripeOf(String roomId) {
+        return stripes[Math.floorMod(roomId.hashCode(), stripes.length)];
+    }
+
+    private static RoomStripe[] newStripes(int count) {
+        RoomStripe[] stripes = new RoomStripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new RoomStripe();
+        }
+        return stripes;
+    }
+
+    private void publishSnapshot(String roomId, ReplicatedRoom room) {
+        eventPublisher.publish(topic, snapshotEvent(roomId, room));
+    }
+
+    private GameEvent snapshotEvent(String roomId, ReplicatedRoom room) {
+        ReplicatedRoom.Snapshot snapshot = room.snapshot();
+        return GameEvent.builder()
+                .type(GameEvent.Type.PAYLOAD)
+                .roomId(roomId)
+                .originId(nodeId)
+                .version(snapshot.version())
+                .payload(snapshot.room())
+                .stamps(snapshot.stamps())
+                .build();
+    }
 }
@@ -0,0 +1,53 @@
+package com.techcotalk.redis.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+// Warm start of the Local Cache strategy: the node restores its rooms from the change log before it reports ready.
+// Application runners run once the context is refreshed (Pub/Sub listeners are subscribed, so nothing published
+// meanwhile is missed) and before the readiness state turns to ACCEPTING_TRAFFIC, so the time spent here is part of
+// Spring Boot's application.ready.time.
+@Slf4j
+@Component
+public class LocalCacheWarmStart implements ApplicationRunner {
+
+    private final LocalCacheGameService localCacheGameService;
+    private final LocalChangeLog changeLog;
+    private final Timer warmStartTimer;
+
+    public LocalCacheWarmStart(LocalCacheGameService localCacheGameService,
+            LocalChangeLog changeLog,
+            MeterRegistry meterRegistry) {
+        this.localCacheGameService = localCacheGameService;
+        this.changeLog = changeLog;
+        this.warmStartTimer = meterRegistry.timer("game.change-log.warm-start");
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (changeLog.isEnabled()) {
+            warmUp();
+        }
+    }
+
+    public LocalChangeLog.Replay warmUp() {
+        log.debug("warmUp");
+
+        long start = System.nanoTime();
+        LocalChangeLog.Replay replay = changeLog.replay(localCacheGameService::restore);
+        long elapsed = System.nanoTime() - start;
+        warmStartTimer.record(elapsed, TimeUnit.NANOSECONDS);
+
+        log.info("[Change Log] Warm start: {} rooms from the snapshot and {} changes replayed in {} ms, ready {} ms after JVM start",
+                replay.rooms(), replay.changes(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                ManagementFactory.getRuntimeMXBean().getUptime());
+        return replay;
+    }
+}
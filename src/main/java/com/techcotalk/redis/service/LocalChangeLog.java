@@ -0,0 +1,449 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.dto.CardStamp;
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.ChangeLogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Replayable change log of the Local Cache strategy, so a starting node doesn't begin with an empty cache.
+// - Every change (DELTA, and an empty PAYLOAD for a created room) is appended to a Redis Stream, off the request
+//   path: writers only enqueue, a flusher thread sends pipelined XADDs.
+// - A created room's PAYLOAD carries the clock time of the creation (its reset): cards stamped up to then belong
+//   to the room it replaced and are dropped, wherever they show up in the stream.
+// - Periodically one node (whoever takes the lock) folds the stream into a compacted snapshot, one PAYLOAD per
+//   room, records the stream offset it reached and trims the stream up to it.
+// - A starting node loads the snapshot and replays the stream from its offset.
+// - Rooms nobody changed for snapshot-retention are dropped from the snapshot, so it doesn't keep every room ever
+//   created (there is no room deletion, an abandoned room just stops changing).
+// Cards carry their CardStamp in both, and replicas merge them last-writer-wins, so entries may be applied more
+// than once and in any order: the snapshot may be newer than its offset, a failed append is simply retried.
+// Resets keep that property, they are applied after the merge: a card survives if its latest write came after the
+// room's latest reset.
+@Slf4j
+@Component
+public class LocalChangeLog {
+
+    public record Replay(long rooms, long changes) {
+    }
+
+    private static final String STREAM_KEY = "localcache:changes";
+    private static final String SNAPSHOT_ROOMS_KEY = "localcache:snapshot:rooms";
+    private static final String SNAPSHOT_OFFSET_KEY = "localcache:snapshot:offset";
+    // roomId -> when a compaction last saw a change of the room (epoch millis), to expire idle rooms
+    private static final String SNAPSHOT_TOUCHED_KEY = "localcache:snapshot:touched";
+    // The compaction lock is a lease like the rooms' ones: localcache:snapshot:lock
+    private static final String SNAPSHOT_LOCK_PREFIX = "localcache:snapshot:";
+    private static final String SNAPSHOT_LOCK = "lock";
+    private static final String EVENT_FIELD = "e";
+    private static final String START_OFFSET = "0-0";
+    private static final byte[] TRIM_SCRIPT_BYTES = RedisSerializer.string()
+            .serialize("return redis.call('XTRIM', KEYS[1], 'MINID', ARGV[1])");
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ChangeLogProperties properties;
+
+    private final Counter appendedCounter;
+    private final Counter droppedCounter;
+    private final Counter failureCounter;
+    private final Timer compactionTimer;
+    private final Counter expiredCounter;
+
+    // Order doesn't matter to the merge, so a plain queue is enough and failed batches go back to its tail
+    private final Queue<GameEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final RoomLeases lock;
+    private final ScheduledExecutorService scheduler;
+
+    public LocalChangeLog(RedisTemplate<String, Object> redisTemplate,
+            ChangeLogProperties properties,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.lock = new RoomLeases(redisTemplate, SNAPSHOT_LOCK_PREFIX, UUID.randomUUID().toString());
+
+        this.appendedCounter = meterRegistry.counter("game.change-log.appended");
+        this.droppedCounter = meterRegistry.counter("game.change-log.dropped");
+        this.failureCounter = meterRegistry.counter("game.change-log.failures");
+        this.compactionTimer = meterRegistry.timer("game.change-log.compaction");
+        this.expiredCounter = meterRegistry.counter("game.change-log.expired");
+        meterRegistry.gauge("game.change-log.pending", pendingCount);
+
+        if (properties.isEnabled()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "change-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long flushMillis = properties.getFlushInterval().toMillis();
+            long snapshotMillis = properties.getSnapshotInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+            scheduler.scheduleWithFixedDelay(this::compactQuietly, snapshotMillis, snapshotMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public void append(GameEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (pendingCount.incrementAndGet() > properties.getMaxPending()) {
+            pendingCount.decrementAndGet();
+            droppedCounter.increment();
+            return;
+        }
+        pending.add(event);
+    }
+
+    public void append(List<GameEvent> events) {
+        events.forEach(this::append);
+    }
+
+    // Sends everything enqueued so far to the stream. Called by the flusher thread, and by tests.
+    public void flush() {
+        log.debug("flush");
+
+        List<GameEvent> batch = new ArrayList<>(properties.getBatchSize());
+        GameEvent event;
+        while ((event = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(event);
+            if (batch.size() == properties.getBatchSize()) {
+                send(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    // Folds the stream entries appended since the last snapshot into it. Only the rooms those entries touch are
+    // rewritten. Called by the scheduler on every node, the lock makes sure only one of them does the work.
+    public void compact() {
+        log.debug("compact");
+
+        if (!lock.acquire(SNAPSHOT_LOCK, properties.getSnapshotInterval())) {
+            return;
+        }
+        try {
+            compactionTimer.record(this::compactLocked);
+        } finally {
+            // Compare-and-delete: the lock may have expired and been taken by another node meanwhile
+            lock.release(SNAPSHOT_LOCK);
+        }
+    }
+
+    // Feeds the snapshot rooms, then the changes since the snapshot, to the consumer
+    public Replay replay(Consumer<GameEvent> consumer) {
+        log.debug("replay");
+
+        // 1. The offset is read before the rooms, a room written by a compaction in between is only newer
+        String offset = snapshotOffset();
+        long rooms = 0;
+        Map<String, Long> resets = new HashMap<>();
+        ScanOptions options = ScanOptions.scanOptions().count(properties.getBatchSize()).build();
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(SNAPSHOT_ROOMS_KEY, options)) {
+            while (cursor.hasNext()) {
+                GameEvent snapshot = (GameEvent) cursor.next().getValue();
+                recordReset(resets, snapshot);
+                consumer.accept(snapshot);
+                rooms++;
+            }
+        }
+
+        // 2. Changes since the snapshot
+        AtomicLong changes = new AtomicLong();
+        String last = readChanges(offset, event -> {
+            recordReset(resets, event);
+            consumer.accept(event);
+            changes.incrementAndGet();
+        });
+
+        // 3. Changes other nodes had still buffered while we subscribed to the rooms above
+        sleep(properties.getFlushInterval().toMillis());
+        readChanges(last, event -> {
+            recordReset(resets, event);
+            consumer.accept(event);
+            changes.incrementAndGet();
+        });
+
+        // 4. Cards of a replaced room that came after its reset in the stream go as well
+        resets.forEach((roomId, resetAt) -> consumer.accept(resetEvent(roomId, resetAt)));
+        return new Replay(rooms, changes.get());
+    }
+
+    // Feeds one room's snapshot and its changes since, for a node taking the room over without a copy of it.
+    // Reads the whole stream tail, which compaction keeps short. Returns false if the log knows nothing of the room.
+    public boolean replay(String roomId, Consumer<GameEvent> consumer) {
+        log.debug("replay");
+
+        String offset = snapshotOffset();
+        boolean found = false;
+        Map<String, Long> resets = new HashMap<>();
+        if (redisTemplate.opsForHash().get(SNAPSHOT_ROOMS_KEY, roomId) instanceof GameEvent snapshot) {
+            recordReset(resets, snapshot);
+            consumer.accept(snapshot);
+            found = true;
+        }
+        boolean[] changed = new boolean[1];
+        readChanges(offset, event -> {
+            if (roomId.equals(event.getRoomId())) {
+                recordReset(resets, event);
+                consumer.accept(event);
+                changed[0] = true;
+            }
+        });
+        resets.forEach((id, resetAt) -> consumer.accept(resetEvent(id, resetAt)));
+        return found || changed[0];
+    }
+
+    // A created room's entry: cards stamped up to its timestamp belong to the room it replaced.
+    // Entries written before resets were logged have no timestamp and reset nothing.
+    static boolean isReset(GameEvent event) {
+        return event.getType() == GameEvent.Type.PAYLOAD && event.getTimestamp() > 0;
+    }
+
+    // The cards of a room stamped after resetAt, as a reset entry of the room
+    static GameEvent withoutCardsBefore(String roomId, ReplicatedRoom.Snapshot snapshot, long resetAt) {
+        Map<String, String> cards = new HashMap<>();
+        Map<String, CardStamp> stamps = new HashMap<>();
+        snapshot.room().getUserCards().forEach((userId, cardValue) -> {
+            CardStamp stamp = snapshot.stamps().get(userId);
+            if (stamp != null && stamp.time() > resetAt) {
+                cards.put(userId, cardValue);
+                stamps.put(userId, stamp);
+            }
+        });
+        return GameEvent.builder()
+                .type(GameEvent.Type.PAYLOAD)
+                .roomId(roomId)
+                .timestamp(resetAt)
+                .payload(GameRoom.builder().roomId(roomId).userCards(cards).build())
+                .stamps(stamps)
+                .build();
+    }
+
+    private static GameEvent resetEvent(String roomId, long resetAt) {
+        return GameEvent.builder()
+                .type(GameEvent.Type.PAYLOAD)
+                .roomId(roomId)
+                .timestamp(resetAt)
+                .payload(GameRoom.builder().roomId(roomId).build())
+                .stamps(Map.of())
+                .build();
+    }
+
+    private static void recordReset(Map<String, Long> resets, GameEvent event) {
+        if (isReset(event)) {
+            resets.merge(event.getRoomId(), event.getTimestamp(), Math::max);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            // Don't lose what is still buffered, the next node to start would miss it
+            flush();
+        } catch (RuntimeException e) {
+            log.error("[Change Log] Final flush failed, {} changes lost", pendingCount.get(), e);
+        }
+    }
+
+    private void send(List<GameEvent> batch) {
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (GameEvent event : batch) {
+                        ops.opsForStream().add(StreamRecords.newRecord()
+                                .in(STREAM_KEY)
+                                .ofMap(Map.<String, Object>of(EVENT_FIELD, event)));
+                    }
+                    return null;
+                }
+            });
+            appendedCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            // Put the batch back, appending it twice later is harmless
+            failureCounter.increment();
+            pendingCount.addAndGet(batch.size());
+            pending.addAll(batch);
+            throw e;
+        }
+    }
+
+    private void compactLocked() {
+        // 1. Fold the new entries into fresh replicas of the rooms they touch
+        String offset = snapshotOffset();
+        Map<String, ReplicatedRoom> touched = new HashMap<>();
+        Map<String, Long> resets = new HashMap<>();
+        String last = readChanges(offset, event -> {
+            recordReset(resets, event);
+            ReplicatedRoom room = touched.computeIfAbsent(event.getRoomId(),
+                    id -> new ReplicatedRoom(GameRoom.builder().roomId(id).build()));
+            if (event.getType() == GameEvent.Type.DELTA) {
+                room.restore(event.getOriginId(), event.getVersion(), event.getUserId(), event.getCardValue(),
+                        new CardStamp(event.getTimestamp(), event.getOriginId()));
+            } else if (event.getPayload() != null) {
+                room.applySnapshot(null, 0, event.getPayload(), event.getStamps());
+            }
+        });
+        if (touched.isEmpty()) {
+            expireIdleRooms();
+            return;
+        }
+
+        // 2. Merge in what the snapshot already had for them (the merge doesn't care which comes first)
+        List<Object> roomIds = new ArrayList<>(touched.keySet());
+        List<Object> stored = redisTemplate.opsForHash().multiGet(SNAPSHOT_ROOMS_KEY, roomIds);
+        for (Object value : stored) {
+            if (value instanceof GameEvent snapshot && snapshot.getPayload() != null) {
+                recordReset(resets, snapshot);
+                touched.get(snapshot.getRoomId()).applySnapshot(null, 0, snapshot.getPayload(), snapshot.getStamps());
+            }
+        }
+
+        // 3. Rooms first, then the offset: a crash in between only makes the next replay apply entries twice.
+        // A re-created room keeps its reset, so later compactions and replays still drop the cards it replaced.
+        Map<String, Object> rooms = new HashMap<>();
+        touched.forEach((roomId, room) -> {
+            ReplicatedRoom.Snapshot snapshot = room.snapshot();
+            Long resetAt = resets.get(roomId);
+            rooms.put(roomId, resetAt != null ? withoutCardsBefore(roomId, snapshot, resetAt) : GameEvent.builder()
+                    .type(GameEvent.Type.PAYLOAD)
+                    .roomId(roomId)
+                    .payload(snapshot.room())
+                    .stamps(snapshot.stamps())
+                    .build());
+        });
+        redisTemplate.opsForHash().putAll(SNAPSHOT_ROOMS_KEY, rooms);
+        redisTemplate.opsForValue().set(SNAPSHOT_OFFSET_KEY, last);
+        long now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<Object>> touchedAt = new HashSet<>();
+        rooms.keySet().forEach(roomId -> touchedAt.add(ZSetOperations.TypedTuple.of(roomId, (double) now)));
+        redisTemplate.opsForZSet().add(SNAPSHOT_TOUCHED_KEY, touchedAt);
+
+        // 4. Entries up to the offset are in the snapshot now
+        byte[] rawKey = RedisSerializer.string().serialize(STREAM_KEY);
+        byte[] rawOffset = RedisSerializer.string().serialize(last);
+        redisTemplate.execute((RedisCallback<Long>) connection -> trim(connection, rawKey, rawOffset));
+        log.info("[Change Log] Compacted {} rooms up to {}", rooms.size(), last);
+        expireIdleRooms();
+    }
+
+    // Drops rooms without a change for snapshot-retention. A later change of such a room starts it over from the
+    // stream, like a room the local cache evicted for idleness.
+    private void expireIdleRooms() {
+        double cutoff = System.currentTimeMillis() - properties.getSnapshotRetention().toMillis();
+        Set<Object> idle = redisTemplate.opsForZSet().rangeByScore(SNAPSHOT_TOUCHED_KEY, Double.NEGATIVE_INFINITY,
+                cutoff, 0, properties.getBatchSize());
+        if (idle == null || idle.isEmpty()) {
+            return;
+        }
+        Object[] roomIds = idle.toArray();
+        redisTemplate.opsForHash().delete(SNAPSHOT_ROOMS_KEY, roomIds);
+        redisTemplate.opsForZSet().remove(SNAPSHOT_TOUCHED_KEY, roomIds);
+        expiredCounter.increment(roomIds.length);
+        log.info("[Change Log] Expired {} idle rooms from the snapshot", roomIds.length);
+    }
+
+    private static Long trim(RedisConnection connection, byte[] rawKey, byte[] rawOffset) {
+        // XTRIM MINID has no template method, a script keeps the reply type explicit
+        return connection.scriptingCommands().eval(TRIM_SCRIPT_BYTES, ReturnType.INTEGER, 1, rawKey, rawOffset);
+    }
+
+    // Reads the stream after the given entry id page by page, returns the id of the last entry read
+    private String readChanges(String after, Consumer<GameEvent> consumer) {
+        String last = after;
+        while (true) {
+            List<MapRecord<String, Object, Object>> page = redisTemplate.opsForStream().range(STREAM_KEY,
+                    Range.of(Range.Bound.exclusive(last), Range.Bound.unbounded()),
+                    Limit.limit().count(properties.getBatchSize()));
+            if (page == null || page.isEmpty()) {
+                return last;
+            }
+            for (MapRecord<String, Object, Object> record : page) {
+                consumer.accept((GameEvent) record.getValue().get(EVENT_FIELD));
+                last = record.getId().getValue();
+            }
+        }
+    }
+
+    private String snapshotOffset() {
+        Object offset = redisTemplate.opsForValue().get(SNAPSHOT_OFFSET_KEY);
+        return offset == null ? START_OFFSET : (String) offset;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("[Change Log] Append failed, {} changes pending", pendingCount.get(), e);
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.error("[Change Log] Compaction failed", e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.dto.CardStamp;
+import com.techcotalk.redis.domain.model.GameRoom;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+// ReplicatedRoom serialized into a slot of an OffHeapRoomArena, for LocalCacheGameService's OFF_HEAP storage.
+// The heap only holds this object, the slot's buffer and the per-origin versions, so hundreds of thousands of rooms
+// don't turn into long-lived objects the GC has to trace and copy. Cards are updated in place, a read decodes the
+// room into a short-lived GameRoom.
+//
+// Slot layout, str = [length:2][UTF-8 bytes]:
+//   [localVersion:8][entriesEnd:4][dummyLength:4][dummyData]
+//   [userId:str][cardValue:str][stampTime:8][stampNode:4]...       one entry per user, stampNode indexes the arena's node ids
+//
+// One lock per room instead of the heap room's CAS, writes change the slot in place. A room that outgrows its slot,
+// or leaves the cache, moves to the heap state of ReplicatedRoom and gives its slot back.
+class OffHeapReplicatedRoom extends ReplicatedRoom {
+
+    private static final int VERSION_OFFSET = 0;
+    private static final int ENTRIES_END_OFFSET = 8;
+    private static final int DUMMY_LENGTH_OFFSET = 12;
+    private static final int DUMMY_OFFSET = 16;
+    private static final int STAMP_SIZE = 8 + 4;
+
+    private static final int OVERFLOW = -1;
+    private static final int SUPERSEDED = 0;
+    private static final int CHANGED = 1;
+
+    private final OffHeapRoomArena arena;
+    private final StampedLock lock = new StampedLock();
+    private final Map<String, Long> appliedVersions = new HashMap<>(); // guarded by the write lock
+
+    private OffHeapRoomArena.Slot slot; // null once the room moved to the heap
+    private ByteBuffer buffer;
+    private int entriesStart;
+
+    private OffHeapReplicatedRoom(String roomId, boolean restored, OffHeapRoomArena arena) {
+        super(roomId, restored);
+        this.arena = arena;
+    }
+
+    // Returns null when the arena is full or the room doesn't fit in a slot
+    static OffHeapReplicatedRoom allocate(OffHeapRoomArena arena, GameRoom room, boolean restored) {
+        byte[] dummyData = room.getDummyData() == null ? new byte[0] : room.getDummyData();
+        if (DUMMY_OFFSET + dummyData.length > arena.slotSize()) {
+            return null;
+        }
+        OffHeapRoomArena.Slot slot = arena.allocate();
+        if (slot == null) {
+            return null;
+        }
+
+        OffHeapReplicatedRoom offHeap = new OffHeapReplicatedRoom(room.getRoomId(), restored, arena);
+        offHeap.slot = slot;
+        offHeap.buffer = slot.buffer();
+        offHeap.entriesStart = DUMMY_OFFSET + dummyData.length;
+        offHeap.buffer.putLong(VERSION_OFFSET, 0)
+                .putInt(ENTRIES_END_OFFSET, offHeap.entriesStart)
+                .putInt(DUMMY_LENGTH_OFFSET, dummyData.length)
+                .put(DUMMY_OFFSET, dummyData);
+        for (Map.Entry<String, String> card : room.getUserCards().entrySet()) {
+            if (offHeap.put(card.getKey(), card.getValue(), CardStamp.ZERO) == OVERFLOW) {
+                arena.free(slot);
+                return null;
+            }
+        }
+        return offHeap;
+    }
+
+    @Override
+    long selectCard(String userId, String cardValue, CardStamp stamp) {
+        long stamped = lock.writeLock();
+        try {
+            if (slot == null || put(userId, cardValue, stamp) == OVERFLOW) {
+                moveToHeap();
+                return super.selectCard(userId, cardValue, stamp);
+            }
+            long version = buffer.getLong(VERSION_OFFSET) + 1;
+            buffer.putLong(VERSION_OFFSET, version);
+            return version;
+        } finally {
+            lock.unlockWrite(stamped);
+        }
+    }
+
+    @Override
+    DeltaResult applyDelta(String originId, long version, String userId, String cardValue, CardStamp stamp) {
+        long stamped = lock.writeLock();
+        try {
+            if (slot == null) {
+                return super.applyDelta(originId, version, userId, cardValue, stamp);
+            }
+            Long applied = appliedVersions.get(originId);
+            // Same as the heap room: a restored room starts the sequence of an unknown origin at its first delta
+            long last = applied != null ? applied : restored ? version - 1 : 0;
+            if (version <= last) {
+                return DeltaResult.DUPLICATE;
+            }
+            if (version > last + 1) {
+                return DeltaResult.GAP;
+            }
+            int result = put(userId, cardValue, stamp);
+            if (result == OVERFLOW) {
+                moveToHeap();
+                return super.applyDelta(originId, version, userId, cardValue, stamp);
+            }
+            appliedVersions.put(originId, version);
+            return result == CHANGED ? DeltaResult.APPLIED : DeltaResult.SUPERSEDED;
+        } finally {
+            lock.unlockWrite(stamped);
+        }
+    }
+
+    @Override
+    boolean restore(String originId, long version, String userId, String cardValue, CardStamp stamp) {
+        long stamped = lock.writeLock();
+        try {
+            int result = slot == null ? OVERFLOW : put(userId, cardValue, stamp);
+            if (result == OVERFLOW) {
+                moveToHeap();
+                return super.restore(originId, version, userId, cardValue, stamp);
+            }
+            appliedVersions.merge(originId, version, Math::max);
+            return result == CHANGED;
+        } finally {
+            lock.unlockWrite(stamped);
+        }
+    }
+
+    @Override
+    boolean applySnapshot(String originId, long version, GameRoom snapshot, Map<String, CardStamp> snapshotStamps) {
+        long stamped = lock.writeLock();
+        try {
+            if (slot == null) {
+                return super.applySnapshot(originId, version, snapshot, snapshotStamps);
+            }
+            boolean changed = false;
+            for (Map.Entry<String, String> card : snapshot.getUserCards().entrySet()) {
+                CardStamp stamp = snapshotStamps == null ? CardStamp.ZERO
+                        : snapshotStamps.getOrDefault(card.getKey(), CardStamp.ZERO);
+                int result = put(card.getKey(), card.getValue(), stamp);
+                if (result == OVERFLOW) {
+                    // The cards merged so far are kept, the heap state merges the rest the same way
+                    moveToHeap();
+                    return super.applySnapshot(originId, version, snapshot, snapshotStamps) || changed;
+                }
+                changed |= result == CHANGED;
+            }
+            if (originId != null) {
+                appliedVersions.merge(originId, version, Math::max);
+                clearResyncRequest(originId);
+            }
+            return changed;
+        } finally {
+            lock.unlockWrite(stamped);
+        }
+    }
+
+    @Override
+    Snapshot snapshot() {
+        long stamped = lock.readLock();
+        try {
+            return slot == null ? super.snapshot() : decode();
+        } finally {
+            lock.unlockRead(stamped);
+        }
+    }
+
+    // Decoding builds a new room anyway
+    @Override
+    GameRoom gameRoom() {
+        long stamped = lock.readLock();
+        try {
+            return slot == null ? super.gameRoom() : decode().room();
+        } finally {
+            lock.unlockRead(stamped);
+        }
+    }
+
+    @Override
+    void release() {
+        long stamped = lock.writeLock();
+        try {
+            if (slot != null) {
+                moveToHeap();
+            }
+        } finally {
+            lock.unlockWrite(stamped);
+        }
+    }
+
+    // Under the write lock
+    private void moveToHeap() {
+        if (slot == null) {
+            return;
+        }
+        load(decode(), new HashMap<>(appliedVersions));
+        arena.free(slot);
+        slot = null;
+        buffer = null;
+    }
+
+    // Writes the card unless the slot already holds a later write of it. Under the write lock.
+    private int put(String userId, String cardValue, CardStamp stamp) {
+        byte[] user = userId.getBytes(StandardCharsets.UTF_8);
+        byte[] card = cardValue.getBytes(StandardCharsets.UTF_8);
+        int nodeIndex = arena.nodeIndex(stamp.nodeId());
+        int entriesEnd = buffer.getInt(ENTRIES_END_OFFSET);
+
+        int entry = find(user, entriesEnd);
+        if (entry < 0) {
+            int size = 2 + user.length + 2 + card.length + STAMP_SIZE;
+            if (entriesEnd + size > buffer.capacity()) {
+                return OVERFLOW;
+            }
+            buffer.putShort(entriesEnd, (short) user.length).put(entriesEnd + 2, user);
+            writeCard(entriesEnd + 2 + user.length, card, stamp.time(), nodeIndex);
+            buffer.putInt(ENTRIES_END_OFFSET, entriesEnd + size);
+            return CHANGED;
+        }
+
+        int cardAt = entry + 2 + user.length;
+        int oldCardLength = Short.toUnsignedInt(buffer.getShort(cardAt));
+        int stampAt = cardAt + 2 + oldCardLength;
+        if (!wins(stamp, nodeIndex, stampAt)) {
+            return SUPERSEDED;
+        }
+        if (card.length != oldCardLength) {
+            // Shift the entries behind this one so the card fits, in place
+            int delta = card.length - oldCardLength;
+            if (entriesEnd + delta > buffer.capacity()) {
+                return OVERFLOW;
+            }
+            int tail = stampAt + STAMP_SIZE;
+            move(tail, tail + delta, entriesEnd - tail);
+            buffer.putInt(ENTRIES_END_OFFSET, entriesEnd + delta);
+        }
+        writeCard(cardAt, card, stamp.time(), nodeIndex);
+        return CHANGED;
+    }
+
+    private boolean wins(CardStamp stamp, int nodeIndex, int stampAt) {
+        long time = buffer.getLong(stampAt);
+        if (stamp.time() != time) {
+            return stamp.time() > time;
+        }
+        int currentNode = buffer.getInt(stampAt + 8);
+        return nodeIndex != currentNode && stamp.nodeId().compareTo(arena.nodeId(currentNode)) > 0;
+    }
+
+    private void writeCard(int at, byte[] card, long time, int nodeIndex) {
+        buffer.putShort(at, (short) card.length)
+                .put(at + 2, card)
+                .putLong(at + 2 + card.length, time)
+                .putInt(at + 2 + card.length + 8, nodeIndex);
+    }
+
+    // Offset of the user's entry, or -1
+    private int find(byte[] user, int entriesEnd) {
+        int at = entriesStart;
+        while (at < entriesEnd) {
+            int userLength = Short.toUnsignedInt(buffer.getShort(at));
+            if (userLength == user.length && equalsAt(at + 2, user)) {
+                return at;
+            }
+            int cardAt = at + 2 + userLength;
+            at = cardAt + 2 + Short.toUnsignedInt(buffer.getShort(cardAt)) + STAMP_SIZE;
+        }
+        return -1;
+    }
+
+    private boolean equalsAt(int at, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(at + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Overlapping copy inside the slot (a few hundred bytes at most)
+    private void move(int from, int to, int length) {
+        if (to < from) {
+            for (int i = 0; i < length; i++) {
+                buffer.put(to + i, buffer.get(from + i));
+            }
+        } else {
+            for (int i = length - 1; i >= 0; i--) {
+                buffer.put(to + i, buffer.get(from + i));
+            }
+        }
+    }
+
+    // Under a lock
+    private Snapshot decode() {
+        int entriesEnd = buffer.getInt(ENTRIES_END_OFFSET);
+        Map<String, String> cards = new HashMap<>();
+        Map<String, CardStamp> stamps = new HashMap<>();
+        int at = entriesStart;
+        while (at < entriesEnd) {
+            String userId = readString(at);
+            at += 2 + Short.toUnsignedInt(buffer.getShort(at));
+            String cardValue = readString(at);
+            at += 2 + Short.toUnsignedInt(buffer.getShort(at));
+            cards.put(userId, cardValue);
+            stamps.put(userId, new CardStamp(buffer.getLong(at), arena.nodeId(buffer.getInt(at + 8))));
+            at += STAMP_SIZE;
+        }
+
+        byte[] dummyData = new byte[buffer.getInt(DUMMY_LENGTH_OFFSET)];
+        buffer.get(DUMMY_OFFSET, dummyData);
+        GameRoom room = GameRoom.builder()
+                .roomId(roomId)
+                .userCards(cards)
+                .dummyData(dummyData)
+                .build();
+        return new Snapshot(room, buffer.getLong(VERSION_OFFSET), stamps);
+    }
+
+    private String readString(int at) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort(at))];
+        buffer.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
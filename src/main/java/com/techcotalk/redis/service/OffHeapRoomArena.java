@@ -0,0 +1,104 @@
+package com.techcotalk.redis.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Direct memory behind LocalCacheGameService's OFF_HEAP storage: fixed-size slots carved out of 64MB direct
+// buffers, which are allocated as rooms need them and never given back; slots of evicted rooms are reused.
+// Node ids of the card stamps are interned here too, so a slot stores an int instead of a 36 character UUID.
+class OffHeapRoomArena {
+
+    record Slot(int index, ByteBuffer buffer) {
+    }
+
+    private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final int slotSize;
+    private final int slotsPerChunk;
+    private final int maxSlots;
+    private final ByteBuffer[] chunks;
+
+    // Guarded by this
+    private int allocatedSlots; // slots handed out from the chunks so far, reused or not
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+
+    private final AtomicInteger usedSlots = new AtomicInteger();
+    private final AtomicInteger reservedChunks = new AtomicInteger();
+
+    private final Map<String, Integer> nodeIndexes = new ConcurrentHashMap<>();
+    private volatile String[] nodeIds = new String[0]; // copied on append (a handful of nodes), read without locking
+
+    OffHeapRoomArena(int slotSize, long maxBytes, MeterRegistry meterRegistry) {
+        // Slots are carved out of one chunk each, a larger one would leave no slot per chunk
+        if (slotSize <= 0 || slotSize > CHUNK_SIZE) {
+            throw new IllegalArgumentException("off-heap-slot-size must be between 1 and " + CHUNK_SIZE
+                    + " bytes: " + slotSize);
+        }
+        this.slotSize = slotSize;
+        this.maxSlots = (int) Math.min(Integer.MAX_VALUE, maxBytes / slotSize);
+        this.slotsPerChunk = Math.min(CHUNK_SIZE / slotSize, maxSlots);
+        this.chunks = new ByteBuffer[slotsPerChunk == 0 ? 0 : (maxSlots + slotsPerChunk - 1) / slotsPerChunk];
+
+        meterRegistry.gauge("game.local-cache.off-heap.slots", usedSlots);
+        meterRegistry.gauge("game.local-cache.off-heap.reserved", reservedChunks,
+                chunkCount -> (double) chunkCount.get() * slotsPerChunk * slotSize);
+    }
+
+    int slotSize() {
+        return slotSize;
+    }
+
+    // Returns null when the arena is full
+    synchronized Slot allocate() {
+        int index;
+        if (freeCount > 0) {
+            index = freeSlots[--freeCount];
+        } else if (allocatedSlots < maxSlots) {
+            index = allocatedSlots++;
+            int chunk = index / slotsPerChunk;
+            if (chunks[chunk] == null) {
+                chunks[chunk] = ByteBuffer.allocateDirect(slotsPerChunk * slotSize);
+                reservedChunks.incrementAndGet();
+            }
+        } else {
+            return null;
+        }
+        usedSlots.incrementAndGet();
+        return new Slot(index, chunks[index / slotsPerChunk].slice((index % slotsPerChunk) * slotSize, slotSize));
+    }
+
+    synchronized void free(Slot slot) {
+        if (freeCount == freeSlots.length) {
+            int[] grown = new int[freeSlots.length * 2];
+            System.arraycopy(freeSlots, 0, grown, 0, freeCount);
+            freeSlots = grown;
+        }
+        freeSlots[freeCount++] = slot.index();
+        usedSlots.decrementAndGet();
+    }
+
+    int nodeIndex(String nodeId) {
+        Integer index = nodeIndexes.get(nodeId);
+        if (index != null) {
+            return index;
+        }
+        return nodeIndexes.computeIfAbsent(nodeId, this::internNodeId);
+    }
+
+    String nodeId(int index) {
+        return nodeIds[index];
+    }
+
+    private synchronized int internNodeId(String nodeId) {
+        String[] grown = Arrays.copyOf(nodeIds, nodeIds.length + 1);
+        grown[nodeIds.length] = nodeId;
+        nodeIds = grown;
+        return grown.length - 1;
+    }
+}
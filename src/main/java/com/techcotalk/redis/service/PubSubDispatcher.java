@@ -0,0 +1,156 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.global.config.ListenerDispatchProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Ordered, bounded delivery of Pub/Sub events to the strategies.
+// Without an executor the listener container starts a thread per message, so two events of a room could be applied
+// in either order. Here the container hands every message to one receive thread, which only decodes it and queues
+// each event on the lane of its room. Lanes are single threads with bounded queues: a room's events are handled in
+// publish order, different rooms in parallel, and a slow strategy backs up (or drops) instead of piling up threads.
+@Slf4j
+@Component
+public class PubSubDispatcher {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final GameEventPublisher eventPublisher;
+    private final ListenerDispatchProperties.Overflow overflow;
+
+    private final ExecutorService receiveExecutor;
+    private final Lane[] lanes;
+
+    public PubSubDispatcher(RedisTemplate<String, Object> redisTemplate,
+            GameEventPublisher eventPublisher,
+            ListenerDispatchProperties properties,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.overflow = properties.getOverflow();
+
+        this.receiveExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "pubsub-receive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lanes = new Lane[properties.getLanes()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, properties.getQueueCapacity(), meterRegistry);
+        }
+    }
+
+    // Task executor of the listener container: messages are taken off the connection in order, one at a time
+    public ExecutorService receiveExecutor() {
+        return receiveExecutor;
+    }
+
+    public MessageListener listenerFor(GameEventListener listener) {
+        return (message, pattern) -> dispatch(listener, message);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        receiveExecutor.shutdownNow();
+        for (Lane lane : lanes) {
+            lane.executor.shutdownNow();
+        }
+    }
+
+    private void dispatch(GameEventListener listener, Message message) {
+        GameEvent received;
+        try {
+            received = (GameEvent) redisTemplate.getValueSerializer().deserialize(message.getBody());
+        } catch (SerializationException e) {
+            log.error("Error parsing message", e);
+            return;
+        }
+        eventPublisher.recordReceived(listener.getListenerName(), message, received);
+
+        // A BATCH may carry several rooms, each event goes to its own room's lane
+        for (GameEvent event : received.unbatch()) {
+            String roomId = event.getRoomId();
+            Lane lane = lanes[roomId == null ? 0 : Math.floorMod(roomId.hashCode(), lanes.length)];
+            lane.submit(listener, event);
+        }
+    }
+
+    private class Lane {
+        private final ThreadPoolExecutor executor;
+        private final Timer latencyTimer;
+        private final Counter droppedCounter;
+
+        private Lane(int index, int capacity, MeterRegistry meterRegistry) {
+            String name = "pubsub-lane-" + index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity), r -> {
+                        Thread thread = new Thread(r, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }, overflowHandler());
+
+            Tags tags = Tags.of("lane", String.valueOf(index));
+            this.latencyTimer = Timer.builder("game.pubsub.dispatch.latency")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.droppedCounter = meterRegistry.counter("game.pubsub.dispatch.dropped", tags);
+            meterRegistry.gauge("game.pubsub.dispatch.depth", tags, executor, e -> e.getQueue().size());
+        }
+
+        private void submit(GameEventListener listener, GameEvent event) {
+            long enqueuedAt = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    try {
+                        listener.onEvent(event);
+                    } catch (RuntimeException e) {
+                        log.error("[Dispatcher] {} failed to handle {} of room {}", listener.getListenerName(),
+                                event.getType(), event.getRoomId(), e);
+                    } finally {
+                        // Time in the lane's queue plus handling
+                        latencyTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.debug("[Dispatcher] Lane is shut down, dropping {} of room {}", event.getType(), event.getRoomId());
+            }
+        }
+
+        private RejectedExecutionHandler overflowHandler() {
+            return (task, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Lane is shut down");
+                }
+                if (overflow == ListenerDispatchProperties.Overflow.DROP) {
+                    droppedCounter.increment();
+                    return;
+                }
+                // BLOCK: the single receive thread waits, so nothing overtakes the task it is holding
+                try {
+                    executor.getQueue().put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for the lane", e);
+                }
+            };
+        }
+    }
+}
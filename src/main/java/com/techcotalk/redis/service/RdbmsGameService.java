@@ -1,41 +1,94 @@
 package com.techcotalk.redis.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.techcotalk.redis.domain.dto.CardSelection;
 import com.techcotalk.redis.domain.dto.GameEvent;
 import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.config.RdbmsProperties;
 import com.techcotalk.redis.repository.GameJpaRepository;
-import lombok.RequiredArgsConstructor;
+import com.techcotalk.redis.repository.GameRoomJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
-public class RdbmsGameService implements GameService, MessageListener {
+public class RdbmsGameService implements GameService, GameEventListener, MessageListener {
 
     private final GameJpaRepository gameJpaRepository;
     private final RedisTemplate<String, Object> redisTemplate;
     private final ChannelTopic topic;
-    private final ObjectMapper objectMapper;
+    private final GameRoomJdbcRepository gameRoomJdbcRepository;
+    private final RdbmsProperties.AccessPath accessPath;
+    private final GameEventPublisher eventPublisher;
+    private final RoomSubscriptionRegistry roomSubscriptions;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final TransactionTemplate readTransaction;
+
+    // Read-through cache of rooms, null when game.rdbms.cache-enabled is off
+    private final Cache<String, GameRoom> readCache;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter loadCounter;
+    private final Counter invalidationCounter;
 
     public RdbmsGameService(GameJpaRepository gameJpaRepository, RedisTemplate<String, Object> redisTemplate,
             @org.springframework.beans.factory.annotation.Qualifier("rdbmsTopic") ChannelTopic topic,
-            ObjectMapper objectMapper) {
+            GameRoomJdbcRepository gameRoomJdbcRepository,
+            RdbmsProperties properties,
+            GameEventPublisher eventPublisher,
+            RoomSubscriptionRegistry roomSubscriptions,
+            ApplicationEventPublisher applicationEventPublisher,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
         this.gameJpaRepository = gameJpaRepository;
         this.redisTemplate = redisTemplate;
         this.topic = topic;
-        this.objectMapper = objectMapper;
+        this.gameRoomJdbcRepository = gameRoomJdbcRepository;
+        this.accessPath = properties.getAccessPath();
+        this.eventPublisher = eventPublisher;
+        this.roomSubscriptions = roomSubscriptions;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+
+        // Every cached room is watched, so its invalidations reach this node in the shard/room subscription modes
+        this.readCache = properties.isCacheEnabled()
+                ? Caffeine.newBuilder()
+                        .maximumSize(properties.getCacheMaximumSize())
+                        .expireAfterWrite(properties.getCacheExpireAfterWrite())
+                        .<String, GameRoom>removalListener((roomId, room, cause) -> unwatchRoom(roomId))
+                        .build()
+                : null;
+        this.hitCounter = meterRegistry.counter("game.cache.requests", "strategy", "rdbms", "result", "hit");
+        this.missCounter = meterRegistry.counter("game.cache.requests", "strategy", "rdbms", "result", "miss");
+        this.loadCounter = meterRegistry.counter("game.cache.loads", "strategy", "rdbms");
+        this.invalidationCounter = meterRegistry.counter("game.cache.invalidations", "strategy", "rdbms");
     }
 
     @Override
     public String getStrategyName() {
-        return "RDBMS + Redis Pub/Sub";
+        return "RDBMS (" + accessPath.name().toLowerCase() + ") + Redis Pub/Sub";
     }
 
     @Override
@@ -43,6 +96,12 @@ public class RdbmsGameService implements GameService, MessageListener {
     public void createRoom(String roomId) {
         log.debug("createRoom");
         gameJpaRepository.save(GameRoom.builder().roomId(roomId).build());
+        // Other nodes may have cached the room it replaced
+        GameEvent event = GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build();
+        afterCommit(() -> {
+            evict(roomId);
+            eventPublisher.publish(topic, event);
+        });
     }
 
     @Override
@@ -51,19 +110,129 @@ public class RdbmsGameService implements GameService, MessageListener {
         log.debug("selectCard");
 
         // 1. Update DB
-        GameRoom room = gameJpaRepository.findById(roomId).orElseThrow(() -> new RuntimeException("Room not found"));
-        room.selectCard(userId, cardValue);
-        gameJpaRepository.save(room);
+        if (accessPath == RdbmsProperties.AccessPath.UPSERT) {
+            // Single statement on the collection table, the room row itself is never loaded
+            try {
+                gameRoomJdbcRepository.upsertCard(roomId, userId, cardValue);
+            } catch (DataIntegrityViolationException e) {
+                throw new RuntimeException("Room not found", e);
+            }
+        } else {
+            GameRoom room = gameJpaRepository.findById(roomId).orElseThrow(() -> new RuntimeException("Room not found"));
+            room.selectCard(userId, cardValue);
+            gameJpaRepository.save(room);
+        }
 
-        // 2. Publish Invalidation Event
+        // 2. Publish Invalidation Event once the change is visible, a node reloading earlier would cache the old room
         GameEvent event = GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build();
-        redisTemplate.convertAndSend(topic.getTopic(), event);
+        afterCommit(() -> {
+            evict(roomId);
+            eventPublisher.publish(topic, event);
+        });
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional
+    public void createRooms(List<String> roomIds) {
+        log.debug("createRooms");
+        List<GameRoom> rooms = new ArrayList<>(roomIds.size());
+        for (String roomId : roomIds) {
+            rooms.add(GameRoom.builder().roomId(roomId).build());
+        }
+        gameJpaRepository.saveAll(rooms);
+        List<GameEvent> events = new ArrayList<>(roomIds.size());
+        for (String roomId : roomIds) {
+            events.add(GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build());
+        }
+        afterCommit(() -> {
+            roomIds.forEach(this::evict);
+            eventPublisher.publishAll(topic, events);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void selectCards(List<CardSelection> selections) {
+        log.debug("selectCards");
+
+        // 1. Update DB, one transaction for the whole batch
+        Map<String, Map<String, String>> cardsByRoom = new LinkedHashMap<>();
+        for (CardSelection selection : selections) {
+            cardsByRoom.computeIfAbsent(selection.roomId(), id -> new LinkedHashMap<>())
+                    .put(selection.userId(), selection.cardValue());
+        }
+        if (accessPath == RdbmsProperties.AccessPath.UPSERT) {
+            // A single JDBC batch, rewritten into multi-row statements by the driver
+            try {
+                gameRoomJdbcRepository.upsertCards(cardsByRoom);
+            } catch (DataIntegrityViolationException e) {
+                throw new RuntimeException("Room not found", e);
+            }
+        } else {
+            // Every room is loaded once, the changes are flushed together at commit
+            List<GameRoom> rooms = new ArrayList<>(cardsByRoom.size());
+            cardsByRoom.forEach((roomId, cards) -> {
+                GameRoom room = gameJpaRepository.findById(roomId)
+                        .orElseThrow(() -> new RuntimeException("Room not found"));
+                cards.forEach(room::selectCard);
+                rooms.add(room);
+            });
+            gameJpaRepository.saveAll(rooms);
+        }
+
+        // 2. Publish one Invalidation Event per room, as a single message
+        List<GameEvent> events = new ArrayList<>(cardsByRoom.size());
+        for (String roomId : cardsByRoom.keySet()) {
+            events.add(GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId(roomId).build());
+        }
+        afterCommit(() -> {
+            cardsByRoom.keySet().forEach(this::evict);
+            eventPublisher.publishAll(topic, events);
+        });
+    }
+
+    // No @Transactional here: a cache hit must not take a connection from the pool, only a load opens a transaction
+    @Override
     public GameRoom getGameRoom(String roomId) {
-        return gameJpaRepository.findById(roomId).orElse(null);
+        log.debug("getGameRoom");
+
+        if (readCache == null) {
+            return readTransaction.execute(status -> findRoom(roomId));
+        }
+        // Callers get their own copy, the cached room is shared by every reader of this node
+        GameRoom room = readCache.getIfPresent(roomId);
+        if (room != null) {
+            hitCounter.increment();
+            return copyOf(room);
+        }
+        missCounter.increment();
+        // Subscribe before reading, so an invalidation of what we are about to cache can't be missed.
+        // Outside the cache's lock, the loader would otherwise hold up other rooms for the SUBSCRIBE.
+        watchRoom(roomId);
+        boolean[] cached = new boolean[1];
+        try {
+            // One load per room at a time, concurrent misses of the same room wait for it instead of querying too
+            room = readCache.get(roomId, id -> {
+                GameRoom loaded = load(id);
+                cached[0] = loaded != null;
+                return loaded;
+            });
+        } finally {
+            if (!cached[0]) {
+                unwatchRoom(roomId); // loaded by another miss, or nothing cached that a removal would release
+            }
+        }
+        return room != null ? copyOf(room) : null;
+    }
+
+    @Override
+    public void watchRoom(String roomId) {
+        roomSubscriptions.acquire(topic, roomId);
+    }
+
+    @Override
+    public void unwatchRoom(String roomId) {
+        roomSubscriptions.release(topic, roomId);
     }
 
     @Override
@@ -71,17 +240,76 @@ public class RdbmsGameService implements GameService, MessageListener {
         log.debug("onMessage");
 
         try {
-            GameEvent event = objectMapper.readValue(message.getBody(), GameEvent.class);
-            if (event.getType() == GameEvent.Type.INVALIDATE) {
-                log.debug("[RDBMS Service] Received Invalidation Event for Room: {}. Fetching from DB...",
-                        event.getRoomId());
-                // In a real app with local caching, we would evict the cache here.
-                // Since this is pure RDBMS strategy, we just log it or notify connected clients
-                // via WebSocket.
-                // For this simulation, we assume the "Client" will call getGameRoom() again.
-            }
-        } catch (IOException e) {
+            GameEvent received = (GameEvent) redisTemplate.getValueSerializer().deserialize(message.getBody());
+            eventPublisher.recordReceived(getListenerName(), message, received);
+            received.unbatch().forEach(this::onEvent);
+        } catch (SerializationException e) {
             log.error("Error parsing message", e);
         }
     }
+
+    @Override
+    public String getListenerName() {
+        return "rdbms";
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        if (event.getType() == GameEvent.Type.INVALIDATE) {
+            log.debug("[RDBMS Service] Received Invalidation Event for Room: {}. Evicting read cache.",
+                    event.getRoomId());
+            evict(event.getRoomId());
+            invalidationCounter.increment();
+            // The sessions in this room get the fresh room pushed via WebSocket
+            applicationEventPublisher.publishEvent(new RoomChangedEvent(this, event.getRoomId(), event));
+        }
+    }
+
+    // Caffeine loader, runs inside the cache's lock for the room
+    private GameRoom load(String roomId) {
+        loadCounter.increment();
+        GameRoom room = readTransaction.execute(status -> findRoom(roomId));
+        if (room == null) {
+            return null;
+        }
+        // A plain copy, detached from Hibernate's collection, is what gets shared between threads
+        return copyOf(room);
+    }
+
+    private static GameRoom copyOf(GameRoom room) {
+        return GameRoom.builder()
+                .roomId(room.getRoomId())
+                .userCards(new HashMap<>(room.getUserCards()))
+                .dummyData(room.getDummyData())
+                .build();
+    }
+
+    private GameRoom findRoom(String roomId) {
+        if (accessPath == RdbmsProperties.AccessPath.UPSERT) {
+            return gameRoomJdbcRepository.findRoom(roomId).orElse(null);
+        }
+        return gameJpaRepository.findById(roomId).orElse(null);
+    }
+
+    // An invalidation racing with a load of the same room waits for it and then removes what it loaded,
+    // so a room read before the change committed never stays cached
+    private void evict(String roomId) {
+        if (readCache != null) {
+            readCache.invalidate(roomId);
+        }
+    }
+
+    // Runs the action once the surrounding transaction committed, right away when there is none
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
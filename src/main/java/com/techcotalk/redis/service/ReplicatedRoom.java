@@ -0,0 +1,322 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.dto.CardStamp;
+import com.techcotalk.redis.domain.model.CompactGameRoom;
+import com.techcotalk.redis.domain.model.GameRoom;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// A room held by LocalCacheGameService together with its replication bookkeeping.
+// Every node numbers its own changes per room (1, 2, 3, ...) so receivers can tell a missing delta from a late one.
+// Every card carries the CardStamp of the write that set it, and a write only replaces a card with an older stamp
+// (last writer wins). Deltas and snapshots can then be merged in any order and nodes writing the same room at
+// the same time still end up with the same cards.
+//
+// Lock-free: the cards and the versions live in one immutable State that writers replace with a CAS.
+// A room only has a handful of players, so copying its arrays on a write is cheaper than locking, and
+// readers (getGameRoom, PAYLOAD publishing, serialization) get a consistent snapshot without copying anything.
+// The cards are a CompactGameRoom and the stamps two arrays in the same player order, so a cached room holds
+// no map entries, no per-card stamp objects and no payload of its own while the payload is the default one.
+// OffHeapReplicatedRoom keeps the same contract with the room serialized in direct memory.
+class ReplicatedRoom {
+
+    enum DeltaResult {
+        APPLIED, // in sequence, and the card changed
+        SUPERSEDED, // in sequence, but the card already holds a later write
+        DUPLICATE, GAP
+    }
+
+    // userCards of the room and the stamps are read-only, they are shared with the state they were taken from, and so is
+    // the default payload of every room: for publishing and serializing only, callers of the service get gameRoom()
+    record Snapshot(GameRoom room, long version, Map<String, CardStamp> stamps) {
+    }
+
+    // stampTimes[i] and stampNodes[i] are the stamp of the card of player i of the room
+    private record State(CompactGameRoom cards, long[] stampTimes, String[] stampNodes, long localVersion,
+            Map<String, Long> appliedVersions) {
+
+        boolean wins(String userId, CardStamp stamp) {
+            int index = cards.indexOf(userId);
+            return index < 0 || compare(stamp, stampTimes[index], stampNodes[index]) > 0;
+        }
+
+        State withCard(String userId, String cardValue, CardStamp stamp) {
+            int index = cards.indexOf(userId);
+            if (index >= 0 && compare(stamp, stampTimes[index], stampNodes[index]) <= 0) {
+                return this;
+            }
+            // A new player is appended to the room, so its stamp goes at the end as well
+            long[] times = index >= 0 ? stampTimes.clone() : Arrays.copyOf(stampTimes, stampTimes.length + 1);
+            String[] nodes = index >= 0 ? stampNodes.clone() : Arrays.copyOf(stampNodes, stampNodes.length + 1);
+            int at = index >= 0 ? index : times.length - 1;
+            times[at] = stamp.time();
+            nodes[at] = internNodeId(stamp.nodeId());
+            return new State(cards.withCard(userId, cardValue), times, nodes, localVersion, appliedVersions);
+        }
+
+        State with(long version, Map<String, Long> applied) {
+            return new State(cards, stampTimes, stampNodes, version, applied);
+        }
+    }
+
+    private static final long RESYNC_RETRY_MILLIS = 1000;
+    // Every stamp names one of a handful of nodes, they share one String per node id, up to this many
+    private static final int MAX_INTERNED_NODE_IDS = 1024;
+    private static final Map<String, String> NODE_IDS = new ConcurrentHashMap<>();
+    private static final long[] NO_TIMES = new long[0];
+    private static final String[] NO_NODES = new String[0];
+
+    final String roomId;
+    // Restored from the change log: the versions other nodes reached before the log was compacted are unknown
+    final boolean restored;
+
+    // cards and their stamps, last sequence this node published for the room, origin -> last sequence applied
+    private final AtomicReference<State> state;
+    private final Map<String, Long> resyncRequestedAt = new ConcurrentHashMap<>(); // origin -> when we asked for a snapshot
+
+    ReplicatedRoom(GameRoom room) {
+        this(room, false);
+    }
+
+    ReplicatedRoom(GameRoom room, boolean restored) {
+        this.roomId = room.getRoomId();
+        this.restored = restored;
+        CompactGameRoom cards = CompactGameRoom.from(room);
+        String[] nodes = new String[cards.size()];
+        Arrays.fill(nodes, CardStamp.ZERO.nodeId());
+        this.state = new AtomicReference<>(new State(cards, new long[cards.size()], nodes, 0, Map.of()));
+    }
+
+    // For OffHeapReplicatedRoom, which only falls back to this state once it has been moved to the heap
+    ReplicatedRoom(String roomId, boolean restored) {
+        this.roomId = roomId;
+        this.restored = restored;
+        this.state = new AtomicReference<>(new State(CompactGameRoom.empty(roomId), NO_TIMES, NO_NODES, 0, Map.of()));
+    }
+
+    long selectCard(String userId, String cardValue, CardStamp stamp) {
+        // The version is taken in the same CAS as the change, so versions follow the order changes were applied in.
+        // A later write of another node may have landed since the stamp was taken, then the card stays as it is,
+        // receivers come to the same conclusion with the delta.
+        return update(current -> current.withCard(userId, cardValue, stamp)
+                .with(current.localVersion() + 1, current.appliedVersions())).localVersion();
+    }
+
+    DeltaResult applyDelta(String originId, long version, String userId, String cardValue, CardStamp stamp) {
+        while (true) {
+            State current = state.get();
+            Long applied = current.appliedVersions().get(originId);
+            // A restored room takes the first delta of an origin it has no version for as the start of the
+            // sequence, the change log already gave it the cards that origin wrote before
+            long last = applied != null ? applied : restored ? version - 1 : 0;
+            if (version <= last) {
+                return DeltaResult.DUPLICATE;
+            }
+            if (version > last + 1) {
+                return DeltaResult.GAP;
+            }
+            boolean wins = current.wins(userId, stamp);
+            State next = current.withCard(userId, cardValue, stamp)
+                    .with(current.localVersion(), with(current.appliedVersions(), originId, version));
+            if (state.compareAndSet(current, next)) {
+                return wins ? DeltaResult.APPLIED : DeltaResult.SUPERSEDED;
+            }
+        }
+    }
+
+    // Applies a delta read back from the change log: merged like any write, and it moves the origin's sequence
+    // forward so the live deltas that follow it are in order. Returns true if the card changed.
+    boolean restore(String originId, long version, String userId, String cardValue, CardStamp stamp) {
+        while (true) {
+            State current = state.get();
+            State changed = current.withCard(userId, cardValue, stamp);
+            long applied = Math.max(version, current.appliedVersions().getOrDefault(originId, 0L));
+            State next = changed.with(current.localVersion(), with(current.appliedVersions(), originId, applied));
+            if (state.compareAndSet(current, next)) {
+                return changed != current;
+            }
+        }
+    }
+
+    // Merged card by card, so an old or reordered snapshot can't undo later writes.
+    // Without an origin (compacted snapshots of the change log) only the cards are merged.
+    // Returns true if any card changed.
+    boolean applySnapshot(String originId, long version, GameRoom snapshot, Map<String, CardStamp> snapshotStamps) {
+        while (true) {
+            State current = state.get();
+            State merged = current;
+            for (Map.Entry<String, String> card : snapshot.getUserCards().entrySet()) {
+                // Snapshots of nodes that don't send stamps only fill in cards we don't have
+                CardStamp stamp = snapshotStamps == null ? CardStamp.ZERO
+                        : snapshotStamps.getOrDefault(card.getKey(), CardStamp.ZERO);
+                merged = merged.withCard(card.getKey(), card.getValue(), stamp);
+            }
+            if (originId == null) {
+                if (merged == current || state.compareAndSet(current, merged)) {
+                    return merged != current;
+                }
+                continue;
+            }
+            long applied = Math.max(version, current.appliedVersions().getOrDefault(originId, 0L));
+            State next = merged.with(current.localVersion(), with(current.appliedVersions(), originId, applied));
+            if (state.compareAndSet(current, next)) {
+                clearResyncRequest(originId);
+                return merged != current;
+            }
+        }
+    }
+
+    // Returns true if a RESYNC should be sent now, false if one is already in flight
+    boolean markResyncRequested(String originId) {
+        long now = System.currentTimeMillis();
+        boolean[] requested = new boolean[1];
+        resyncRequestedAt.compute(originId, (origin, requestedAt) -> {
+            if (requestedAt != null && now - requestedAt < RESYNC_RETRY_MILLIS) {
+                return requestedAt;
+            }
+            requested[0] = true;
+            return now;
+        });
+        return requested[0];
+    }
+
+    void clearResyncRequest(String originId) {
+        resyncRequestedAt.remove(originId);
+    }
+
+    Snapshot snapshot() {
+        State current = state.get();
+        return new Snapshot(current.cards().toReadOnlyGameRoom(), current.localVersion(),
+                new Stamps(current.cards(), current.stampTimes(), current.stampNodes()));
+    }
+
+    // A copy of the room the caller owns, for GameService callers who may change it
+    GameRoom gameRoom() {
+        return state.get().cards().toGameRoom();
+    }
+
+    // Called once the room has left the cache, it may still be in use by a request in flight
+    void release() {
+    }
+
+    // Replaces the whole state, for an off-heap room moving to the heap
+    void load(Snapshot snapshot, Map<String, Long> appliedVersions) {
+        CompactGameRoom cards = CompactGameRoom.from(snapshot.room());
+        long[] times = new long[cards.size()];
+        String[] nodes = new String[cards.size()];
+        for (int i = 0; i < cards.size(); i++) {
+            CardStamp stamp = snapshot.stamps().getOrDefault(cards.userId(i), CardStamp.ZERO);
+            times[i] = stamp.time();
+            nodes[i] = internNodeId(stamp.nodeId());
+        }
+        state.set(new State(cards, times, nodes, snapshot.version(), readOnly(appliedVersions)));
+    }
+
+    private State update(UnaryOperator<State> change) {
+        while (true) {
+            State current = state.get();
+            State next = change.apply(current);
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static int compare(CardStamp stamp, long time, String nodeId) {
+        int byTime = Long.compare(stamp.time(), time);
+        return byTime != 0 ? byTime : stamp.nodeId().compareTo(nodeId);
+    }
+
+    private static String internNodeId(String nodeId) {
+        String interned = NODE_IDS.get(nodeId);
+        if (interned != null) {
+            return interned;
+        }
+        if (NODE_IDS.size() >= MAX_INTERNED_NODE_IDS) {
+            return nodeId;
+        }
+        interned = NODE_IDS.putIfAbsent(nodeId, nodeId);
+        return interned != null ? interned : nodeId;
+    }
+
+    private static <V> Map<String, V> with(Map<String, V> map, String key, V value) {
+        Map<String, V> copy = new HashMap<>(map);
+        copy.put(key, value);
+        return readOnly(copy);
+    }
+
+    private static <V> Map<String, V> readOnly(Map<String, V> map) {
+        return Collections.unmodifiableMap(map);
+    }
+
+    // Read-only view of a state's stamps by player, CardStamps are only built for the entries that are read
+    private static final class Stamps extends AbstractMap<String, CardStamp> {
+        private final CompactGameRoom cards;
+        private final long[] times;
+        private final String[] nodes;
+
+        private Stamps(CompactGameRoom cards, long[] times, String[] nodes) {
+            this.cards = cards;
+            this.times = times;
+            this.nodes = nodes;
+        }
+
+        @Override
+        public int size() {
+            return times.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String userId && cards.indexOf(userId) >= 0;
+        }
+
+        @Override
+        public CardStamp get(Object key) {
+            int index = key instanceof String userId ? cards.indexOf(userId) : -1;
+            return index < 0 ? null : new CardStamp(times[index], nodes[index]);
+        }
+
+        @Override
+        public Set<Entry<String, CardStamp>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return times.length;
+                }
+
+                @Override
+                public Iterator<Entry<String, CardStamp>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < times.length;
+                        }
+
+                        @Override
+                        public Entry<String, CardStamp> next() {
+                            if (next >= times.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new SimpleImmutableEntry<>(cards.userId(i), new CardStamp(times[i], nodes[i]));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.dto.GameEvent;
+
+// Spring application event: a room changed on this node, or a change of it arrived over Pub/Sub.
+// change is the DELTA when the exact change is known, otherwise listeners read the room again from source.
+public record RoomChangedEvent(GameService source, String roomId, GameEvent change) {
+}
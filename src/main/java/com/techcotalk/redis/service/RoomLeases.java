@@ -0,0 +1,78 @@
+package com.techcotalk.redis.service;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.List;
+
+// Per-room ownership leases in Redis: key = prefix + roomId, value = the owner's node id, expiring unless renewed.
+// Renew and release only touch a lease this node still holds, so a node that lost its lease (expired, taken over)
+// never extends or deletes the new owner's.
+class RoomLeases {
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+                    + "return 0",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('DEL', KEYS[1]) end "
+                    + "return 0",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final String keyPrefix;
+    private final String nodeId;
+
+    RoomLeases(RedisTemplate<String, Object> redisTemplate, String keyPrefix, String nodeId) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.nodeId = nodeId;
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+
+    // True if this node took the lease, false if another node holds it
+    boolean acquire(String roomId, Duration lease) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key(roomId), nodeId, lease));
+    }
+
+    // False once the lease is gone or held by another node
+    boolean renew(String roomId, Duration lease) {
+        return Long.valueOf(1L).equals(run(RENEW_SCRIPT, roomId, String.valueOf(lease.toMillis())));
+    }
+
+    void release(String roomId) {
+        run(RELEASE_SCRIPT, roomId, null);
+    }
+
+    // Node id of the current owner, null when nobody holds the room
+    String owner(String roomId) {
+        return (String) redisTemplate.opsForValue().get(key(roomId));
+    }
+
+    private Long run(RedisScript<Long> script, String roomId, String argument) {
+        // The node id is compared with the value SET wrote, so it goes through the same serializer
+        byte[] owner = serializeValue(nodeId);
+        Object[] args = argument == null ? new Object[] { owner }
+                : new Object[] { owner, RedisSerializer.string().serialize(argument) };
+        return redisTemplate.execute(script, RedisSerializer.byteArray(), new GenericToStringSerializer<>(Long.class),
+                List.of(key(roomId)), args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serializeValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+    }
+
+    private String key(String roomId) {
+        return keyPrefix + roomId;
+    }
+}
@@ -0,0 +1,193 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.global.config.SubscriptionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Interest-based Pub/Sub routing.
+// In SHARD / ROOM mode every room publishes on its own channel, and this node only subscribes to the
+// channels of rooms it currently serves (WebSocket sessions, cached state), so the receive side scales
+// with local interest instead of cluster-wide traffic. In BROADCAST mode listeners stay on the strategy
+// channel and acquire / release do nothing.
+@Slf4j
+@Component
+public class RoomSubscriptionRegistry {
+
+    private final SubscriptionProperties.Mode mode;
+    private final int shards;
+    private final long unsubscribeDelayMillis;
+
+    private final Counter subscribeCounter;
+    private final Counter unsubscribeCounter;
+
+    // strategy channel -> listeners to attach to each of its room channels
+    private final Map<String, List<MessageListener>> listeners = new ConcurrentHashMap<>();
+
+    // room channel -> its interest. Each channel is (un)subscribed under its own lock, so the container never sees
+    // an UNSUBSCRIBE overtake the SUBSCRIBE of a new interest, while other channels are not held up by it
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+
+    private static final class Channel {
+        private int interest;       // acquire() calls not released yet, guarded by this
+        private boolean subscribed; // guarded by this
+        private boolean removed;    // taken out of the map once idle, guarded by this
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private volatile RedisMessageListenerContainer container;
+
+    public RoomSubscriptionRegistry(SubscriptionProperties properties, MeterRegistry meterRegistry) {
+        this.mode = properties.getMode();
+        this.shards = properties.getShards();
+        this.unsubscribeDelayMillis = properties.getUnsubscribeDelay().toMillis();
+
+        this.subscribeCounter = meterRegistry.counter("game.subscription.changes", "action", "subscribe");
+        this.unsubscribeCounter = meterRegistry.counter("game.subscription.changes", "action", "unsubscribe");
+        meterRegistry.gaugeCollectionSize("game.subscription.channels", Tags.empty(), subscribed);
+
+        if (mode != SubscriptionProperties.Mode.BROADCAST && unsubscribeDelayMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "room-subscriptions");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public void register(RedisMessageListenerContainer container, ChannelTopic topic, MessageListener listener) {
+        this.container = container;
+        if (mode == SubscriptionProperties.Mode.BROADCAST) {
+            container.addMessageListener(listener, topic);
+            return;
+        }
+        listeners.computeIfAbsent(topic.getTopic(), t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    // The channel a room's events are published on, the same on every node
+    public ChannelTopic channelFor(ChannelTopic topic, String roomId) {
+        if (roomId == null) {
+            return topic;
+        }
+        return switch (mode) {
+            case BROADCAST -> topic;
+            case SHARD -> new ChannelTopic(topic.getTopic() + ":" + Math.floorMod(roomId.hashCode(), shards));
+            case ROOM -> new ChannelTopic(topic.getTopic() + ":" + roomId);
+        };
+    }
+
+    // Every acquire must be paired with exactly one release
+    public void acquire(ChannelTopic topic, String roomId) {
+        if (mode == SubscriptionProperties.Mode.BROADCAST) {
+            return;
+        }
+
+        String channel = channelFor(topic, roomId).getTopic();
+        while (true) {
+            Channel state = channels.computeIfAbsent(channel, c -> new Channel());
+            synchronized (state) {
+                if (state.removed) {
+                    continue; // unsubscribed and dropped meanwhile, start over with a new one
+                }
+                state.interest++;
+                if (!state.subscribed) {
+                    log.debug("[Subscriptions] Subscribing to {}", channel);
+                    try {
+                        forEachListener(topic, listener -> container.addMessageListener(listener, new ChannelTopic(channel)));
+                    } catch (RuntimeException e) {
+                        state.interest--;
+                        throw e;
+                    }
+                    state.subscribed = true;
+                    subscribed.add(channel);
+                    subscribeCounter.increment();
+                }
+                return;
+            }
+        }
+    }
+
+    public void release(ChannelTopic topic, String roomId) {
+        if (mode == SubscriptionProperties.Mode.BROADCAST) {
+            return;
+        }
+
+        String channel = channelFor(topic, roomId).getTopic();
+        Channel state = channels.get(channel);
+        if (state == null) {
+            log.warn("[Subscriptions] Release without acquire for {}", channel);
+            return;
+        }
+        synchronized (state) {
+            if (state.removed || state.interest == 0) {
+                log.warn("[Subscriptions] Release without acquire for {}", channel);
+                return;
+            }
+            if (--state.interest > 0) {
+                return;
+            }
+        }
+
+        if (scheduler == null) {
+            unsubscribeIfIdle(topic, channel);
+        } else {
+            scheduler.schedule(() -> unsubscribeIfIdle(topic, channel), unsubscribeDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void unsubscribeIfIdle(ChannelTopic topic, String channel) {
+        Channel state = channels.get(channel);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            // Someone may have acquired the channel again while the unsubscribe was pending
+            if (state.removed || state.interest > 0) {
+                return;
+            }
+            if (state.subscribed) {
+                log.debug("[Subscriptions] Unsubscribing from {}", channel);
+                forEachListener(topic, listener -> container.removeMessageListener(listener, new ChannelTopic(channel)));
+                state.subscribed = false;
+                subscribed.remove(channel);
+                unsubscribeCounter.increment();
+            }
+            // An acquire() that already holds this state starts over with a new one
+            state.removed = true;
+            channels.remove(channel, state);
+        }
+    }
+
+    private void forEachListener(ChannelTopic topic, Consumer<MessageListener> action) {
+        if (container == null) {
+            return; // not wired into a container (e.g. services built by hand in tests)
+        }
+        listeners.getOrDefault(topic.getTopic(), List.of()).forEach(action);
+    }
+}
@@ -0,0 +1,339 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.global.config.WriteBehindProperties;
+import com.techcotalk.redis.repository.GameRoomJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind stage for the cache strategies: changes are coalesced per room in memory
+// and flushed to MySQL in JDBC batches on a size or time trigger.
+// Writers never flush themselves: a full buffer wakes the flusher and makes the writer wait for space (bounded),
+// so MySQL latency doesn't land on request threads beyond that wait.
+// A failed room is retried a bounded number of times, backing off while MySQL keeps failing, and then given up
+// (dead letter). Every change that never reaches MySQL is counted in game.write-behind.dropped by reason.
+@Slf4j
+@Component
+public class WriteBehindBuffer {
+
+    private final GameRoomJdbcRepository gameRoomJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindProperties properties;
+
+    private final Timer flushTimer;
+    private final Timer lagTimer;
+    private final Counter flushedRooms;
+    private final Counter backpressureCounter;
+    private final Counter droppedFullCounter;
+    private final Counter droppedInterruptedCounter;
+    private final Counter droppedShutdownCounter;
+    private final Counter deadLetterCounter;
+    private final Counter failureCounter;
+
+    // roomId -> changes not yet in MySQL. A room is only mutated inside compute(), so the flusher
+    // owns it exclusively once it has been removed from the map.
+    private final Map<String, DirtyRoom> pending = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Object spaceAvailable = new Object(); // notified whenever a flush took rooms out of the buffer
+    private final ScheduledExecutorService scheduler;
+
+    // Scheduled flushes wait until then after failed ones, doubling the wait up to MAX_BACKOFF (guarded by flushLock)
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    private int consecutiveFailures;
+    private long retryNotBefore;
+
+    public WriteBehindBuffer(GameRoomJdbcRepository gameRoomJdbcRepository,
+            PlatformTransactionManager transactionManager,
+            WriteBehindProperties properties,
+            MeterRegistry meterRegistry) {
+        this.gameRoomJdbcRepository = gameRoomJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+
+        this.flushTimer = meterRegistry.timer("game.write-behind.flush");
+        this.lagTimer = meterRegistry.timer("game.write-behind.lag");
+        this.flushedRooms = meterRegistry.counter("game.write-behind.flushed.rooms");
+        this.backpressureCounter = meterRegistry.counter("game.write-behind.backpressure");
+        this.droppedFullCounter = meterRegistry.counter("game.write-behind.dropped", "reason", "full");
+        this.droppedInterruptedCounter = meterRegistry.counter("game.write-behind.dropped", "reason", "interrupted");
+        this.droppedShutdownCounter = meterRegistry.counter("game.write-behind.dropped", "reason", "shutdown");
+        this.deadLetterCounter = meterRegistry.counter("game.write-behind.dropped", "reason", "dead-letter");
+        this.failureCounter = meterRegistry.counter("game.write-behind.failures");
+        meterRegistry.gaugeMapSize("game.write-behind.pending", Tags.empty(), pending);
+
+        if (properties.isEnabled()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "write-behind-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = properties.getFlushInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::flushScheduled, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // A (re-)created room: its row is written and every card it had in MySQL is removed
+    public void recordRoom(String roomId) {
+        record(roomId, null, null);
+    }
+
+    public void recordCard(String roomId, String userId, String cardValue) {
+        record(roomId, userId, cardValue);
+    }
+
+    private void record(String roomId, String userId, String cardValue) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        // Backpressure: a room already in the buffer is coalesced, a new one waits until the flusher made space
+        if (!pending.containsKey(roomId) && pending.size() >= properties.getMaxPendingRooms()) {
+            SpaceResult space = awaitSpace();
+            if (space != SpaceResult.AVAILABLE) {
+                (space == SpaceResult.INTERRUPTED ? droppedInterruptedCounter : droppedFullCounter).increment();
+                log.warn("Write-behind buffer is full, dropping the change of room {} ({})", roomId, space);
+                return;
+            }
+        }
+
+        pending.compute(roomId, (id, room) -> {
+            DirtyRoom dirty = room != null ? room : new DirtyRoom(System.nanoTime());
+            if (userId == null) {
+                // Cards picked before the room was re-created must not reach MySQL, nor stay there
+                dirty.reset = true;
+                dirty.cards.clear();
+            } else {
+                dirty.cards.put(userId, cardValue); // later picks of the same user overwrite earlier ones
+            }
+            return dirty;
+        });
+
+        if (pending.size() >= properties.getBatchSize()) {
+            signalFlush();
+        }
+    }
+
+    private enum SpaceResult { AVAILABLE, TIMED_OUT, INTERRUPTED }
+
+    private SpaceResult awaitSpace() {
+        backpressureCounter.increment();
+        signalFlush();
+        long deadline = System.nanoTime() + properties.getBackpressureTimeout().toNanos();
+        synchronized (spaceAvailable) {
+            while (pending.size() >= properties.getMaxPendingRooms()) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return SpaceResult.TIMED_OUT;
+                }
+                try {
+                    spaceAvailable.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return SpaceResult.INTERRUPTED;
+                }
+            }
+        }
+        return SpaceResult.AVAILABLE;
+    }
+
+    private void signalFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushScheduled.set(false);
+                flushScheduled();
+            });
+        }
+    }
+
+    // Flushes right away, also while scheduled flushes back off
+    public void flush() {
+        flush(true);
+    }
+
+    private void flush(boolean now) {
+        flushLock.lock();
+        try {
+            if (!now && consecutiveFailures > 0 && System.nanoTime() - retryNotBefore < 0) {
+                return; // MySQL failed recently
+            }
+            try {
+                // Only drain what is dirty right now, so busy writers can't keep one flush going forever
+                for (int remaining = pending.size(); remaining > 0 && !pending.isEmpty(); remaining -= properties.getBatchSize()) {
+                    flushBatch();
+                }
+            } catch (RuntimeException e) {
+                consecutiveFailures++;
+                long backoff = Math.min(properties.getFlushInterval().toNanos() << Math.min(consecutiveFailures, 20),
+                        MAX_BACKOFF.toNanos());
+                retryNotBefore = System.nanoTime() + backoff;
+                throw e;
+            }
+            consecutiveFailures = 0;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushBatch() {
+        Map<String, DirtyRoom> batch = new HashMap<>();
+        long oldestDirtySince = Long.MAX_VALUE;
+        Iterator<String> roomIds = pending.keySet().iterator();
+        while (roomIds.hasNext() && batch.size() < properties.getBatchSize()) {
+            String roomId = roomIds.next();
+            DirtyRoom dirty = pending.remove(roomId);
+            if (dirty != null) {
+                batch.put(roomId, dirty);
+                oldestDirtySince = Math.min(oldestDirtySince, dirty.dirtySince);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        synchronized (spaceAvailable) {
+            spaceAvailable.notifyAll();
+        }
+
+        try {
+            write(batch);
+            // Lag: how long the oldest change of this batch waited before it was durable
+            lagTimer.record(System.nanoTime() - oldestDirtySince, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            failureCounter.increment();
+            if (batch.size() == 1) {
+                retryLater(batch);
+                throw e;
+            }
+            // One bad room fails the whole batch: the rooms are written one by one, so only the failing ones
+            // are retried (and eventually given up) rather than every room that happened to share its batch
+            Map<String, DirtyRoom> failed = new HashMap<>();
+            batch.forEach((roomId, dirty) -> {
+                try {
+                    write(Map.of(roomId, dirty));
+                } catch (RuntimeException roomFailure) {
+                    failed.put(roomId, dirty);
+                }
+            });
+            if (!failed.isEmpty()) {
+                retryLater(failed);
+                throw e;
+            }
+        }
+    }
+
+    private void write(Map<String, DirtyRoom> batch) {
+        List<String> resetRooms = new ArrayList<>();
+        Map<String, Map<String, String>> cardsByRoom = new HashMap<>();
+        batch.forEach((roomId, dirty) -> {
+            if (dirty.reset) {
+                resetRooms.add(roomId);
+            }
+            cardsByRoom.put(roomId, dirty.cards);
+        });
+        flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+            gameRoomJdbcRepository.insertRooms(batch.keySet());
+            gameRoomJdbcRepository.deleteCards(resetRooms);
+            gameRoomJdbcRepository.upsertCards(cardsByRoom);
+        }));
+        flushedRooms.increment(batch.size());
+    }
+
+    // Puts the failed rooms back, unless they failed max-attempts times: those are given up and logged with
+    // their changes
+    private void retryLater(Map<String, DirtyRoom> failed) {
+        Map<String, DirtyRoom> retried = new HashMap<>();
+        failed.forEach((roomId, dirty) -> {
+            dirty.attempts++;
+            if (dirty.attempts < properties.getMaxAttempts()) {
+                retried.put(roomId, dirty);
+                return;
+            }
+            deadLetterCounter.increment();
+            log.error("Write-behind gave up on room {} after {} attempts, dropping its changes (reset: {}, cards: {})",
+                    roomId, dirty.attempts, dirty.reset, dirty.cards);
+        });
+        requeue(retried);
+    }
+
+    // Puts a failed batch back without overwriting anything written after it was taken
+    private void requeue(Map<String, DirtyRoom> batch) {
+        long now = System.nanoTime();
+        batch.forEach((roomId, failed) -> pending.compute(roomId, (id, room) -> {
+            if (room == null) {
+                return failed;
+            }
+            // Re-created since: the failed changes are gone for good
+            if (room.reset) {
+                return room;
+            }
+            DirtyRoom dirty = new DirtyRoom(Math.min(now, failed.dirtySince));
+            dirty.reset = failed.reset;
+            dirty.attempts = failed.attempts;
+            dirty.cards.putAll(failed.cards);
+            dirty.cards.putAll(room.cards);
+            return dirty;
+        }));
+    }
+
+    private void flushScheduled() {
+        try {
+            flush(false);
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed, {} rooms are kept for the next attempt", pending.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed on shutdown", e);
+        }
+        if (!pending.isEmpty()) {
+            droppedShutdownCounter.increment(pending.size());
+            log.error("Write-behind shut down with {} rooms not written to MySQL: {}", pending.size(), pending.keySet());
+        }
+    }
+
+    private static class DirtyRoom {
+        private final long dirtySince;
+        private final Map<String, String> cards = new HashMap<>();
+        private boolean reset; // created (again) since the last flush
+        private int attempts; // failed flushes of these changes
+
+        private DirtyRoom(long dirtySince) {
+            this.dirtySince = dirtySince;
+        }
+    }
+}
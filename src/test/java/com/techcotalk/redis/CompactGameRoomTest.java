@@ -0,0 +1,80 @@
+package com.techcotalk.redis;
+
+import com.techcotalk.redis.domain.model.CompactGameRoom;
+import com.techcotalk.redis.domain.model.GameRoom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactGameRoomTest {
+
+    @Test
+    @DisplayName("CompactGameRoom should convert to and from the JPA entity without losing cards or payload")
+    void testRoundTrip() {
+        // Given
+        GameRoom room = GameRoom.builder().roomId("room-1").build();
+        room.selectCard("user-1", "Ace");
+        room.selectCard("user-2", "Queen");
+        GameRoom custom = GameRoom.builder().roomId("room-2").build();
+        custom.getDummyData()[7] = 42;
+
+        // When
+        GameRoom converted = CompactGameRoom.from(room).toGameRoom();
+        GameRoom convertedCustom = CompactGameRoom.from(custom).toGameRoom();
+
+        // Then
+        assertThat(converted).isEqualTo(room);
+        assertThat(converted.getUserCards()).isNotSameAs(room.getUserCards());
+        converted.selectCard("user-3", "King");
+        assertThat(room.getUserCards()).doesNotContainKey("user-3");
+        assertThat(convertedCustom.getDummyData()).isEqualTo(custom.getDummyData()).isNotSameAs(custom.getDummyData());
+    }
+
+    @Test
+    @DisplayName("withCard should leave the original room unchanged and share interned card values")
+    void testWithCardIsCopyOnWrite() {
+        // Given
+        CompactGameRoom empty = CompactGameRoom.empty("room-1");
+
+        // When
+        CompactGameRoom one = empty.withCard("user-1", new String("Ace"));
+        CompactGameRoom two = one.withCard("user-2", "King").withCard("user-1", new String("Jack"));
+
+        // Then
+        assertThat(empty.size()).isZero();
+        assertThat(one.userCards()).isEqualTo(Map.of("user-1", "Ace"));
+        assertThat(two.userCards()).isEqualTo(Map.of("user-1", "Jack", "user-2", "King"));
+        assertThat(two.indexOf("user-1")).isEqualTo(one.indexOf("user-1"));
+        assertThat(one.cardOf("user-1")).isSameAs("Ace");
+        assertThat(two.cardOf("user-1")).isSameAs("Jack");
+        assertThat(two.withCard("user-2", new String("King"))).isSameAs(two);
+    }
+
+    @Test
+    @DisplayName("The read-only view should reject changes, while copies own their cards and payload")
+    void testReadOnlyViewAndCopies() {
+        // Given
+        CompactGameRoom first = CompactGameRoom.empty("room-1").withCard("user-1", "Ace");
+        CompactGameRoom second = CompactGameRoom.empty("room-2");
+
+        // When
+        GameRoom view = first.toReadOnlyGameRoom();
+        GameRoom copy = first.toGameRoom();
+        copy.getDummyData()[0] = 1;
+        copy.selectCard("user-2", "King");
+
+        // Then
+        assertThat(view.getUserCards()).containsEntry("user-1", "Ace").hasSize(1);
+        assertThat(view.getDummyData()).hasSize(CompactGameRoom.DEFAULT_PAYLOAD_SIZE);
+        assertThatThrownBy(() -> view.selectCard("user-2", "King"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThat(copy.getUserCards()).containsEntry("user-2", "King");
+        assertThat(first.userCards()).doesNotContainKey("user-2");
+        assertThat(second.toGameRoom().getDummyData()).containsOnly((byte) 0);
+        assertThat(second.toReadOnlyGameRoom().getDummyData()).containsOnly((byte) 0);
+    }
+}
@@ -0,0 +1,73 @@
+package com.techcotalk.redis;
+
+import com.techcotalk.redis.domain.dto.CardStamp;
+import com.techcotalk.redis.domain.dto.GameEvent;
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.codec.GameBinaryRedisSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GameBinaryRedisSerializerTest {
+
+    @Test
+    @DisplayName("Binary codec should round-trip a PAYLOAD event and be smaller than JSON")
+    void testPayloadEventRoundTrip() {
+        // Given
+        GameRoom room = GameRoom.builder().roomId("room-1").build();
+        room.selectCard("user-1", "Ace");
+        room.getDummyData()[7] = 42;
+        GameEvent event = GameEvent.builder()
+                .type(GameEvent.Type.PAYLOAD)
+                .roomId("room-1")
+                .originId("node-a")
+                .publishedAt(1_700_000_000_000L)
+                .version(3)
+                .payload(room)
+                .stamps(Map.of("user-1", new CardStamp(42L << 16, "node-a")))
+                .build();
+
+        GameBinaryRedisSerializer binary = new GameBinaryRedisSerializer(512);
+
+        // When
+        byte[] bytes = binary.serialize(event);
+        GameEvent decoded = (GameEvent) binary.deserialize(bytes);
+
+        // Then
+        assertThat(decoded).isEqualTo(event);
+        assertThat(bytes.length).isLessThan(new GenericJackson2JsonRedisSerializer().serialize(event).length);
+    }
+
+    @Test
+    @DisplayName("Binary codec should round-trip plain hash values with compression disabled")
+    void testHashValuesRoundTrip() {
+        GameBinaryRedisSerializer binary = new GameBinaryRedisSerializer(0);
+
+        assertThat(binary.deserialize(binary.serialize("King"))).isEqualTo("King");
+        assertThat((byte[]) binary.deserialize(binary.serialize(new byte[1024]))).hasSize(1024);
+        assertThat(binary.deserialize(binary.serialize(null))).isNull();
+    }
+
+    @Test
+    @DisplayName("Binary codec should round-trip a BATCH event with its nested events")
+    void testBatchEventRoundTrip() {
+        // Given
+        GameEvent first = GameEvent.builder().type(GameEvent.Type.DELTA).roomId("room-1").originId("node-a")
+                .version(1).userId("user-1").cardValue("Ace").requestId("request-1").build();
+        GameEvent second = GameEvent.builder().type(GameEvent.Type.INVALIDATE).roomId("room-2").build();
+        GameEvent batch = GameEvent.builder().type(GameEvent.Type.BATCH).events(List.of(first, second)).build();
+
+        GameBinaryRedisSerializer binary = new GameBinaryRedisSerializer(512);
+
+        // When
+        GameEvent decoded = (GameEvent) binary.deserialize(binary.serialize(batch));
+
+        // Then
+        assertThat(decoded.unbatch()).containsExactly(first, second);
+    }
+}
@@ -1,26 +1,71 @@
 package com.techcotalk.redis;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techcotalk.redis.domain.dto.CardSelection;
+import com.techcotalk.redis.domain.dto.GameEvent;
 import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.codec.GameBinaryRedisSerializer;
+import com.techcotalk.redis.global.config.AdaptiveRoutingProperties;
+import com.techcotalk.redis.global.config.ChangeLogProperties;
+import com.techcotalk.redis.global.config.GlobalCacheProperties;
+import com.techcotalk.redis.global.config.HybridCacheProperties;
+import com.techcotalk.redis.global.config.LocalCacheProperties;
+import com.techcotalk.redis.global.config.PublishProperties;
+import com.techcotalk.redis.global.config.RdbmsProperties;
 import com.techcotalk.redis.global.config.RedisConfig;
+import com.techcotalk.redis.global.config.SubscriptionProperties;
+import com.techcotalk.redis.global.config.WriteBehindProperties;
+import com.techcotalk.redis.handler.GameCommandCodec;
 import com.techcotalk.redis.repository.GameJpaRepository;
+import com.techcotalk.redis.repository.GameRoomJdbcRepository;
+import com.techcotalk.redis.service.AdaptiveGameService;
+import com.techcotalk.redis.service.GameEventListener;
+import com.techcotalk.redis.service.GameEventPublisher;
 import com.techcotalk.redis.service.GameService;
 import com.techcotalk.redis.service.GlobalCacheGameService;
+import com.techcotalk.redis.service.HybridCacheGameService;
 import com.techcotalk.redis.service.LocalCacheGameService;
+import com.techcotalk.redis.service.LocalCacheWarmStart;
+import com.techcotalk.redis.service.LocalChangeLog;
+import com.techcotalk.redis.service.PubSubDispatcher;
 import com.techcotalk.redis.service.RdbmsGameService;
+import com.techcotalk.redis.service.RoomSubscriptionRegistry;
+import com.techcotalk.redis.service.WriteBehindBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.awaitility.Awaitility.await;
 
 @SpringBootTest
@@ -30,10 +75,10 @@ class GameSynchronizationTest {
     private RedisTemplate<String, Object> redisTemplate;
 
     @Autowired
-    private ChannelTopic topic;
+    private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private ChannelTopic topic;
 
     @Autowired
     private GameJpaRepository gameJpaRepository;
@@ -41,6 +86,30 @@ class GameSynchronizationTest {
     @Autowired
     private RedisMessageListenerContainer redisMessageListenerContainer;
 
+    @Autowired
+    private WriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    private GameRoomJdbcRepository gameRoomJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private GameEventPublisher eventPublisher;
+
+    @Autowired
+    private RoomSubscriptionRegistry roomSubscriptions;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private LocalChangeLog changeLog;
+
+    @Autowired
+    private PubSubDispatcher pubSubDispatcher;
+
     @BeforeEach
     void setUp() {
         // Clean up
@@ -52,8 +121,8 @@ class GameSynchronizationTest {
     @DisplayName("Strategy 1: RDBMS + Pub/Sub - Data should be synced via DB fetch")
     void testRdbmsStrategy() {
         // Given
-        RdbmsGameService serverA = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, objectMapper);
-        RdbmsGameService serverB = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, objectMapper);
+        RdbmsGameService serverA = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, gameRoomJdbcRepository, new RdbmsProperties(), eventPublisher, roomSubscriptions, applicationEventPublisher, transactionManager, new SimpleMeterRegistry());
+        RdbmsGameService serverB = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, gameRoomJdbcRepository, new RdbmsProperties(), eventPublisher, roomSubscriptions, applicationEventPublisher, transactionManager, new SimpleMeterRegistry());
 
         // Register Server B as listener to simulate distributed environment
         redisMessageListenerContainer.addMessageListener(serverB, topic);
@@ -75,12 +144,85 @@ class GameSynchronizationTest {
         });
     }
 
+    @Test
+    @DisplayName("Strategy 1: RDBMS (Upsert path) - Card picks should be upserted and read back in one query")
+    void testRdbmsUpsertPath() {
+        // Given
+        RdbmsProperties properties = new RdbmsProperties();
+        properties.setAccessPath(RdbmsProperties.AccessPath.UPSERT);
+        RdbmsGameService server = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, gameRoomJdbcRepository, properties, eventPublisher, roomSubscriptions, applicationEventPublisher, transactionManager, new SimpleMeterRegistry());
+
+        String roomId = "room-1-upsert";
+        server.createRoom(roomId);
+
+        // When
+        server.selectCard(roomId, "user-1", "Ace");
+        server.selectCard(roomId, "user-1", "King");
+        server.selectCard(roomId, "user-2", "Queen");
+
+        // Then
+        GameRoom room = server.getGameRoom(roomId);
+        assertThat(room.getUserCards())
+                .hasSize(2)
+                .containsEntry("user-1", "King")
+                .containsEntry("user-2", "Queen");
+        assertThatThrownBy(() -> server.selectCard("no-such-room", "user-1", "Ace"))
+                .hasMessage("Room not found");
+    }
+
+    @Test
+    @DisplayName("Strategy 1: RDBMS (Read cache) - Cached room should be loaded once and evicted via Invalidation")
+    void testRdbmsReadThroughCache() throws Exception {
+        // Given
+        RdbmsProperties properties = new RdbmsProperties();
+        properties.setCacheEnabled(true);
+        RdbmsGameService serverA = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, gameRoomJdbcRepository, properties, eventPublisher, roomSubscriptions, applicationEventPublisher, transactionManager, new SimpleMeterRegistry());
+        SimpleMeterRegistry meterRegistryB = new SimpleMeterRegistry();
+        RdbmsGameService serverB = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, gameRoomJdbcRepository, properties, eventPublisher, roomSubscriptions, applicationEventPublisher, transactionManager, meterRegistryB);
+        redisMessageListenerContainer.addMessageListener(serverB, topic);
+
+        String roomId = "room-1-cached";
+        serverA.createRoom(roomId);
+
+        // When
+        // Concurrent misses of a cold room share a single load
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<GameRoom>> reads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            reads.add(executor.submit(() -> serverB.getGameRoom(roomId)));
+        }
+        GameRoom cached = reads.get(0).get();
+        for (Future<GameRoom> read : reads) {
+            assertThat(read.get().getUserCards()).isEqualTo(cached.getUserCards());
+        }
+        executor.shutdown();
+        assertThat(meterRegistryB.get("game.cache.loads").counter().count()).isEqualTo(1);
+
+        // Every read gets its own copy: changing it doesn't change what the next read sees
+        cached.selectCard("user-9", "Joker");
+        assertThat(serverB.getGameRoom(roomId).getUserCards()).doesNotContainKey("user-9");
+        assertThat(meterRegistryB.get("game.cache.loads").counter().count()).isEqualTo(1);
+
+        serverA.selectCard(roomId, "user-1", "Ace");
+
+        // Then
+        // The invalidation evicts B's copy, the next read goes to the DB again
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(serverB.getGameRoom(roomId).getUserCards()).containsEntry("user-1", "Ace"));
+        assertThat(cached.getUserCards()).doesNotContainKey("user-1");
+
+        // Re-creating the room drops B's copy as well
+        serverA.createRoom(roomId);
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(serverB.getGameRoom(roomId).getUserCards()).isEmpty());
+    }
+
     @Test
     @DisplayName("Strategy 2: Global Cache + Pub/Sub - Data should be synced via Redis fetch")
     void testGlobalCacheStrategy() {
         // Given
-        GlobalCacheGameService serverA = new GlobalCacheGameService(redisTemplate, topic, objectMapper);
-        GlobalCacheGameService serverB = new GlobalCacheGameService(redisTemplate, topic, objectMapper);
+        GlobalCacheGameService serverA = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, new GlobalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+        GlobalCacheGameService serverB = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, new GlobalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
 
         redisMessageListenerContainer.addMessageListener(serverB, topic);
 
@@ -98,12 +240,162 @@ class GameSynchronizationTest {
         });
     }
 
+    @Test
+    @DisplayName("Strategy 2: Global Cache (Hash layout) - Concurrent selections should not lose updates")
+    void testGlobalCacheHashLayout() throws InterruptedException {
+        // Given
+        GlobalCacheProperties properties = new GlobalCacheProperties();
+        properties.setLayout(GlobalCacheProperties.Layout.HASH);
+        GlobalCacheGameService serverA = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+        GlobalCacheGameService serverB = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+
+        String roomId = "room-2-hash";
+        serverA.createRoom(roomId);
+
+        // When
+        // Both servers write different users into the same room at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 50; i++) {
+            GlobalCacheGameService server = i % 2 == 0 ? serverA : serverB;
+            String userId = "user-" + i;
+            executor.submit(() -> server.selectCard(roomId, userId, "Ace"));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        // Then
+        GameRoom room = serverB.getGameRoom(roomId);
+        assertThat(room.getUserCards()).hasSize(50);
+        assertThat(room.getDummyData()).hasSize(1024);
+    }
+
+    @Test
+    @DisplayName("Strategy 2: Global Cache (Async) - Concurrent commands should complete without blocking callers")
+    void testGlobalCacheAsyncApi() {
+        for (GlobalCacheProperties.Layout layout : GlobalCacheProperties.Layout.values()) {
+            // Given
+            GlobalCacheProperties properties = new GlobalCacheProperties();
+            properties.setLayout(layout);
+            GlobalCacheGameService serverA = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+            GlobalCacheGameService serverB = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+
+            String roomId = "room-2-async-" + layout;
+            serverA.createRoomAsync(roomId).join();
+
+            // When
+            // Every selection is in flight at once, from a single thread
+            List<CompletableFuture<Void>> selections = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                selections.add(serverA.selectCardAsync(roomId, "user-" + i, "Ace"));
+            }
+            CompletableFuture.allOf(selections.toArray(CompletableFuture[]::new)).join();
+
+            // Then
+            // The hash layout applies every selection, the value layout at least one (read-modify-write, as in sync)
+            GameRoom room = serverB.getGameRoomAsync(roomId).join();
+            assertThat(room.getUserCards()).isNotEmpty().containsValue("Ace");
+            if (layout == GlobalCacheProperties.Layout.HASH) {
+                assertThat(room.getUserCards()).hasSize(20);
+            }
+            assertThat(serverB.getGameRoom(roomId)).isEqualTo(room);
+            assertThat(serverB.getGameRoomAsync("no-such-room").join()).isNull();
+            assertThatThrownBy(() -> serverA.selectCardAsync("no-such-room", "user-1", "Ace").join())
+                    .hasCauseInstanceOf(RuntimeException.class)
+                    .hasRootCauseMessage("Room not found");
+        }
+    }
+
+    @Test
+    @DisplayName("Strategy 2: Global Cache + Write-behind - Coalesced changes should be flushed to MySQL")
+    void testGlobalCacheWriteBehind() {
+        // Given
+        WriteBehindProperties writeBehindProperties = new WriteBehindProperties();
+        writeBehindProperties.setEnabled(true);
+        WriteBehindBuffer buffer = new WriteBehindBuffer(gameRoomJdbcRepository, transactionManager,
+                writeBehindProperties, new SimpleMeterRegistry());
+        GlobalCacheGameService server = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, new GlobalCacheProperties(), buffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+
+        String roomId = "room-2-write-behind";
+        server.createRoom(roomId);
+
+        // When
+        server.selectCard(roomId, "user-1", "Ace");
+        server.selectCard(roomId, "user-1", "King"); // coalesced, only the last pick is written
+        server.selectCard(roomId, "user-2", "Queen");
+        buffer.flush();
+
+        // Then
+        GameRoom persisted = gameJpaRepository.findById(roomId).orElseThrow();
+        assertThat(persisted.getUserCards())
+                .containsEntry("user-1", "King")
+                .containsEntry("user-2", "Queen");
+        buffer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Strategy 2: Global Cache + Write-behind - Re-creating a room should clear its cards in MySQL")
+    void testGlobalCacheWriteBehindRecreate() {
+        // Given
+        WriteBehindProperties writeBehindProperties = new WriteBehindProperties();
+        writeBehindProperties.setEnabled(true);
+        WriteBehindBuffer buffer = new WriteBehindBuffer(gameRoomJdbcRepository, transactionManager,
+                writeBehindProperties, new SimpleMeterRegistry());
+        GlobalCacheGameService server = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, new GlobalCacheProperties(), buffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+
+        String roomId = "room-2-write-behind-recreate";
+        server.createRoom(roomId);
+        server.selectCard(roomId, "user-1", "Ace");
+        buffer.flush();
+
+        // When
+        server.createRoom(roomId);
+        server.selectCard(roomId, "user-2", "Queen");
+        buffer.flush();
+
+        // Then
+        GameRoom persisted = gameJpaRepository.findById(roomId).orElseThrow();
+        assertThat(persisted.getUserCards()).containsOnly(Map.entry("user-2", "Queen"));
+        buffer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Strategy 2: Global Cache + Write-behind - A room that keeps failing should be given up alone")
+    void testWriteBehindDeadLetter() {
+        // Given
+        WriteBehindProperties writeBehindProperties = new WriteBehindProperties();
+        writeBehindProperties.setEnabled(true);
+        writeBehindProperties.setMaxAttempts(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WriteBehindBuffer buffer = new WriteBehindBuffer(gameRoomJdbcRepository, transactionManager,
+                writeBehindProperties, meterRegistry);
+
+        // A card longer than its column fails every write of its room, and of the batch it is in
+        buffer.recordRoom("room-2-healthy");
+        buffer.recordCard("room-2-healthy", "user-1", "Ace");
+        buffer.recordRoom("room-2-poison");
+        buffer.recordCard("room-2-poison", "user-1", "X".repeat(1000));
+
+        // When
+        assertThatThrownBy(buffer::flush).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(buffer::flush).isInstanceOf(RuntimeException.class);
+        buffer.flush(); // nothing left to retry
+
+        // Then
+        // The healthy room made it on the first flush, the failing one is dropped and counted
+        assertThat(gameJpaRepository.findById("room-2-healthy").orElseThrow().getUserCards())
+                .containsEntry("user-1", "Ace");
+        assertThat(gameJpaRepository.findById("room-2-poison")).isEmpty();
+        assertThat(meterRegistry.get("game.write-behind.dropped").tag("reason", "dead-letter").counter().count())
+                .isEqualTo(1);
+        buffer.shutdown();
+    }
+
     @Test
     @DisplayName("Strategy 3: Local Cache + Pub/Sub - Data should be synced via Payload")
     void testLocalCacheStrategy() {
         // Given
-        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, objectMapper);
-        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, objectMapper);
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
 
         // Register Server B as listener.
         // IMPORTANT: Server B needs to receive the message to update its LOCAL cache.
@@ -125,4 +417,729 @@ class GameSynchronizationTest {
             assertThat(room.getUserCards()).containsEntry("user-3", "Queen");
         });
     }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache + Pub/Sub - Missed deltas should be recovered via Snapshot resync")
+    void testLocalCacheResyncOnGap() {
+        // Given
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+
+        redisMessageListenerContainer.addMessageListener(serverA, topic);
+        redisMessageListenerContainer.addMessageListener(serverB, topic);
+
+        String roomId = "room-3-gap";
+        serverA.createRoom(roomId);
+        // Server B doesn't hold the room yet, so it skips these deltas
+        serverA.selectCard(roomId, "user-1", "Ace");
+        serverA.selectCard(roomId, "user-2", "King");
+        serverB.createRoom(roomId);
+
+        // When
+        // Version 3 arrives at Server B, which has seen neither 1 nor 2
+        serverA.selectCard(roomId, "user-3", "Queen");
+
+        // Then
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            GameRoom room = serverB.getGameRoom(roomId);
+            assertThat(room.getUserCards())
+                    .containsEntry("user-1", "Ace")
+                    .containsEntry("user-2", "King")
+                    .containsEntry("user-3", "Queen");
+        });
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache + Pub/Sub - Nodes writing the same cards concurrently should converge")
+    void testLocalCacheConcurrentWritersConverge() throws Exception {
+        // Given
+        int nodes = 3;
+        List<LocalCacheGameService> servers = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            LocalCacheGameService server = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+            redisMessageListenerContainer.addMessageListener(server, topic);
+            servers.add(server);
+        }
+
+        String roomId = "room-3-converge";
+        servers.forEach(server -> server.createRoom(roomId));
+
+        // When
+        // Every node overwrites the same few users at the same time, without any coordination
+        String[] cards = { "Ace", "King", "Queen", "Jack" };
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        List<Future<?>> writers = new ArrayList<>();
+        for (LocalCacheGameService server : servers) {
+            writers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 200; i++) {
+                    server.selectCard(roomId, "user-" + random.nextInt(4), cards[random.nextInt(cards.length)]);
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        // Whatever order the deltas arrived in, every node keeps the same (latest stamped) card per user
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            Map<String, String> expected = servers.get(0).getGameRoom(roomId).getUserCards();
+            assertThat(expected).hasSize(4);
+            for (LocalCacheGameService server : servers) {
+                assertThat(server.getGameRoom(roomId).getUserCards()).isEqualTo(expected);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache + Pub/Sub - Concurrent writers on one node should publish in version order")
+    void testLocalCacheConcurrentWritersPublishInOrder() throws Exception {
+        // Given
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        redisMessageListenerContainer.addMessageListener(serverB, topic);
+
+        String roomId = "room-3-ordered";
+        // A gap seen by Server B would show up as a RESYNC on the topic
+        List<GameEvent> resyncs = new CopyOnWriteArrayList<>();
+        MessageListener resyncRecorder = (message, pattern) -> {
+            GameEvent received = (GameEvent) redisTemplate.getValueSerializer().deserialize(message.getBody());
+            received.unbatch().stream()
+                    .filter(event -> event.getType() == GameEvent.Type.RESYNC && roomId.equals(event.getRoomId()))
+                    .forEach(resyncs::add);
+        };
+        redisMessageListenerContainer.addMessageListener(resyncRecorder, topic);
+
+        serverA.createRoom(roomId);
+        serverB.createRoom(roomId);
+
+        // When
+        // Many threads of Server A write the room at once, through the blocking, batch and async calls
+        String[] cards = { "Ace", "King", "Queen", "Jack" };
+        int writers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 100; i++) {
+                    String userId = "user-" + random.nextInt(8);
+                    String cardValue = cards[random.nextInt(cards.length)];
+                    switch (writer % 3) {
+                        case 0 -> serverA.selectCard(roomId, userId, cardValue);
+                        case 1 -> serverA.selectCards(List.of(new CardSelection(roomId, userId, cardValue)));
+                        default -> serverA.selectCardAsync(roomId, userId, cardValue).join();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        // Server B applied every delta as it came, without asking Server A for the room
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(serverB.getGameRoom(roomId).getUserCards())
+                        .isEqualTo(serverA.getGameRoom(roomId).getUserCards()));
+        assertThat(resyncs).isEmpty();
+
+        redisMessageListenerContainer.removeMessageListener(resyncRecorder, topic);
+        redisMessageListenerContainer.removeMessageListener(serverB, topic);
+        serverA.shutdown();
+        serverB.shutdown();
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache + Pub/Sub - Deltas batched within a publish window should all be applied")
+    void testLocalCacheBatchedPublish() {
+        // Given
+        PublishProperties publishProperties = new PublishProperties();
+        publishProperties.setWindow(Duration.ofMillis(50));
+        GameEventPublisher batchingPublisher = new GameEventPublisher(redisTemplate, reactiveRedisTemplate, publishProperties, roomSubscriptions, new SimpleMeterRegistry());
+
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, batchingPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, batchingPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+
+        redisMessageListenerContainer.addMessageListener(serverB, topic);
+
+        String roomId = "room-3-batch";
+        serverA.createRoom(roomId);
+        serverB.createRoom(roomId);
+
+        // When
+        // All three deltas land in the same window and travel as one BATCH message
+        serverA.selectCard(roomId, "user-1", "Ace");
+        serverA.selectCard(roomId, "user-2", "King");
+        serverA.selectCard(roomId, "user-1", "Queen");
+
+        // Then
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            GameRoom room = serverB.getGameRoom(roomId);
+            assertThat(room.getUserCards())
+                    .containsEntry("user-1", "Queen")
+                    .containsEntry("user-2", "King");
+        });
+        batchingPublisher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache + Pub/Sub (room channels) - Node should receive events of the rooms it serves")
+    void testLocalCacheRoomScopedSubscriptions() {
+        // Given
+        SubscriptionProperties subscriptionProperties = new SubscriptionProperties();
+        subscriptionProperties.setMode(SubscriptionProperties.Mode.ROOM);
+        subscriptionProperties.setUnsubscribeDelay(Duration.ZERO);
+        RoomSubscriptionRegistry roomScoped = new RoomSubscriptionRegistry(subscriptionProperties, new SimpleMeterRegistry());
+        GameEventPublisher roomScopedPublisher = new GameEventPublisher(redisTemplate, reactiveRedisTemplate, new PublishProperties(), roomScoped, new SimpleMeterRegistry());
+
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, roomScopedPublisher, roomScoped, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, roomScopedPublisher, roomScoped, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+
+        // Server B is only attached to room channels once it serves a room
+        roomScoped.register(redisMessageListenerContainer, topic, serverB);
+
+        String roomId = "room-3-scoped";
+        serverA.createRoom(roomId);
+        serverB.createRoom(roomId);
+
+        // When
+        serverA.selectCard(roomId, "user-3", "Jack");
+
+        // Then
+        assertThat(roomScoped.channelFor(topic, roomId).getTopic()).isEqualTo(topic.getTopic() + ":" + roomId);
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            GameRoom room = serverB.getGameRoom(roomId);
+            assertThat(room.getUserCards()).containsEntry("user-3", "Jack");
+        });
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache + Pub/Sub - Receivers should record the propagation lag of each delta")
+    void testLocalCachePropagationLagIsRecorded() {
+        // Given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GameEventPublisher meteredPublisher = new GameEventPublisher(redisTemplate, reactiveRedisTemplate, new PublishProperties(), roomSubscriptions, meterRegistry);
+
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, meteredPublisher, roomSubscriptions, applicationEventPublisher, meterRegistry, changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, meteredPublisher, roomSubscriptions, applicationEventPublisher, meterRegistry, changeLog);
+
+        redisMessageListenerContainer.addMessageListener(serverB, topic);
+
+        String roomId = "room-3-lag";
+        serverA.createRoom(roomId);
+        serverB.createRoom(roomId);
+
+        // When
+        serverA.selectCard(roomId, "user-1", "Ace");
+        serverA.selectCard(roomId, "user-2", "King");
+
+        // Then
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            assertThat(meterRegistry.get("game.pubsub.propagation.lag").tag("strategy", "local").timer().count())
+                    .isEqualTo(2);
+            assertThat(meterRegistry.get("game.pubsub.message.size").tag("direction", "in").summary().count())
+                    .isEqualTo(2);
+        });
+        assertThat(meterRegistry.get("game.pubsub.message.size").tag("direction", "out").summary().count())
+                .isEqualTo(2);
+        assertThat(serverB.getGameRoom(roomId).getUserCards()).containsEntry("user-2", "King");
+        assertThat(meterRegistry.get("game.cache.requests").tag("result", "hit").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache (Ownership) - Writes should go through the room's owner and fail over with its lease")
+    void testLocalCacheSingleWriterOwnership() throws Exception {
+        // Given
+        LocalCacheProperties properties = new LocalCacheProperties();
+        properties.setOwnership(true);
+        properties.setOwnerLease(Duration.ofSeconds(1));
+        ChannelTopic ownershipTopic = new ChannelTopic("ownership-test-events");
+        SimpleMeterRegistry meterRegistryA = new SimpleMeterRegistry();
+        SimpleMeterRegistry meterRegistryB = new SimpleMeterRegistry();
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, ownershipTopic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, meterRegistryA, changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, ownershipTopic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, meterRegistryB, changeLog);
+        LocalCacheGameService serverC = new LocalCacheGameService(redisTemplate, ownershipTopic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        List<LocalCacheGameService> servers = List.of(serverA, serverB, serverC);
+        servers.forEach(server -> redisMessageListenerContainer.addMessageListener(server, ownershipTopic));
+
+        String roomId = "room-3-owned-" + UUID.randomUUID();
+        serverA.createRoom(roomId);
+        assertThat(redisTemplate.hasKey("localcache:owner:" + roomId)).isTrue();
+
+        // When
+        // B forwards its selection to A and reads it right after
+        serverB.selectCard(roomId, "user-1", "Ace");
+        assertThat(serverB.getGameRoom(roomId).getUserCards()).containsEntry("user-1", "Ace");
+        assertThat(serverA.getGameRoom(roomId).getUserCards()).containsEntry("user-1", "Ace");
+        assertThat(meterRegistryB.get("game.local-cache.ownership.forwards").counter().count()).isEqualTo(1);
+
+        // B and C overwrite the same card concurrently, A applies every write in one sequence
+        String[] cards = { "Ace", "King", "Queen", "Jack" };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<?>> writers = new ArrayList<>();
+        for (LocalCacheGameService writer : List.of(serverB, serverC)) {
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    writer.selectCard(roomId, "user-2", cards[ThreadLocalRandom.current().nextInt(cards.length)]);
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            Map<String, String> owner = serverA.getGameRoom(roomId).getUserCards();
+            assertThat(owner).containsKey("user-2");
+            assertThat(serverB.getGameRoom(roomId).getUserCards()).isEqualTo(owner);
+            assertThat(serverC.getGameRoom(roomId).getUserCards()).isEqualTo(owner);
+        });
+
+        // A stops answering and its lease expires: the next writer takes over from its replica
+        redisMessageListenerContainer.removeMessageListener(serverA, ownershipTopic);
+        redisTemplate.delete("localcache:owner:" + roomId);
+        serverC.selectCard(roomId, "user-3", "Queen");
+        serverB.selectCard(roomId, "user-4", "Jack");
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            for (LocalCacheGameService server : List.of(serverB, serverC)) {
+                assertThat(server.getGameRoom(roomId).getUserCards())
+                        .containsEntry("user-1", "Ace")
+                        .containsKey("user-2")
+                        .containsEntry("user-3", "Queen")
+                        .containsEntry("user-4", "Jack");
+            }
+        });
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(meterRegistryA.get("game.local-cache.ownership.lost").counter().count()).isEqualTo(1));
+
+        redisMessageListenerContainer.removeMessageListener(serverB, ownershipTopic);
+        redisMessageListenerContainer.removeMessageListener(serverC, ownershipTopic);
+        servers.forEach(LocalCacheGameService::shutdown);
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache (Ownership) - Taking over a room without a replica or change log should fail the write")
+    void testLocalCacheTakeoverWithoutReplica() {
+        // Given
+        LocalCacheProperties properties = new LocalCacheProperties();
+        properties.setOwnership(true);
+        ChannelTopic ownershipTopic = new ChannelTopic("ownership-takeover-test-events");
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, ownershipTopic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, ownershipTopic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+
+        String roomId = "room-3-takeover-" + UUID.randomUUID();
+        serverA.createRoom(roomId);
+        serverA.selectCard(roomId, "user-1", "Ace");
+
+        // When
+        // A is gone, B has never seen the room and the change log is off
+        redisTemplate.delete("localcache:owner:" + roomId);
+
+        // Then
+        assertThatThrownBy(() -> serverB.selectCard(roomId, "user-2", "King"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("not found");
+        assertThat(serverB.getGameRoom(roomId)).isNull();
+        assertThat(redisTemplate.hasKey("localcache:owner:" + roomId)).isFalse();
+
+        serverA.shutdown();
+        serverB.shutdown();
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache (Ownership) - Re-creating a room on a non-owner should reset it on the owner and every replica")
+    void testLocalCacheOwnershipRecreateForwarded() {
+        // Given
+        LocalCacheProperties properties = new LocalCacheProperties();
+        properties.setOwnership(true);
+        ChannelTopic ownershipTopic = new ChannelTopic("ownership-recreate-test-events");
+        SimpleMeterRegistry meterRegistryB = new SimpleMeterRegistry();
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, ownershipTopic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, ownershipTopic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, meterRegistryB, changeLog);
+        LocalCacheGameService serverC = new LocalCacheGameService(redisTemplate, ownershipTopic, properties, writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), changeLog);
+        List<LocalCacheGameService> servers = List.of(serverA, serverB, serverC);
+        servers.forEach(server -> redisMessageListenerContainer.addMessageListener(server, ownershipTopic));
+
+        String roomId = "room-3-recreate-" + UUID.randomUUID();
+        serverA.createRoom(roomId);
+        serverB.selectCard(roomId, "user-1", "Ace");
+        serverC.selectCard(roomId, "user-2", "King");
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            for (LocalCacheGameService server : servers) {
+                assertThat(server.getGameRoom(roomId).getUserCards()).containsKeys("user-1", "user-2");
+            }
+        });
+
+        // When
+        // B re-creates the room A owns
+        serverB.createRoom(roomId);
+
+        // Then
+        // B reads the empty room right away, A and C drop the old cards too
+        assertThat(serverB.getGameRoom(roomId).getUserCards()).isEmpty();
+        assertThat(serverA.getGameRoom(roomId).getUserCards()).isEmpty();
+        assertThat(meterRegistryB.get("game.local-cache.ownership.forwards").counter().count()).isEqualTo(2);
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(serverC.getGameRoom(roomId).getUserCards()).isEmpty());
+
+        // The owner's writes on the new room reach every replica
+        serverC.selectCard(roomId, "user-3", "Queen");
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            for (LocalCacheGameService server : servers) {
+                assertThat(server.getGameRoom(roomId).getUserCards()).isEqualTo(Map.of("user-3", "Queen"));
+            }
+        });
+
+        servers.forEach(server -> redisMessageListenerContainer.removeMessageListener(server, ownershipTopic));
+        servers.forEach(LocalCacheGameService::shutdown);
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache + Pub/Sub - A starting node should restore its rooms from the change log")
+    void testLocalCacheWarmStartFromChangeLog() {
+        // Given
+        ChangeLogProperties properties = new ChangeLogProperties();
+        properties.setEnabled(true);
+        LocalChangeLog enabledChangeLog = new LocalChangeLog(redisTemplate, properties, new SimpleMeterRegistry());
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), enabledChangeLog);
+
+        String roomId = "room-3-warm-" + UUID.randomUUID();
+        serverA.createRoom(roomId);
+        serverA.selectCard(roomId, "user-1", "Ace");
+        serverA.selectCard(roomId, "user-2", "King");
+        enabledChangeLog.flush();
+        enabledChangeLog.compact();
+
+        // Changes after the snapshot only live in the stream
+        serverA.selectCard(roomId, "user-2", "Queen");
+        serverA.selectCard(roomId, "user-3", "Jack");
+        enabledChangeLog.flush();
+
+        // When
+        // Server B starts after all of it happened
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, meterRegistry, enabledChangeLog);
+        redisMessageListenerContainer.addMessageListener(serverB, topic);
+        LocalChangeLog.Replay replay = new LocalCacheWarmStart(serverB, enabledChangeLog, meterRegistry).warmUp();
+
+        // Then
+        assertThat(serverB.getGameRoom(roomId).getUserCards())
+                .containsEntry("user-1", "Ace")
+                .containsEntry("user-2", "Queen")
+                .containsEntry("user-3", "Jack");
+        assertThat(replay.rooms()).isGreaterThanOrEqualTo(1);
+        assertThat(replay.changes()).isGreaterThanOrEqualTo(2);
+        assertThat(meterRegistry.get("game.change-log.warm-start").timer().count()).isEqualTo(1);
+
+        // The restored room follows the live deltas in sequence, without asking for a resync
+        serverA.selectCard(roomId, "user-4", "King");
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            GameRoom room = serverB.getGameRoom(roomId);
+            assertThat(room.getUserCards()).containsEntry("user-4", "King");
+        });
+        enabledChangeLog.shutdown();
+    }
+
+    @Test
+    @DisplayName("Strategy 3: Local Cache + Change log - A re-created room should not get its old cards back on replay")
+    void testLocalCacheChangeLogReplaysRecreatedRoom() {
+        // Given
+        ChangeLogProperties properties = new ChangeLogProperties();
+        properties.setEnabled(true);
+        LocalChangeLog enabledChangeLog = new LocalChangeLog(redisTemplate, properties, new SimpleMeterRegistry());
+        LocalCacheGameService serverA = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), enabledChangeLog);
+
+        String roomId = "room-3-recreated-" + UUID.randomUUID();
+        serverA.createRoom(roomId);
+        serverA.selectCard(roomId, "user-1", "Ace");
+        serverA.selectCard(roomId, "user-2", "King");
+        enabledChangeLog.flush();
+        enabledChangeLog.compact();
+
+        // When
+        // The room starts over, and a write of the old room reaches the stream only after the reset
+        serverA.createRoom(roomId);
+        serverA.selectCard(roomId, "user-3", "Jack");
+        enabledChangeLog.append(GameEvent.builder()
+                .type(GameEvent.Type.DELTA)
+                .roomId(roomId)
+                .originId("node-of-the-old-room")
+                .version(1)
+                .timestamp(1)
+                .userId("user-2")
+                .cardValue("Two")
+                .build());
+        enabledChangeLog.flush();
+
+        // Then
+        // From the snapshot and the stream
+        LocalCacheGameService serverB = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), enabledChangeLog);
+        new LocalCacheWarmStart(serverB, enabledChangeLog, new SimpleMeterRegistry()).warmUp();
+        assertThat(serverB.getGameRoom(roomId).getUserCards()).containsOnly(Map.entry("user-3", "Jack"));
+
+        // From the snapshot alone, once the reset is compacted into it
+        enabledChangeLog.compact();
+        LocalCacheGameService serverC = new LocalCacheGameService(redisTemplate, topic, new LocalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher, new SimpleMeterRegistry(), enabledChangeLog);
+        new LocalCacheWarmStart(serverC, enabledChangeLog, new SimpleMeterRegistry()).warmUp();
+        assertThat(serverC.getGameRoom(roomId).getUserCards()).containsOnly(Map.entry("user-3", "Jack"));
+        enabledChangeLog.shutdown();
+    }
+
+    @Test
+    @DisplayName("Pub/Sub dispatch - Events of a room should be handled in publish order")
+    void testDispatcherKeepsPerRoomOrder() {
+        // Given
+        Map<String, List<Long>> handled = new ConcurrentHashMap<>();
+        MessageListener listener = pubSubDispatcher.listenerFor(new GameEventListener() {
+            @Override
+            public String getListenerName() {
+                return "recorder";
+            }
+
+            @Override
+            public void onEvent(GameEvent event) {
+                handled.computeIfAbsent(event.getRoomId(), roomId -> new CopyOnWriteArrayList<>())
+                        .add(event.getVersion());
+            }
+        });
+        redisMessageListenerContainer.addMessageListener(listener, topic);
+
+        // When
+        // Events of several rooms interleaved, each room's versions published in increasing order
+        int rooms = 4;
+        int eventsPerRoom = 200;
+        String prefix = "room-dispatch-" + UUID.randomUUID() + "-";
+        for (long version = 1; version <= eventsPerRoom; version++) {
+            for (int room = 0; room < rooms; room++) {
+                eventPublisher.publish(topic, GameEvent.builder()
+                        .type(GameEvent.Type.DELTA)
+                        .roomId(prefix + room)
+                        .version(version)
+                        .build());
+            }
+        }
+
+        // Then
+        List<Long> expected = LongStream.rangeClosed(1, eventsPerRoom).boxed().toList();
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            for (int room = 0; room < rooms; room++) {
+                assertThat(handled.get(prefix + room)).isEqualTo(expected);
+            }
+        });
+        redisMessageListenerContainer.removeMessageListener(listener, topic);
+    }
+
+    @Test
+    @DisplayName("Binary codec - Truncated or corrupt values should fail with a SerializationException")
+    void testBinarySerializerRejectsTruncatedValues() {
+        // Given
+        GameBinaryRedisSerializer serializer = new GameBinaryRedisSerializer(64);
+        GameRoom room = GameRoom.builder().roomId("room-codec").build();
+        for (int i = 0; i < 20; i++) {
+            room.getUserCards().put("user-" + i, "Ace");
+        }
+        GameEvent event = GameEvent.builder().type(GameEvent.Type.PAYLOAD).roomId("room-codec").payload(room).build();
+        byte[] plain = new GameBinaryRedisSerializer(0).serialize(event);
+        byte[] deflated = serializer.serialize(event);
+        assertThat(deflated[0]).isNotEqualTo(plain[0]);
+
+        // When & Then
+        // Cut anywhere, neither format reads past its end or sizes an allocation from garbage
+        for (byte[] bytes : List.of(plain, deflated)) {
+            for (int length = 1; length < bytes.length; length++) {
+                byte[] truncated = Arrays.copyOf(bytes, length);
+                assertThatThrownBy(() -> serializer.deserialize(truncated)).isInstanceOf(SerializationException.class);
+            }
+        }
+        // A deflated header claiming far more than the body can hold
+        byte[] corrupt = deflated.clone();
+        corrupt[1] = 0x7F;
+        assertThatThrownBy(() -> serializer.deserialize(corrupt)).isInstanceOf(SerializationException.class);
+        assertThat(serializer.deserialize(deflated)).isEqualTo(event);
+    }
+
+    @Test
+    @DisplayName("Binary codec - Ids that don't fit a binary string should be rejected, not wrapped")
+    void testCommandCodecRejectsOversizedIds() throws Exception {
+        // Given
+        GameCommandCodec codec = new GameCommandCodec(new ObjectMapper());
+        String longId = "r".repeat(40_000);
+        String tooLongId = "r".repeat(70_000);
+
+        // When & Then
+        // Between 32 KiB and 64 KiB the length is an unsigned short and round-trips
+        ByteBuffer pushed = ByteBuffer.wrap(codec.cardSelectedBinary(longId, "user-1", "Ace"));
+        assertThat(pushed.get()).isEqualTo((byte) 5);
+        assertThat(Short.toUnsignedInt(pushed.getShort())).isEqualTo(40_000);
+
+        // Above that, the command is rejected before it gets to a room, whichever format it came in
+        assertThatThrownBy(() -> codec.readJson("{\"command\":\"CREATE_ROOM\",\"strategy\":\"local\",\"roomId\":\"" + tooLongId + "\"}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("roomId");
+        assertThatThrownBy(() -> codec.cardSelectedBinary(tooLongId, "user-1", "Ace"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // A str claiming more bytes than the frame holds
+        ByteBuffer truncated = ByteBuffer.allocate(16).put((byte) 3).putShort((short) 100).put("local".getBytes());
+        truncated.flip();
+        assertThatThrownBy(() -> codec.readBinary(truncated)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Strategy 4: Hybrid (L1 + Redis) + Pub/Sub - Stale L1 copy should be evicted via Invalidation")
+    void testHybridCacheStrategy() {
+        // Given
+        GlobalCacheGameService globalCache = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, new GlobalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+        HybridCacheGameService serverA = new HybridCacheGameService(globalCache, redisTemplate, eventPublisher, new SimpleMeterRegistry(), applicationEventPublisher, new HybridCacheProperties());
+        HybridCacheGameService serverB = new HybridCacheGameService(globalCache, redisTemplate, eventPublisher, new SimpleMeterRegistry(), applicationEventPublisher, new HybridCacheProperties());
+
+        redisMessageListenerContainer.addMessageListener(serverB, topic);
+
+        String roomId = "room-4";
+        serverA.createRoom(roomId);
+
+        // Server B warms its L1 copy before the change
+        assertThat(serverB.getGameRoom(roomId).getUserCards()).isEmpty();
+
+        // When
+        serverA.selectCard(roomId, "user-4", "Jack");
+
+        // Then
+        // Server B must drop its L1 copy and read the new state from Redis
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            GameRoom room = serverB.getGameRoom(roomId);
+            assertThat(room).isNotNull();
+            assertThat(room.getUserCards()).containsEntry("user-4", "Jack");
+        });
+
+        // Re-creating the room on Server A empties Server B's copy too
+        serverA.createRoom(roomId);
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(serverB.getGameRoom(roomId).getUserCards()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Adaptive routing - A hot room should move to its node's local cache and back on contention")
+    void testAdaptiveRoutingPromotesAndHandsBack() {
+        // Given
+        AdaptiveRoutingProperties properties = new AdaptiveRoutingProperties();
+        properties.setEnabled(false); // evaluated by hand
+        properties.setPromoteOpsPerSecond(1);
+        properties.setDemoteOpsPerSecond(0);
+        ChannelTopic adaptiveTopic = new ChannelTopic("adaptive-test-events");
+        SimpleMeterRegistry meterRegistryA = new SimpleMeterRegistry();
+        SimpleMeterRegistry meterRegistryB = new SimpleMeterRegistry();
+        AdaptiveGameService serverA = adaptiveNode(properties, adaptiveTopic, meterRegistryA);
+        AdaptiveGameService serverB = adaptiveNode(properties, adaptiveTopic, meterRegistryB);
+        redisMessageListenerContainer.addMessageListener(serverA, adaptiveTopic);
+        redisMessageListenerContainer.addMessageListener(serverB, adaptiveTopic);
+
+        String roomId = "room-adaptive-" + UUID.randomUUID();
+        serverA.createRoom(roomId);
+        GlobalCacheGameService coldTier = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, new GlobalCacheProperties(), writeBehindBuffer, eventPublisher, roomSubscriptions, applicationEventPublisher);
+
+        // When
+        // Only server A uses the room: it becomes hot there
+        for (int i = 0; i < 20; i++) {
+            serverA.getGameRoom(roomId);
+        }
+        serverA.evaluate();
+        assertThat(meterRegistryA.get("game.adaptive.promotions").counter().count()).isEqualTo(1);
+        assertThat(redisTemplate.hasKey("adaptive:owner:" + roomId)).isTrue();
+
+        // Writes stay in A's memory until the next evaluation checkpoints them
+        serverA.selectCard(roomId, "user-1", "Ace");
+        assertThat(coldTier.getGameRoom(roomId).getUserCards()).doesNotContainKey("user-1");
+        serverA.evaluate();
+        assertThat(coldTier.getGameRoom(roomId).getUserCards()).containsEntry("user-1", "Ace");
+        serverA.selectCard(roomId, "user-2", "King");
+
+        // Then
+        // Server B asks A to hand the room back and sees every write A acknowledged
+        GameRoom room = serverB.getGameRoom(roomId);
+        assertThat(room.getUserCards())
+                .containsEntry("user-1", "Ace")
+                .containsEntry("user-2", "King");
+        assertThat(redisTemplate.hasKey("adaptive:owner:" + roomId)).isFalse();
+        assertThat(meterRegistryA.get("game.adaptive.demotions").tag("reason", "contention").counter().count()).isEqualTo(1);
+        assertThat(meterRegistryB.get("game.adaptive.handoffs").counter().count()).isEqualTo(1);
+
+        // Used by two nodes now: neither of them promotes it within the contention window
+        serverA.getGameRoom(roomId);
+        serverB.selectCard(roomId, "user-3", "Queen");
+        serverA.evaluate();
+        serverB.evaluate();
+        assertThat(meterRegistryA.get("game.adaptive.promotions").counter().count()).isEqualTo(1);
+        assertThat(meterRegistryB.get("game.adaptive.promotions").counter().count()).isZero();
+        assertThat(serverA.getGameRoom(roomId).getUserCards()).containsEntry("user-3", "Queen");
+
+        redisMessageListenerContainer.removeMessageListener(serverA, adaptiveTopic);
+        redisMessageListenerContainer.removeMessageListener(serverB, adaptiveTopic);
+    }
+
+    @Test
+    @DisplayName("Adaptive routing - A write racing a checkpoint should stay pending until the next one")
+    void testAdaptiveCheckpointKeepsRacingWrite() {
+        // Given
+        AdaptiveRoutingProperties properties = new AdaptiveRoutingProperties();
+        properties.setEnabled(false); // evaluated by hand
+        properties.setPromoteOpsPerSecond(1);
+        properties.setDemoteOpsPerSecond(0);
+        ChannelTopic adaptiveTopic = new ChannelTopic("adaptive-checkpoint-test-events");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GameEventPublisher publisher = new GameEventPublisher(redisTemplate, reactiveRedisTemplate, new PublishProperties(), roomSubscriptions, meterRegistry);
+        RdbmsGameService rdbms = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, gameRoomJdbcRepository, new RdbmsProperties(), publisher, roomSubscriptions, applicationEventPublisher, transactionManager, meterRegistry);
+
+        // The cold tier runs the hooked write while the checkpoint is in flight
+        AtomicReference<Runnable> duringCheckpoint = new AtomicReference<>();
+        GlobalCacheGameService coldTier = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, new GlobalCacheProperties(), writeBehindBuffer, publisher, roomSubscriptions, applicationEventPublisher) {
+            @Override
+            public void selectCards(List<CardSelection> selections) {
+                super.selectCards(selections);
+                Runnable write = duringCheckpoint.getAndSet(null);
+                if (write != null) {
+                    write.run();
+                }
+            }
+        };
+        AdaptiveGameService server = new AdaptiveGameService(rdbms, coldTier, redisTemplate, adaptiveTopic, properties, publisher, roomSubscriptions, applicationEventPublisher, meterRegistry);
+
+        String roomId = "room-adaptive-checkpoint-" + UUID.randomUUID();
+        server.createRoom(roomId);
+        for (int i = 0; i < 20; i++) {
+            server.getGameRoom(roomId);
+        }
+        server.evaluate();
+        assertThat(meterRegistry.get("game.adaptive.promotions").counter().count()).isEqualTo(1);
+
+        // When
+        server.selectCard(roomId, "user-1", "Ace");
+        duringCheckpoint.set(() -> server.selectCard(roomId, "user-1", "King"));
+        server.evaluate();
+
+        // Then
+        // The checkpoint wrote the card it took, the newer one is still waiting for the next checkpoint
+        assertThat(coldTier.getGameRoom(roomId).getUserCards()).containsEntry("user-1", "Ace");
+        assertThat(server.getGameRoom(roomId).getUserCards()).containsEntry("user-1", "King");
+        server.evaluate();
+        assertThat(coldTier.getGameRoom(roomId).getUserCards()).containsEntry("user-1", "King");
+
+        server.shutdown();
+    }
+
+    // A node of the adaptive strategy: its own publisher (node id), Global Cache as the cold tier
+    private AdaptiveGameService adaptiveNode(AdaptiveRoutingProperties properties, ChannelTopic adaptiveTopic,
+            SimpleMeterRegistry meterRegistry) {
+        GameEventPublisher publisher = new GameEventPublisher(redisTemplate, reactiveRedisTemplate, new PublishProperties(), roomSubscriptions, meterRegistry);
+        RdbmsGameService rdbms = new RdbmsGameService(gameJpaRepository, redisTemplate, topic, gameRoomJdbcRepository, new RdbmsProperties(), publisher, roomSubscriptions, applicationEventPublisher, transactionManager, meterRegistry);
+        GlobalCacheGameService global = new GlobalCacheGameService(redisTemplate, reactiveRedisTemplate, topic, new GlobalCacheProperties(), writeBehindBuffer, publisher, roomSubscriptions, applicationEventPublisher);
+        return new AdaptiveGameService(rdbms, global, redisTemplate, adaptiveTopic, properties, publisher, roomSubscriptions, applicationEventPublisher, meterRegistry);
+    }
 }
@@ -1,17 +1,25 @@
 package com.techcotalk.redis;
 
+import com.techcotalk.redis.handler.GameCommandCodec;
 import com.techcotalk.redis.handler.GameWebSocketHandler;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,4 +46,187 @@ class WebSocketTest {
         assertThat(session.isOpen()).isTrue();
         session.close();
     }
+
+    @Test
+    void testCommandsOfSessionAreAnsweredInOrder() throws Exception {
+        BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+        BlockingQueue<String> pushes = new LinkedBlockingQueue<>();
+        WebSocketSession session = connect(responses, pushes);
+
+        // Commands run off the I/O thread, but one session's commands must still run one after another
+        session.sendMessage(new TextMessage("{\"command\":\"CREATE_ROOM\",\"strategy\":\"local\",\"roomId\":\"ws-room\"}"));
+        session.sendMessage(new TextMessage("{\"command\":\"SELECT_CARD\",\"strategy\":\"local\",\"roomId\":\"ws-room\",\"userId\":\"user-1\",\"cardValue\":\"Ace\"}"));
+        session.sendMessage(new TextMessage("{\"command\":\"GET_ROOM\",\"strategy\":\"local\",\"roomId\":\"ws-room\"}"));
+
+        assertThat(responses.poll(5, TimeUnit.SECONDS)).contains("CREATED");
+        assertThat(responses.poll(5, TimeUnit.SECONDS)).contains("SELECTED");
+        assertThat(responses.poll(5, TimeUnit.SECONDS)).contains("\"user-1\":\"Ace\"");
+        session.close();
+    }
+
+    @Test
+    void testAsyncCommandsOfSessionAreAnsweredInOrder() throws Exception {
+        BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+        WebSocketSession session = connect(responses, new LinkedBlockingQueue<>());
+
+        // Global Cache commands don't hold a worker while Redis answers, the next one still waits for them
+        session.sendMessage(new TextMessage("{\"command\":\"CREATE_ROOM\",\"strategy\":\"global\",\"roomId\":\"ws-async-room\"}"));
+        session.sendMessage(new TextMessage("{\"command\":\"SELECT_CARD\",\"strategy\":\"global\",\"roomId\":\"ws-async-room\",\"userId\":\"user-1\",\"cardValue\":\"Ace\"}"));
+        session.sendMessage(new TextMessage("{\"command\":\"SELECT_CARD\",\"strategy\":\"global\",\"roomId\":\"ws-async-room\",\"userId\":\"user-1\",\"cardValue\":\"King\"}"));
+        session.sendMessage(new TextMessage("{\"command\":\"GET_ROOM\",\"strategy\":\"global\",\"roomId\":\"ws-async-room\"}"));
+
+        assertThat(responses.poll(5, TimeUnit.SECONDS)).contains("CREATED");
+        assertThat(responses.poll(5, TimeUnit.SECONDS)).contains("SELECTED");
+        assertThat(responses.poll(5, TimeUnit.SECONDS)).contains("SELECTED");
+        assertThat(responses.poll(5, TimeUnit.SECONDS)).contains("\"user-1\":\"King\"");
+        session.close();
+    }
+
+    @Test
+    void testCardSelectionIsPushedToOtherSessionsInRoom() throws Exception {
+        BlockingQueue<String> responsesA = new LinkedBlockingQueue<>();
+        BlockingQueue<String> responsesB = new LinkedBlockingQueue<>();
+        BlockingQueue<String> pushesB = new LinkedBlockingQueue<>();
+        WebSocketSession sessionA = connect(responsesA, new LinkedBlockingQueue<>());
+        WebSocketSession sessionB = connect(responsesB, pushesB);
+
+        // Both sessions join the room
+        sessionA.sendMessage(new TextMessage("{\"command\":\"CREATE_ROOM\",\"strategy\":\"local\",\"roomId\":\"ws-push-room\"}"));
+        assertThat(responsesA.poll(5, TimeUnit.SECONDS)).contains("CREATED");
+        sessionB.sendMessage(new TextMessage("{\"command\":\"GET_ROOM\",\"strategy\":\"local\",\"roomId\":\"ws-push-room\"}"));
+        assertThat(responsesB.poll(5, TimeUnit.SECONDS)).contains("ws-push-room");
+
+        // When
+        sessionA.sendMessage(new TextMessage("{\"command\":\"SELECT_CARD\",\"strategy\":\"local\",\"roomId\":\"ws-push-room\",\"userId\":\"user-1\",\"cardValue\":\"King\"}"));
+
+        // Then
+        // Session B sees the pick without polling GET_ROOM
+        assertThat(pushesB.poll(5, TimeUnit.SECONDS))
+                .contains("\"type\":\"CARD_SELECTED\"")
+                .contains("\"userId\":\"user-1\"")
+                .contains("\"cardValue\":\"King\"");
+        sessionA.close();
+        sessionB.close();
+    }
+
+    @Test
+    void testBatchCommandIsAcknowledgedOnce() throws Exception {
+        BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+        WebSocketSession session = connect(responses, new LinkedBlockingQueue<>());
+
+        // Create the room and pick twice in one frame, the later pick of user-1 wins
+        session.sendMessage(new TextMessage("{\"command\":\"BATCH\",\"strategy\":\"global\",\"commands\":["
+                + "{\"command\":\"CREATE_ROOM\",\"roomId\":\"ws-batch-room\"},"
+                + "{\"command\":\"SELECT_CARD\",\"roomId\":\"ws-batch-room\",\"userId\":\"user-1\",\"cardValue\":\"Ace\"},"
+                + "{\"command\":\"SELECT_CARD\",\"roomId\":\"ws-batch-room\",\"userId\":\"user-2\",\"cardValue\":\"Queen\"},"
+                + "{\"command\":\"SELECT_CARD\",\"roomId\":\"ws-batch-room\",\"userId\":\"user-1\",\"cardValue\":\"King\"}]}"));
+        session.sendMessage(new TextMessage("{\"command\":\"GET_ROOM\",\"strategy\":\"global\",\"roomId\":\"ws-batch-room\"}"));
+
+        assertThat(responses.poll(5, TimeUnit.SECONDS))
+                .contains("BATCH_APPLIED")
+                .contains("\"count\":4");
+        assertThat(responses.poll(5, TimeUnit.SECONDS))
+                .contains("\"user-1\":\"King\"")
+                .contains("\"user-2\":\"Queen\"");
+        session.close();
+    }
+
+    @Test
+    void testBinarySubProtocol() throws Exception {
+        StandardWebSocketClient client = new StandardWebSocketClient();
+        BlockingQueue<ByteBuffer> responses = new LinkedBlockingQueue<>();
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.setSecWebSocketProtocol(GameCommandCodec.BINARY_PROTOCOL);
+
+        WebSocketSession session = client.doHandshake(new BinaryWebSocketHandler() {
+            @Override
+            protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+                responses.add(message.getPayload());
+            }
+        }, headers, URI.create("ws://localhost:" + port + "/ws/games")).get(5, TimeUnit.SECONDS);
+        assertThat(session.getAcceptedProtocol()).isEqualTo(GameCommandCodec.BINARY_PROTOCOL);
+
+        // CREATE_ROOM, strategy "local", room "bin-room"
+        byte[] strategy = "local".getBytes(StandardCharsets.UTF_8);
+        byte[] roomId = "bin-room".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer command = ByteBuffer.allocate(1 + 2 + strategy.length + 2 + roomId.length)
+                .put((byte) 1)
+                .putShort((short) strategy.length).put(strategy)
+                .putShort((short) roomId.length).put(roomId)
+                .flip();
+        session.sendMessage(new BinaryMessage(command));
+
+        // [STATUS][CREATED][roomId]
+        ByteBuffer response = responses.poll(5, TimeUnit.SECONDS);
+        assertThat(response).isNotNull();
+        assertThat(response.get()).isEqualTo((byte) 1);
+        assertThat(response.get()).isEqualTo((byte) 1);
+        byte[] echoed = new byte[response.getShort()];
+        response.get(echoed);
+        assertThat(new String(echoed, StandardCharsets.UTF_8)).isEqualTo("bin-room");
+        session.close();
+    }
+
+    @Test
+    void testBinarySessionReceivesBinaryPush() throws Exception {
+        BlockingQueue<String> responsesA = new LinkedBlockingQueue<>();
+        WebSocketSession sessionA = connect(responsesA, new LinkedBlockingQueue<>());
+        sessionA.sendMessage(new TextMessage("{\"command\":\"CREATE_ROOM\",\"strategy\":\"local\",\"roomId\":\"bin-push-room\"}"));
+        assertThat(responsesA.poll(5, TimeUnit.SECONDS)).contains("CREATED");
+
+        StandardWebSocketClient client = new StandardWebSocketClient();
+        BlockingQueue<ByteBuffer> framesB = new LinkedBlockingQueue<>();
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.setSecWebSocketProtocol(GameCommandCodec.BINARY_PROTOCOL);
+        WebSocketSession sessionB = client.doHandshake(new BinaryWebSocketHandler() {
+            @Override
+            protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+                framesB.add(message.getPayload());
+            }
+        }, headers, URI.create("ws://localhost:" + port + "/ws/games")).get(5, TimeUnit.SECONDS);
+
+        // GET_ROOM joins session B to the room
+        byte[] strategy = "local".getBytes(StandardCharsets.UTF_8);
+        byte[] roomId = "bin-push-room".getBytes(StandardCharsets.UTF_8);
+        sessionB.sendMessage(new BinaryMessage(ByteBuffer.allocate(1 + 2 + strategy.length + 2 + roomId.length)
+                .put((byte) 3)
+                .putShort((short) strategy.length).put(strategy)
+                .putShort((short) roomId.length).put(roomId)
+                .flip()));
+        ByteBuffer room = framesB.poll(5, TimeUnit.SECONDS);
+        assertThat(room).isNotNull();
+        assertThat(room.get()).isEqualTo((byte) 2);
+
+        // When
+        sessionA.sendMessage(new TextMessage("{\"command\":\"SELECT_CARD\",\"strategy\":\"local\",\"roomId\":\"bin-push-room\",\"userId\":\"user-1\",\"cardValue\":\"King\"}"));
+
+        // Then
+        // [CARD_SELECTED][roomId][userId][cardValue] as a binary frame, not JSON text
+        ByteBuffer push = framesB.poll(5, TimeUnit.SECONDS);
+        assertThat(push).isNotNull();
+        assertThat(push.get()).isEqualTo((byte) 5);
+        assertThat(readString(push)).isEqualTo("bin-push-room");
+        assertThat(readString(push)).isEqualTo("user-1");
+        assertThat(readString(push)).isEqualTo("King");
+        sessionA.close();
+        sessionB.close();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Server pushes carry a "type" field, command responses don't
+    private WebSocketSession connect(BlockingQueue<String> responses, BlockingQueue<String> pushes) throws Exception {
+        StandardWebSocketClient client = new StandardWebSocketClient();
+        return client.doHandshake(new TextWebSocketHandler() {
+            @Override
+            protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+                String payload = message.getPayload();
+                (payload.contains("\"type\":") ? pushes : responses).add(payload);
+            }
+        }, new WebSocketHttpHeaders(), URI.create("ws://localhost:" + port + "/ws/games")).get(5, TimeUnit.SECONDS);
+    }
 }
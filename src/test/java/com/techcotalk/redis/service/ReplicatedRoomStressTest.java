@@ -0,0 +1,236 @@
+package com.techcotalk.redis.service;
+
+import com.techcotalk.redis.domain.dto.CardStamp;
+import com.techcotalk.redis.domain.model.GameRoom;
+import com.techcotalk.redis.global.codec.GameBinaryRedisSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicatedRoomStressTest {
+
+    private static final int WRITERS = 16;
+    private static final int READERS = 4;
+    private static final int ROOMS = 8;
+    private static final int USERS = 12;
+    private static final int WRITES_PER_WRITER = 20_000;
+    private static final String[] CARDS = { "Ace", "King", "Queen", "Jack" };
+
+    private record Write(int room, long version, CardStamp stamp, String userId, String cardValue) {
+    }
+
+    @Test
+    @DisplayName("Concurrent writers should get gap-free versions, readers consistent snapshots")
+    void testConcurrentSelectCardAndSnapshots() throws Exception {
+        assertConcurrentSelectCardAndSnapshots(ReplicatedRoom::new);
+    }
+
+    @Test
+    @DisplayName("Off-heap rooms should give the same guarantees to concurrent writers and readers")
+    void testConcurrentSelectCardAndSnapshotsOffHeap() throws Exception {
+        OffHeapRoomArena arena = new OffHeapRoomArena(2048, 1024 * 1024, new SimpleMeterRegistry());
+        assertConcurrentSelectCardAndSnapshots(room -> OffHeapReplicatedRoom.allocate(arena, room, false));
+    }
+
+    @Test
+    @DisplayName("An off-heap arena should reject slots that don't fit in its chunks")
+    void testOffHeapArenaRejectsOversizedSlots() {
+        assertThatThrownBy(() -> new OffHeapRoomArena(64 * 1024 * 1024 + 1, Long.MAX_VALUE, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OffHeapRoomArena(0, 1024, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("An off-heap room outgrowing its slot should move to the heap and keep its cards and versions")
+    void testOffHeapRoomOutgrowingItsSlot() {
+        // Given
+        // A single slot, with room for the 1KB dummy data and a few entries only
+        OffHeapRoomArena arena = new OffHeapRoomArena(1024 + 128, 1024 + 128, new SimpleMeterRegistry());
+        ReplicatedRoom room = OffHeapReplicatedRoom.allocate(arena, GameRoom.builder().roomId("room-1").build(), false);
+        assertThat(room).isInstanceOf(OffHeapReplicatedRoom.class);
+        HybridLogicalClock clock = new HybridLogicalClock();
+
+        // When
+        for (int i = 0; i < USERS; i++) {
+            room.selectCard("user-" + i, CARDS[i % CARDS.length], new CardStamp(clock.tick(), "node-a"));
+            assertThat(room.applyDelta("node-b", i + 1, "user-" + i, "stale", CardStamp.ZERO))
+                    .isEqualTo(ReplicatedRoom.DeltaResult.SUPERSEDED);
+        }
+
+        // Then
+        ReplicatedRoom.Snapshot snapshot = room.snapshot();
+        assertThat(snapshot.version()).isEqualTo(USERS);
+        assertThat(snapshot.room().getUserCards()).hasSize(USERS).containsEntry("user-0", "Ace");
+        assertThat(snapshot.room().getDummyData()).hasSize(1024);
+        assertThat(room.applyDelta("node-b", USERS, "user-0", "stale", CardStamp.ZERO))
+                .isEqualTo(ReplicatedRoom.DeltaResult.DUPLICATE);
+        // The slot went back to the arena
+        assertThat(OffHeapReplicatedRoom.allocate(arena, GameRoom.builder().roomId("room-2").build(), false))
+                .isNotNull();
+    }
+
+    private void assertConcurrentSelectCardAndSnapshots(Function<GameRoom, ReplicatedRoom> newRoom) throws Exception {
+        // Given
+        ReplicatedRoom[] rooms = new ReplicatedRoom[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            rooms[i] = newRoom.apply(GameRoom.builder().roomId("room-" + i).build());
+        }
+        HybridLogicalClock clock = new HybridLogicalClock();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Write> writes = new ConcurrentLinkedQueue<>();
+
+        // When
+        // Writers pick cards in random rooms, a few rooms at a time are hot
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<Write> local = new ArrayList<>(WRITES_PER_WRITER);
+                for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                    int room = random.nextInt(ROOMS);
+                    String userId = "user-" + random.nextInt(USERS);
+                    String cardValue = CARDS[random.nextInt(CARDS.length)];
+                    CardStamp stamp = new CardStamp(clock.tick(), "node-a");
+                    local.add(new Write(room, rooms[room].selectCard(userId, cardValue, stamp), stamp, userId, cardValue));
+                }
+                writes.addAll(local);
+                return null;
+            }));
+        }
+
+        // Readers serialize snapshots while the writers run, the way PAYLOAD publishing does
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(executor.submit(() -> {
+                start.await();
+                GameBinaryRedisSerializer serializer = new GameBinaryRedisSerializer(0);
+                long[] lastVersion = new long[ROOMS];
+                while (writing.get()) {
+                    int room = ThreadLocalRandom.current().nextInt(ROOMS);
+                    ReplicatedRoom.Snapshot snapshot = rooms[room].snapshot();
+                    assertThat(snapshot.version()).isGreaterThanOrEqualTo(lastVersion[room]);
+                    lastVersion[room] = snapshot.version();
+                    GameRoom decoded = (GameRoom) serializer.deserialize(serializer.serialize(snapshot.room()));
+                    assertThat(decoded.getUserCards()).isEqualTo(snapshot.room().getUserCards());
+                    assertThat(snapshot.room().getUserCards().size()).isLessThanOrEqualTo(USERS);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        // Every room numbered its writes 1..n without gaps or duplicates,
+        // and each user ends up with the card of their latest write (by stamp, not by arrival)
+        Map<Integer, Map<String, Write>> lastWriteByUser = new HashMap<>();
+        long[] writeCount = new long[ROOMS];
+        boolean[][] seen = new boolean[ROOMS][WRITERS * WRITES_PER_WRITER + 1];
+        for (Write write : writes) {
+            assertThat(seen[write.room()][(int) write.version()]).isFalse();
+            seen[write.room()][(int) write.version()] = true;
+            writeCount[write.room()]++;
+            lastWriteByUser.computeIfAbsent(write.room(), r -> new HashMap<>())
+                    .merge(write.userId(), write, (a, b) -> a.stamp().compareTo(b.stamp()) > 0 ? a : b);
+        }
+        assertThat(writes).hasSize(WRITERS * WRITES_PER_WRITER);
+
+        for (int room = 0; room < ROOMS; room++) {
+            ReplicatedRoom.Snapshot snapshot = rooms[room].snapshot();
+            assertThat(snapshot.version()).isEqualTo(writeCount[room]);
+
+            Map<String, String> expected = new HashMap<>();
+            lastWriteByUser.getOrDefault(room, Map.of()).forEach((userId, write) -> expected.put(userId, write.cardValue()));
+            assertThat(snapshot.room().getUserCards()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("Deltas from other nodes racing with local writes should all be applied exactly once")
+    void testConcurrentDeltasAndLocalWrites() throws Exception {
+        // Given
+        ReplicatedRoom room = new ReplicatedRoom(GameRoom.builder().roomId("room-1").build());
+        int origins = 4;
+        int deltasPerOrigin = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(origins * 2 + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        // When
+        // Each origin's deltas are delivered twice (duplicates) by two threads, local writes run alongside
+        for (int o = 0; o < origins; o++) {
+            String originId = "node-" + o;
+            for (int copy = 0; copy < 2; copy++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (long version = 1; version <= deltasPerOrigin; version++) {
+                        // Spin on GAP: the other copy may not have applied the previous version yet
+                        while (room.applyDelta(originId, version, originId, "v" + version,
+                                new CardStamp(version, originId)) == ReplicatedRoom.DeltaResult.GAP) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+        }
+        HybridLogicalClock clock = new HybridLogicalClock();
+        for (int w = 0; w < 2; w++) {
+            int writer = w;
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < deltasPerOrigin; i++) {
+                    room.selectCard("local-" + writer, "v" + i, new CardStamp(clock.tick(), "local"));
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        ReplicatedRoom.Snapshot snapshot = room.snapshot();
+        assertThat(snapshot.version()).isEqualTo(2L * deltasPerOrigin);
+        for (int o = 0; o < origins; o++) {
+            assertThat(snapshot.room().getUserCards()).containsEntry("node-" + o, "v" + deltasPerOrigin);
+            assertThat(room.applyDelta("node-" + o, deltasPerOrigin, "node-" + o, "stale", CardStamp.ZERO))
+                    .isEqualTo(ReplicatedRoom.DeltaResult.DUPLICATE);
+        }
+        assertThat(snapshot.room().getUserCards())
+                .containsEntry("local-0", "v" + (deltasPerOrigin - 1))
+                .containsEntry("local-1", "v" + (deltasPerOrigin - 1));
+    }
+}